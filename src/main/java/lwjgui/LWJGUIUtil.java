@@ -31,8 +31,6 @@ import org.lwjgl.glfw.GLFWVidMode;
 import org.lwjgl.nanovg.NVGPaint;
 import org.lwjgl.nanovg.NanoVG;
 import org.lwjgl.opengl.GL;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL32;
 import org.lwjgl.system.MemoryStack;
 
 import lwjgui.font.Font;
@@ -41,8 +39,6 @@ import lwjgui.geometry.HPos;
 import lwjgui.geometry.Insets;
 import lwjgui.geometry.Pos;
 import lwjgui.geometry.VPos;
-import lwjgui.gl.BoxShadowShader;
-import lwjgui.gl.TexturedQuad;
 import lwjgui.paint.Color;
 import lwjgui.scene.Context;
 import lwjgui.style.Background;
@@ -51,8 +47,6 @@ import lwjgui.util.Bounds;
 import lwjgui.util.OperatingSystem;
 
 public class LWJGUIUtil {
-	private static BoxShadowShader boxShadowShader;
-	private static TexturedQuad unitQuad;
 	
 	private static void hints(boolean modernOpenGL) {
 		if ( modernOpenGL ) {
@@ -541,50 +535,16 @@ public class LWJGUIUtil {
 				NanoVG.nvgClosePath(context.getNVG());
 			}
 		} else {
+			float sigma = Math.max(f, 0.5f)/2f;
+			float corner = Math.max(sigma, r);
+			
+			// Draw from a cached texture, if the shadow fits one
+			if ( context.getBoxShadowCache().draw(xx, yy, ww, hh, sigma, corner, boxShadow.getFromColor()) )
+				return;
+			
 			if ( context.isCoreOpenGL() ) {
-				// Save NANOVG
-				NanoVG.nvgSave(context.getNVG());
-				NanoVG.nvgEndFrame(context.getNVG());
-		
-				// Draw shadow to current FBO
-				{
-					if ( boxShadowShader == null )
-						boxShadowShader = new BoxShadowShader();
-					
-					if ( unitQuad == null )
-						unitQuad = new TexturedQuad(0, 0, 1, 1, -1);
-					
-					boxShadowShader.bind();
-					
-					// Flip the y :shrug:
-					//yy -= boxShadow.getYOffset() * 2;
-					yy = LWJGUI.getThreadWindow().getHeight() - yy - hh;
-					
-					// Enable blending
-					GL32.glBlendFunc(GL32.GL_SRC_ALPHA, GL32.GL_ONE_MINUS_SRC_ALPHA);
-		            GL32.glEnable(GL32.GL_BLEND);
-		            
-		            if ( f < 0.5 )
-		            	f = 0.5f;
-					
-		            // Apply uniforms
-					GL20.glUniform4f(GL20.glGetUniformLocation(boxShadowShader.getProgram(), "box"), xx, yy, xx+ww, yy+hh );
-					GL20.glUniform2f(GL20.glGetUniformLocation(boxShadowShader.getProgram(), "window"), LWJGUI.getThreadWindow().getWidth(), LWJGUI.getThreadWindow().getHeight());
-					GL20.glUniform1f(GL20.glGetUniformLocation(boxShadowShader.getProgram(), "sigma"), f/2f);
-					GL20.glUniform1f(GL20.glGetUniformLocation(boxShadowShader.getProgram(), "corner"), Math.max(f/2, r));
-					GL20.glUniform4f(GL20.glGetUniformLocation(boxShadowShader.getProgram(), "boxColor"),
-							boxShadow.getFromColor().getRedF(),
-							boxShadow.getFromColor().getGreenF(),
-							boxShadow.getFromColor().getBlueF(),
-							boxShadow.getFromColor().getAlphaF());
-					
-					// Draw fullscreen quad
-					unitQuad.render();
-				}
-				
-				// Restore NANOVG
-				NanoVG.nvgRestore(context.getNVG());
-				context.refresh();
+				// Queue the shadow, consecutive shadows are drawn in one pass
+				context.getBoxShadowBatch().add(xx, yy, ww, hh, sigma, corner, boxShadow.getFromColor());
 			} else {
 				try(MemoryStack stack = MemoryStack.stackPush()) {
 					NVGPaint paint = NanoVG.nvgBoxGradient(context.getNVG(), xx, yy, ww, hh, r, f, boxShadow.getFromColor().getNVG(), boxShadow.getToColor().getNVG(), NVGPaint.mallocStack(stack));
@@ -0,0 +1,185 @@
+package lwjgui.collections;
+
+import java.util.Arrays;
+
+/**
+ * List of integer values that can answer prefix sums in O(log n), implemented as a Fenwick (binary indexed) tree.<br>
+ * Changing a value is O(log n). Inserting or removing values shifts the list and rebuilds the tree in O(n) the next
+ * time it is queried.
+ */
+public class FenwickTree {
+	private int[] values;
+	private int[] tree;
+	private int size;
+	private boolean dirty;
+
+	public FenwickTree() {
+		this(16);
+	}
+
+	public FenwickTree(int capacity) {
+		this.values = new int[Math.max(1, capacity)];
+		this.tree = new int[values.length + 1];
+	}
+
+	/**
+	 * Returns the amount of values in this list.
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all values.
+	 */
+	public void clear() {
+		size = 0;
+		dirty = true;
+	}
+
+	/**
+	 * Returns the value at the supplied index.
+	 * @param index
+	 * @return
+	 */
+	public int get(int index) {
+		checkIndex(index);
+		return values[index];
+	}
+
+	/**
+	 * Replaces the value at the supplied index.
+	 * @param index
+	 * @param value
+	 */
+	public void set(int index, int value) {
+		checkIndex(index);
+		int delta = value - values[index];
+		values[index] = value;
+		if ( dirty || delta == 0 )
+			return;
+
+		for (int i = index + 1; i <= size; i += i & -i)
+			tree[i] += delta;
+	}
+
+	/**
+	 * Appends a value to the end of the list.
+	 * @param value
+	 */
+	public void add(int value) {
+		insert(size, value);
+	}
+
+	/**
+	 * Inserts a value at the supplied index, shifting all following values.
+	 * @param index
+	 * @param value
+	 */
+	public void insert(int index, int value) {
+		if ( index < 0 || index > size )
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		if ( size == values.length ) {
+			values = Arrays.copyOf(values, values.length * 2);
+			tree = new int[values.length + 1];
+			dirty = true;
+		}
+
+		System.arraycopy(values, index, values, index + 1, size - index);
+		values[index] = value;
+		size++;
+
+		// Appending only needs to fill in the new node
+		if ( !dirty && index == size - 1 ) {
+			int node = size;
+			int sum = value;
+			int lowest = node - (node & -node);
+			for (int i = node - 1; i > lowest; i -= i & -i)
+				sum += tree[i];
+			tree[node] = sum;
+		} else {
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Removes the values from start (inclusive) to end (exclusive), shifting all following values.
+	 * @param start
+	 * @param end
+	 */
+	public void remove(int start, int end) {
+		if ( start < 0 || end > size || start > end )
+			throw new IndexOutOfBoundsException("Start: " + start + ", End: " + end + ", Size: " + size);
+		if ( start == end )
+			return;
+
+		System.arraycopy(values, end, values, start, size - end);
+		size -= end - start;
+		dirty = true;
+	}
+
+	/**
+	 * Returns the sum of all values before the supplied index.
+	 * @param index
+	 * @return
+	 */
+	public int sum(int index) {
+		if ( index < 0 || index > size )
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		build();
+		int sum = 0;
+		for (int i = index; i > 0; i -= i & -i)
+			sum += tree[i];
+		return sum;
+	}
+
+	/**
+	 * Returns the sum of all values.
+	 * @return
+	 */
+	public int total() {
+		return sum(size);
+	}
+
+	/**
+	 * Returns the amount of leading values whose sum is less than or equal to the supplied sum. For a list of line
+	 * lengths this is the line containing the supplied character offset. Assumes all values are non-negative.
+	 * @param sum
+	 * @return
+	 */
+	public int find(int sum) {
+		build();
+		int index = 0;
+		int remaining = sum;
+		for (int bit = Integer.highestOneBit(Math.max(1, size)); bit > 0; bit >>= 1) {
+			int next = index + bit;
+			if ( next <= size && tree[next] <= remaining ) {
+				index = next;
+				remaining -= tree[next];
+			}
+		}
+		return index;
+	}
+
+	private void build() {
+		if ( !dirty )
+			return;
+
+		for (int i = 1; i <= size; i++)
+			tree[i] = values[i - 1];
+		for (int i = 1; i <= size; i++) {
+			int parent = i + (i & -i);
+			if ( parent <= size )
+				tree[parent] += tree[i];
+		}
+		dirty = false;
+	}
+
+	private void checkIndex(int index) {
+		if ( index < 0 || index >= size )
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+}
@@ -0,0 +1,303 @@
+package lwjgui.collections;
+
+import java.util.ArrayList;
+
+/**
+ * Editable character sequence backed by a piece table.<br>
+ * The text is described by a list of pieces, each pointing into either the original (read-only) text or an
+ * append-only add buffer. Inserting or deleting only splits pieces, so the cost of an edit depends on the amount of
+ * pieces rather than the length of the text. Pieces are located by binary search over their cumulative offsets.
+ * Sequential typing keeps extending the last piece, pieces that become contiguous again are merged, and the table is
+ * compacted once it holds more than {@link #MAX_PIECES} pieces.
+ */
+public class PieceTable implements CharSequence {
+	private static final int MAX_PIECES = 1024;
+
+	private String original;
+	private final StringBuilder added = new StringBuilder();
+	private final ArrayList<Piece> pieces = new ArrayList<Piece>();
+	private int length;
+
+	// offsets[i] is the text offset of pieces[i], valid for the first validOffsets pieces
+	private int[] offsets = new int[16];
+	private int validOffsets;
+
+	private String cache;
+
+	public PieceTable() {
+		this("");
+	}
+
+	public PieceTable(String text) {
+		set(text);
+	}
+
+	/**
+	 * Replace the entire contents of this table.
+	 * @param text
+	 */
+	public void set(String text) {
+		if ( text == null )
+			text = "";
+
+		this.original = text;
+		this.added.setLength(0);
+		this.pieces.clear();
+		if ( text.length() > 0 )
+			this.pieces.add(new Piece(false, 0, text.length()));
+		this.length = text.length();
+		this.cache = text;
+		this.validOffsets = 0;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if ( index < 0 || index >= length )
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+
+		if ( cache != null )
+			return cache.charAt(index);
+
+		int i = findPiece(index);
+		Piece piece = pieces.get(i);
+		return buffer(piece).charAt(piece.start + index - offsets[i]);
+	}
+
+	/**
+	 * Insert text at the supplied index.
+	 * @param index
+	 * @param text
+	 */
+	public void insert(int index, CharSequence text) {
+		if ( index < 0 || index > length )
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+		if ( text == null || text.length() == 0 )
+			return;
+
+		int start = added.length();
+		added.append(text);
+		int amount = text.length();
+
+		if ( pieces.isEmpty() ) {
+			pieces.add(new Piece(true, start, amount));
+		} else {
+			// Find the piece ending at or containing the index
+			int i = index == 0 ? 0 : findPiece(index - 1);
+			Piece piece = pieces.get(i);
+			int split = index - offsets[i];
+
+			if ( split == piece.length && piece.added && piece.start + piece.length == start ) {
+				// Typing at the end of the last insertion, just grow it
+				piece.length += amount;
+			} else if ( split == 0 ) {
+				pieces.add(i, new Piece(true, start, amount));
+			} else if ( split == piece.length ) {
+				pieces.add(i + 1, new Piece(true, start, amount));
+			} else {
+				Piece tail = new Piece(piece.added, piece.start + split, piece.length - split);
+				piece.length = split;
+				pieces.add(i + 1, new Piece(true, start, amount));
+				pieces.add(i + 2, tail);
+			}
+			invalidateOffsets(i + 1);
+		}
+
+		length += amount;
+		cache = null;
+		compact();
+	}
+
+	/**
+	 * Delete the characters between start (inclusive) and end (exclusive).
+	 * @param start
+	 * @param end
+	 */
+	public void delete(int start, int end) {
+		if ( start < 0 || end > length || start > end )
+			throw new IndexOutOfBoundsException("Start: " + start + ", End: " + end + ", Length: " + length);
+		if ( start == end )
+			return;
+
+		int first = findPiece(start);
+		int offset = offsets[first];
+		int boundary = -1;
+		for (int i = first; i < pieces.size() && offset < end; ) {
+			Piece piece = pieces.get(i);
+			int pieceStart = offset;
+			int pieceEnd = offset + piece.length;
+			offset = pieceEnd;
+
+			int cutStart = Math.max(start, pieceStart) - pieceStart;
+			int cutEnd = Math.min(end, pieceEnd) - pieceStart;
+
+			// Index of the first piece after the deleted range
+			if ( boundary == -1 )
+				boundary = cutStart == 0 ? i : i + 1;
+
+			// Nothing references the add buffer past this cut, so hand it back. Typing after a backspace then keeps
+			// extending the same piece.
+			if ( piece.added && piece.start + cutEnd == added.length() )
+				added.setLength(piece.start + cutStart);
+
+			if ( cutStart == 0 && cutEnd == piece.length ) {
+				pieces.remove(i);
+			} else if ( cutStart == 0 ) {
+				piece.start += cutEnd;
+				piece.length -= cutEnd;
+				i++;
+			} else if ( cutEnd == piece.length ) {
+				piece.length = cutStart;
+				i++;
+			} else {
+				Piece tail = new Piece(piece.added, piece.start + cutEnd, piece.length - cutEnd);
+				piece.length = cutStart;
+				pieces.add(i + 1, tail);
+				i += 2;
+			}
+		}
+
+		// Join the pieces around the deleted range when they are contiguous in the same buffer
+		if ( boundary > 0 && boundary < pieces.size() ) {
+			Piece before = pieces.get(boundary - 1);
+			Piece after = pieces.get(boundary);
+			if ( before.added == after.added && before.start + before.length == after.start ) {
+				before.length += after.length;
+				pieces.remove(boundary);
+				first = Math.min(first, boundary - 1);
+			}
+		}
+
+		invalidateOffsets(first + 1);
+		length -= end - start;
+		cache = null;
+		compact();
+	}
+
+	/**
+	 * Returns the text between start (inclusive) and end (exclusive).
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	public String substring(int start, int end) {
+		if ( start < 0 || end > length || start > end )
+			throw new IndexOutOfBoundsException("Start: " + start + ", End: " + end + ", Length: " + length);
+
+		if ( cache != null )
+			return cache.substring(start, end);
+
+		if ( start == end )
+			return "";
+
+		StringBuilder builder = new StringBuilder(end - start);
+		int first = findPiece(start);
+		int offset = offsets[first];
+		for (int i = first; i < pieces.size() && offset < end; i++) {
+			Piece piece = pieces.get(i);
+			int pieceEnd = offset + piece.length;
+			if ( pieceEnd > start ) {
+				int from = Math.max(start, offset) - offset;
+				int to = Math.min(end, pieceEnd) - offset;
+				builder.append(buffer(piece), piece.start + from, piece.start + to);
+			}
+			offset = pieceEnd;
+		}
+
+		return builder.toString();
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return substring(start, end);
+	}
+
+	/**
+	 * Returns the amount of pieces currently describing the text.
+	 * @return
+	 */
+	public int getPieceCount() {
+		return pieces.size();
+	}
+
+	/**
+	 * Returns the full text. The result is cached until the next edit.
+	 */
+	@Override
+	public String toString() {
+		if ( cache == null )
+			cache = substring(0, length);
+
+		return cache;
+	}
+
+	private CharSequence buffer(Piece piece) {
+		return piece.added ? added : original;
+	}
+
+	/**
+	 * Returns the index of the piece containing the supplied text index. The index must be within the text.
+	 */
+	private int findPiece(int index) {
+		updateOffsets();
+
+		int low = 0;
+		int high = pieces.size() - 1;
+		while ( low < high ) {
+			int mid = (low + high + 1) >>> 1;
+			if ( offsets[mid] <= index )
+				low = mid;
+			else
+				high = mid - 1;
+		}
+
+		return low;
+	}
+
+	private void updateOffsets() {
+		int size = pieces.size();
+		if ( validOffsets >= size )
+			return;
+
+		if ( offsets.length < size ) {
+			int[] grown = new int[Math.max(size, offsets.length * 2)];
+			System.arraycopy(offsets, 0, grown, 0, validOffsets);
+			offsets = grown;
+		}
+
+		for (int i = validOffsets; i < size; i++)
+			offsets[i] = i == 0 ? 0 : offsets[i - 1] + pieces.get(i - 1).length;
+		validOffsets = size;
+	}
+
+	/**
+	 * Marks the offsets of the supplied piece index and every piece after it as stale.
+	 */
+	private void invalidateOffsets(int index) {
+		validOffsets = Math.min(validOffsets, index);
+	}
+
+	/**
+	 * Collapses the table back into a single piece once edits have fragmented it too far.
+	 */
+	private void compact() {
+		if ( pieces.size() > MAX_PIECES )
+			set(toString());
+	}
+
+	private static class Piece {
+		private final boolean added;
+		private int start;
+		private int length;
+
+		Piece(boolean added, int start, int length) {
+			this.added = added;
+			this.start = start;
+			this.length = length;
+		}
+	}
+}
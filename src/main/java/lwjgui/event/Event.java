@@ -14,4 +14,11 @@ public class Event {
 	protected void setConsumed(boolean b) {
 		this.consumed = b;
 	}
+	
+	/**
+	 * Clears the consumed flag so that a reused event can be fired again, see {@link EventPool}.
+	 */
+	public void reset() {
+		this.consumed = false;
+	}
 }
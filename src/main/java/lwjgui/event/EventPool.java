@@ -0,0 +1,42 @@
+package lwjgui.event;
+
+import java.util.ArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Reusable event instances, so that input can be dispatched without allocating.<br>
+ * An event is obtained for one dispatch and freed once the last handler returned. Handlers must not keep a reference
+ * to the event after they return. Events obtained during another dispatch (e.g. by a handler that fires an event
+ * itself) get their own instance. A pool belongs to one window and is only used on its thread.
+ */
+public class EventPool<T extends Event> {
+	private final Supplier<T> factory;
+	private final ArrayList<T> free = new ArrayList<T>();
+	
+	public EventPool(Supplier<T> factory) {
+		this.factory = factory;
+	}
+	
+	/**
+	 * Returns an unused event. Its consumed flag is cleared.
+	 * @return
+	 */
+	public T obtain() {
+		int size = free.size();
+		if ( size == 0 )
+			return factory.get();
+		
+		T event = free.remove(size-1);
+		event.reset();
+		return event;
+	}
+	
+	/**
+	 * Returns an event to the pool once it has been dispatched.
+	 * @param event
+	 */
+	public void free(T event) {
+		if ( event != null )
+			free.add(event);
+	}
+}
@@ -3,15 +3,23 @@ package lwjgui.event;
 import org.lwjgl.glfw.GLFW;
 
 public class KeyEvent extends Event {
-	public final int key;
-	public final int scancode;
-	public final int action;
-	public final int mods;
-	public final boolean isCtrlDown;
-	public final boolean isAltDown;
-	public final boolean isShiftDown;
+	public int key;
+	public int scancode;
+	public int action;
+	public int mods;
+	public boolean isCtrlDown;
+	public boolean isAltDown;
+	public boolean isShiftDown;
 	
 	public KeyEvent(int key, int scancode, int action, int mods, boolean isCtrlDown, boolean isAltDown, boolean isShiftDown ) {
+		set(key, scancode, action, mods, isCtrlDown, isAltDown, isShiftDown);
+	}
+	
+	/**
+	 * Reinitializes a reused event, see {@link EventPool}.
+	 */
+	public KeyEvent set(int key, int scancode, int action, int mods, boolean isCtrlDown, boolean isAltDown, boolean isShiftDown ) {
+		reset();
 		this.key = key;
 		this.scancode = scancode;
 		this.action = action;
@@ -19,6 +27,7 @@ public class KeyEvent extends Event {
 		this.isCtrlDown = isCtrlDown;
 		this.isAltDown = isAltDown;
 		this.isShiftDown = isShiftDown;
+		return this;
 	}
 
 	public int getKey() {
@@ -1,18 +1,27 @@
 package lwjgui.event;
 
 public class MouseEvent extends Event {
-	public final double mouseX, mouseY;
-	public final int button;
-	private final int clicks;
+	public double mouseX, mouseY;
+	public int button;
+	private int clicks;
 
 	public MouseEvent(double mouseX, double mouseY, int button) {
 		this(mouseX, mouseY, button, 0);
 	}
 	public MouseEvent(double mouseX, double mouseY, int button, int clicks) {
+		set(mouseX, mouseY, button, clicks);
+	}
+	
+	/**
+	 * Reinitializes a reused event, see {@link EventPool}.
+	 */
+	public MouseEvent set(double mouseX, double mouseY, int button, int clicks) {
+		reset();
 		this.mouseX = mouseX;
 		this.mouseY = mouseY;
 		this.button = button;
 		this.clicks = clicks;
+		return this;
 	}
 	
 	public final int getClickCount() {
@@ -1,12 +1,21 @@
 package lwjgui.event;
 
 public class ScrollEvent extends Event {
-	public final double x;
-	public final double y;
+	public double x;
+	public double y;
 	
 	public ScrollEvent( double x, double y ) {
+		set(x, y);
+	}
+	
+	/**
+	 * Reinitializes a reused event, see {@link EventPool}.
+	 */
+	public ScrollEvent set( double x, double y ) {
+		reset();
 		this.x = x;
 		this.y = y;
+		return this;
 	}
 
 }
@@ -1,10 +1,19 @@
 package lwjgui.event;
 
 public class TypeEvent extends Event {
-	public final char character;
+	public char character;
 	
 	public TypeEvent(int codepoint) {
+		set(codepoint);
+	}
+	
+	/**
+	 * Reinitializes a reused event, see {@link EventPool}.
+	 */
+	public TypeEvent set(int codepoint) {
+		reset();
 		character = (char) codepoint;
+		return this;
 	}
 	
 	public String getCharacterString() {
@@ -0,0 +1,189 @@
+package lwjgui.gl;
+
+import static org.lwjgl.opengl.GL11.GL_CULL_FACE;
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL11.GL_ONE_MINUS_SRC_ALPHA;
+import static org.lwjgl.opengl.GL11.GL_SRC_ALPHA;
+import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
+import static org.lwjgl.opengl.GL11.glDisable;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_STATIC_DRAW;
+import static org.lwjgl.opengl.GL15.GL_STREAM_DRAW;
+import static org.lwjgl.opengl.GL15.glBindBuffer;
+import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glDeleteBuffers;
+import static org.lwjgl.opengl.GL15.glGenBuffers;
+import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
+import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL31.glDrawArraysInstanced;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.nanovg.NanoVG;
+import org.lwjgl.system.MemoryUtil;
+
+import lwjgui.paint.Color;
+import lwjgui.scene.Context;
+
+/**
+ * Draws the outer box shadows of a context on core profiles.<br>
+ * Shadows are drawn by the GPU, outside of NanoVG. Before the first shadow of a run, the NanoVG content recorded so
+ * far is flushed so that it ends up below the shadow. Following shadows are appended to the run as long as nothing
+ * was drawn with NanoVG in between, and the whole run is drawn with one instanced draw call that only covers the
+ * blurred bounds of each shadow. The run must be drawn before NanoVG flushes again, see {@link #flush()}.
+ */
+public class BoxShadowBatch {
+	private static final int FLOATS = 10; // box (4), color (4), sigma, corner
+
+	private final Context context;
+
+	private BoxShadowShader shader;
+	private int vao = -1;
+	private int quadVbo;
+	private int instanceVbo;
+
+	private FloatBuffer instances = MemoryUtil.memAllocFloat(FLOATS * 64);
+	private int count;
+	private long stamp;
+
+	private float frameWidth;
+	private float frameHeight;
+
+	public BoxShadowBatch(Context context) {
+		this.context = context;
+	}
+
+	/**
+	 * Sets the size of the frame the shadows are drawn into. Must be the size passed to
+	 * {@link NanoVG#nvgBeginFrame(long, float, float, float)} for the render target that is bound while the shadows
+	 * are drawn, e.g. the window or an offscreen buffer.
+	 * @param width
+	 * @param height
+	 */
+	public void setFrameSize(float width, float height) {
+		this.frameWidth = width;
+		this.frameHeight = height;
+	}
+
+	/**
+	 * Queues a shadow. Coordinates are in frame space with the origin at the top left.
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 * @param sigma standard deviation of the blur
+	 * @param corner corner radius
+	 * @param color
+	 */
+	public void add(float x, float y, float width, float height, float sigma, float corner, Color color) {
+		// NanoVG content was recorded since the last shadow: it has to be drawn on top of the current run
+		if ( count > 0 && stamp != context.getNVGAccessCount() )
+			flush();
+
+		// Draw the NanoVG content below the new run first
+		if ( count == 0 )
+			NanoVG.nvgEndFrame(context.getNVG());
+
+		if ( instances.remaining() < FLOATS )
+			instances = MemoryUtil.memRealloc(instances, instances.capacity() * 2);
+
+		instances.put(x).put(y).put(x + width).put(y + height);
+		instances.put(color.getRedF()).put(color.getGreenF()).put(color.getBlueF()).put(color.getAlphaF());
+		instances.put(sigma).put(corner);
+		count++;
+
+		stamp = context.getNVGAccessCount();
+	}
+
+	/**
+	 * Draws the queued shadows. Must be called before NanoVG content recorded after them is flushed.
+	 */
+	public void flush() {
+		if ( count == 0 )
+			return;
+
+		// NanoVG changed the state since the last tracked call
+		GLState state = GLState.current();
+		state.invalidateObjects();
+
+		if ( vao == -1 )
+			init();
+
+		float width = frameWidth;
+		float height = frameHeight;
+
+		// Flip to OpenGL framebuffer coordinates
+		for (int i = 0; i < count; i++) {
+			int offset = i * FLOATS;
+			float minY = instances.get(offset + 1);
+			float maxY = instances.get(offset + 3);
+			instances.put(offset + 1, height - maxY);
+			instances.put(offset + 3, height - minY);
+		}
+		instances.flip();
+
+		shader.bind();
+		shader.setWindowSize(width, height);
+		state.enableBlend(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+		glDisable(GL_CULL_FACE);
+
+		glBindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+		glBufferData(GL_ARRAY_BUFFER, instances, GL_STREAM_DRAW);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+		state.bindVertexArray(vao);
+		glDrawArraysInstanced(GL_TRIANGLES, 0, 6, count);
+
+		instances.clear();
+		count = 0;
+	}
+
+	private void init() {
+		shader = new BoxShadowShader();
+		vao = glGenVertexArrays();
+		quadVbo = glGenBuffers();
+		instanceVbo = glGenBuffers();
+
+		glBindVertexArray(vao);
+
+		// Unit quad
+		glBindBuffer(GL_ARRAY_BUFFER, quadVbo);
+		glBufferData(GL_ARRAY_BUFFER, new float[] { 0, 0, 1, 0, 1, 1, 0, 0, 1, 1, 0, 1 }, GL_STATIC_DRAW);
+		glEnableVertexAttribArray(0);
+		glVertexAttribPointer(0, 2, GL_FLOAT, false, 2 * Float.BYTES, 0);
+
+		// Per shadow attributes
+		int stride = FLOATS * Float.BYTES;
+		glBindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+		glEnableVertexAttribArray(1);
+		glVertexAttribPointer(1, 4, GL_FLOAT, false, stride, 0);
+		glVertexAttribDivisor(1, 1);
+		glEnableVertexAttribArray(2);
+		glVertexAttribPointer(2, 4, GL_FLOAT, false, stride, 4 * Float.BYTES);
+		glVertexAttribDivisor(2, 1);
+		glEnableVertexAttribArray(3);
+		glVertexAttribPointer(3, 2, GL_FLOAT, false, stride, 8 * Float.BYTES);
+		glVertexAttribDivisor(3, 1);
+
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		glBindVertexArray(0);
+	}
+
+	public void dispose() {
+		if ( vao != -1 ) {
+			glDeleteVertexArrays(vao);
+			glDeleteBuffers(quadVbo);
+			glDeleteBuffers(instanceVbo);
+			shader.cleanup();
+			vao = -1;
+		}
+
+		MemoryUtil.memFree(instances);
+		instances = null;
+		count = 0;
+	}
+}
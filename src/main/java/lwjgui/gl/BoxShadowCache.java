@@ -0,0 +1,254 @@
+package lwjgui.gl;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.lwjgl.nanovg.NVGPaint;
+import org.lwjgl.nanovg.NanoVG;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import lwjgui.paint.Color;
+import lwjgui.scene.Context;
+
+/**
+ * Cache of box shadow textures of a context.<br>
+ * A shadow only depends on its blur and corner radius, the size of the box just stretches its straight edges. Each
+ * combination is rendered once into a small white mask, which is drawn as a nine-slice image pattern tinted with the
+ * shadow color. The cost of a shadow is independent of the size of its box and it stays in the NanoVG draw order, so
+ * it works on both the core and legacy profiles.<br>
+ * Least recently used textures are deleted once the cache grows beyond its memory budget.
+ */
+public class BoxShadowCache {
+	private static final int MAX_SIZE = 256;
+	private static final int SAMPLES = 16;
+
+	private final Context context;
+	private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+	private long maxBytes = 8 * 1024 * 1024;
+	private long bytes;
+	private long frame;
+
+	public BoxShadowCache(Context context) {
+		this.context = context;
+	}
+
+	/**
+	 * Draws the shadow of a rounded box with the cached texture.
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 * @param sigma standard deviation of the blur
+	 * @param corner corner radius
+	 * @param color
+	 * @return false if the shadow cannot be drawn from a texture, e.g. because the box is smaller than its corners
+	 * or the blur is too large
+	 */
+	public boolean draw(float x, float y, float width, float height, float sigma, float corner, Color color) {
+		// Quantize, so that similar shadows share a texture
+		int sigma2 = Math.max(1, Math.round(sigma * 2));
+		int radius = Math.max(0, Math.round(corner));
+		sigma = sigma2 / 2f;
+		int pad = (int) Math.ceil(3 * sigma);
+
+		// Corner slice: outer blur, corner and inner blur. The center row and column are stretched.
+		int slice = pad + radius + pad;
+		int size = slice * 2 + 1;
+		if ( size > MAX_SIZE || width < slice * 2 - pad * 2 || height < slice * 2 - pad * 2 )
+			return false;
+
+		Entry entry = get(sigma2, radius, size, pad);
+		if ( entry == null )
+			return false;
+
+		float dx = x - pad;
+		float dy = y - pad;
+		float dw = width + pad * 2;
+		float dh = height + pad * 2;
+		float[] columns = { dx, dx + slice, dx + dw - slice, dx + dw };
+		float[] rows = { dy, dy + slice, dy + dh - slice, dy + dh };
+		float[] source = { 0, slice, slice + 1, size };
+
+		long vg = context.getNVG();
+		try (MemoryStack stack = MemoryStack.stackPush()) {
+			NVGPaint paint = NVGPaint.mallocStack(stack);
+			for (int i = 0; i < 3; i++) {
+				for (int j = 0; j < 3; j++) {
+					float x0 = columns[i];
+					float x1 = columns[i + 1];
+					float y0 = rows[j];
+					float y1 = rows[j + 1];
+					if ( x1 <= x0 || y1 <= y0 )
+						continue;
+
+					// Map the source slice of the texture onto the cell
+					float scaleX = (x1 - x0) / (source[i + 1] - source[i]);
+					float scaleY = (y1 - y0) / (source[j + 1] - source[j]);
+					NanoVG.nvgImagePattern(vg, x0 - source[i] * scaleX, y0 - source[j] * scaleY, size * scaleX, size * scaleY, 0, entry.image, 1, paint);
+					paint.innerColor(color.getNVG());
+
+					NanoVG.nvgBeginPath(vg);
+					NanoVG.nvgRect(vg, x0, y0, x1 - x0, y1 - y0);
+					NanoVG.nvgFillPaint(vg, paint);
+					NanoVG.nvgFill(vg);
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private Entry get(int sigma2, int radius, int size, int pad) {
+		Long key = ((long) sigma2 << 32) | radius;
+		Entry entry = entries.get(key);
+		if ( entry == null ) {
+			ByteBuffer pixels = MemoryUtil.memAlloc(size * size * 4);
+			try {
+				render(pixels, size, pad, sigma2 / 2f, radius);
+				int image = NanoVG.nvgCreateImageRGBA(context.getNVG(), size, size, 0, pixels);
+				if ( image == 0 )
+					return null;
+
+				entry = new Entry(image, size * size * 4);
+			} finally {
+				MemoryUtil.memFree(pixels);
+			}
+
+			entries.put(key, entry);
+			bytes += entry.bytes;
+		}
+
+		entry.frame = frame;
+		return entry;
+	}
+
+	/**
+	 * Deletes the least recently used textures until the cache fits its budget. Called once NanoVG finished the
+	 * frame, so no texture that is still referenced gets deleted.
+	 */
+	public void endFrame() {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while ( bytes > maxBytes && iterator.hasNext() ) {
+			Entry entry = iterator.next();
+			if ( entry.frame == frame )
+				break; // Everything after this was used this frame
+
+			NanoVG.nvgDeleteImage(context.getNVG(), entry.image);
+			bytes -= entry.bytes;
+			iterator.remove();
+		}
+
+		frame++;
+	}
+
+	/**
+	 * Sets the texture memory the cache may use in bytes.
+	 * @param maxBytes
+	 */
+	public void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	public long getMaxBytes() {
+		return this.maxBytes;
+	}
+
+	/**
+	 * Returns the texture memory used by the cache in bytes.
+	 * @return
+	 */
+	public long getBytes() {
+		return this.bytes;
+	}
+
+	public void dispose() {
+		for (Map.Entry<Long, Entry> entry : entries.entrySet())
+			NanoVG.nvgDeleteImage(context.getNVG(), entry.getValue().image);
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Renders the mask of a blurred rounded box that fills the texture except for the padding. Same approximation
+	 * as box_shadow_frag.glsl.
+	 */
+	private static void render(ByteBuffer pixels, int size, int pad, float sigma, float corner) {
+		float lower = pad;
+		float upper = size - pad;
+		for (int py = 0; py < size; py++) {
+			for (int px = 0; px < size; px++) {
+				float value = roundedBoxShadow(lower, upper, px + 0.5f, py + 0.5f, sigma, corner);
+				int alpha = Math.max(0, Math.min(255, Math.round(value * 255)));
+				int index = (py * size + px) * 4;
+				pixels.put(index, (byte) 255);
+				pixels.put(index + 1, (byte) 255);
+				pixels.put(index + 2, (byte) 255);
+				pixels.put(index + 3, (byte) alpha);
+			}
+		}
+	}
+
+	private static float roundedBoxShadow(float lower, float upper, float x, float y, float sigma, float corner) {
+		// Center everything to make the math easier
+		float center = (lower + upper) * 0.5f;
+		float halfSize = (upper - lower) * 0.5f;
+		x -= center;
+		y -= center;
+
+		// The signal is only non-zero in a limited range, so don't waste samples
+		float low = y - halfSize;
+		float high = y + halfSize;
+		float start = clamp(-3 * sigma, low, high);
+		float end = clamp(3 * sigma, low, high);
+
+		// The texture is only rendered once, so take more samples than the shader
+		float step = (end - start) / SAMPLES;
+		float sample = start + step * 0.5f;
+		float value = 0;
+		for (int i = 0; i < SAMPLES; i++) {
+			value += roundedBoxShadowX(x, y - sample, sigma, corner, halfSize) * gaussian(sample, sigma) * step;
+			sample += step;
+		}
+
+		return value;
+	}
+
+	private static float roundedBoxShadowX(float x, float y, float sigma, float corner, float halfSize) {
+		float delta = Math.min(halfSize - corner - Math.abs(y), 0);
+		float curved = halfSize - corner + (float) Math.sqrt(Math.max(0, corner * corner - delta * delta));
+		float scale = (float) Math.sqrt(0.5) / sigma;
+		float a = 0.5f + 0.5f * erf((x - curved) * scale);
+		float b = 0.5f + 0.5f * erf((x + curved) * scale);
+		return b - a;
+	}
+
+	private static float gaussian(float x, float sigma) {
+		return (float) (Math.exp(-(x * x) / (2 * sigma * sigma)) / (Math.sqrt(2 * Math.PI) * sigma));
+	}
+
+	private static float erf(float x) {
+		float s = Math.signum(x);
+		float a = Math.abs(x);
+		x = 1 + (0.278393f + (0.230389f + 0.078108f * (a * a)) * a) * a;
+		x *= x;
+		return s - s / (x * x);
+	}
+
+	private static float clamp(float value, float min, float max) {
+		return Math.max(min, Math.min(max, value));
+	}
+
+	private static class Entry {
+		final int image;
+		final long bytes;
+		long frame;
+
+		Entry(int image, long bytes) {
+			this.image = image;
+			this.bytes = bytes;
+		}
+	}
+}
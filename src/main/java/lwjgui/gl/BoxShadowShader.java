@@ -1,11 +1,23 @@
 package lwjgui.gl;
 
 public class BoxShadowShader extends GenericShader {
+	private final Uniform window;
 
 	public BoxShadowShader() {
 		super(
 			BoxShadowShader.class.getResource("box_shadow_vert.glsl"),
 			BoxShadowShader.class.getResource("box_shadow_frag.glsl")
 		);
+		
+		window = getUniform("window");
+	}
+	
+	/**
+	 * Sets the size of the render target in pixels.
+	 * @param width
+	 * @param height
+	 */
+	public void setWindowSize(float width, float height) {
+		window.set(width, height);
 	}
 }
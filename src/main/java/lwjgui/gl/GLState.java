@@ -0,0 +1,162 @@
+package lwjgui.gl;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+import lwjgui.LWJGUI;
+import lwjgui.scene.Window;
+
+/**
+ * Remembers the GL state set through it, so that redundant binds and <code>glGet</code> queries are skipped.<br>
+ * Every window has one for its GL context, see {@link #current()}. Code that changes the state without going through
+ * the tracker (NanoVG flushes, user render callbacks) must be followed by {@link #invalidate()}. NanoVG never changes
+ * the framebuffer binding, so {@link #invalidateObjects()} is enough after <code>nvgEndFrame</code>.
+ */
+public class GLState {
+	private static final int UNKNOWN = -1;
+
+	// Passes every call through, for threads without a window
+	private static final GLState UNTRACKED = new GLState(false);
+
+	private final boolean tracking;
+
+	private int readFramebuffer = UNKNOWN;
+	private int drawFramebuffer = UNKNOWN;
+	private int program = UNKNOWN;
+	private int vertexArray = UNKNOWN;
+	private int texture = UNKNOWN;
+	private int blend = UNKNOWN;
+	private int blendSource = UNKNOWN;
+	private int blendDestination = UNKNOWN;
+
+	public GLState() {
+		this(true);
+	}
+
+	private GLState(boolean tracking) {
+		this.tracking = tracking;
+	}
+
+	/**
+	 * Returns the state tracker of the window bound to the calling thread.
+	 * @return
+	 */
+	public static GLState current() {
+		Window window = LWJGUI.getThreadWindow();
+		return window == null ? UNTRACKED : window.getGLState();
+	}
+
+	/**
+	 * Forgets the whole state.
+	 */
+	public void invalidate() {
+		readFramebuffer = UNKNOWN;
+		drawFramebuffer = UNKNOWN;
+		invalidateObjects();
+	}
+
+	/**
+	 * Forgets everything but the framebuffer binding.
+	 */
+	public void invalidateObjects() {
+		program = UNKNOWN;
+		vertexArray = UNKNOWN;
+		texture = UNKNOWN;
+		blend = UNKNOWN;
+		blendSource = UNKNOWN;
+		blendDestination = UNKNOWN;
+	}
+
+	/**
+	 * Returns the framebuffer bound for drawing. Only queries GL if it is not known.
+	 * @return
+	 */
+	public int getFramebuffer() {
+		if ( !tracking || drawFramebuffer == UNKNOWN ) {
+			int current = GL11.glGetInteger(GL30.GL_DRAW_FRAMEBUFFER_BINDING);
+			if ( !tracking )
+				return current;
+			drawFramebuffer = current;
+		}
+		return drawFramebuffer;
+	}
+
+	/**
+	 * Binds a framebuffer for reading and drawing.
+	 * @param fbo
+	 */
+	public void bindFramebuffer(int fbo) {
+		if ( tracking && readFramebuffer == fbo && drawFramebuffer == fbo )
+			return;
+		GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, fbo);
+		readFramebuffer = fbo;
+		drawFramebuffer = fbo;
+	}
+
+	public void bindReadFramebuffer(int fbo) {
+		if ( tracking && readFramebuffer == fbo )
+			return;
+		GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, fbo);
+		readFramebuffer = fbo;
+	}
+
+	public void bindDrawFramebuffer(int fbo) {
+		if ( tracking && drawFramebuffer == fbo )
+			return;
+		GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, fbo);
+		drawFramebuffer = fbo;
+	}
+
+	public void useProgram(int id) {
+		if ( tracking && program == id )
+			return;
+		GL20.glUseProgram(id);
+		program = id;
+	}
+
+	public void bindVertexArray(int vao) {
+		if ( tracking && vertexArray == vao )
+			return;
+		GL30.glBindVertexArray(vao);
+		vertexArray = vao;
+	}
+
+	/**
+	 * Binds a 2D texture to texture unit 0.
+	 * @param id
+	 */
+	public void bindTexture(int id) {
+		if ( tracking && texture == id )
+			return;
+		if ( texture == UNKNOWN || !tracking )
+			GL13.glActiveTexture(GL13.GL_TEXTURE0);
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
+		texture = id;
+	}
+
+	/**
+	 * Enables blending with the supplied factors.
+	 * @param source
+	 * @param destination
+	 */
+	public void enableBlend(int source, int destination) {
+		if ( !tracking || blend != 1 ) {
+			GL11.glEnable(GL11.GL_BLEND);
+			blend = 1;
+		}
+		if ( !tracking || blendSource != source || blendDestination != destination ) {
+			GL11.glBlendFunc(source, destination);
+			blendSource = source;
+			blendDestination = destination;
+		}
+	}
+
+	public void disableBlend() {
+		if ( tracking && blend == 0 )
+			return;
+		GL11.glDisable(GL11.GL_BLEND);
+		blend = 0;
+	}
+}
@@ -6,13 +6,15 @@ import java.io.*;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
 import java.util.stream.*;
 
 import org.joml.Matrix4f;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.system.MemoryStack;
 
 import lwjgui.LWJGUI;
 import lwjgui.scene.Context;
@@ -27,9 +29,14 @@ public class GenericShader {
 	protected final int viewMatLoc;
 	protected final int worldMatLoc;
 	private int texId;
+	private final HashMap<String, Uniform> uniforms = new HashMap<>();
 
+	// Last projection set with projectOrtho(), while no matrix was set in between
+	private boolean orthoValid;
+	private float orthoX, orthoY, orthoW, orthoH;
 
 	private static final Matrix4f IDENTITY_MATRIX = new Matrix4f();
+	private static final Uniform MISSING_UNIFORM = new Uniform(-1);
 
 	public GenericShader() {
 		this(
@@ -52,9 +59,10 @@ public class GenericShader {
 				new int[] { posLoc, texCoordLoc }
 				);
 
-		projMatLoc = GL20.glGetUniformLocation(id, "projectionMatrix");
-		viewMatLoc = GL20.glGetUniformLocation(id, "viewMatrix");
-		worldMatLoc = GL20.glGetUniformLocation(id, "worldMatrix");
+		resolveUniforms();
+		projMatLoc = getUniform("projectionMatrix").getLocation();
+		viewMatLoc = getUniform("viewMatrix").getLocation();
+		worldMatLoc = getUniform("worldMatrix").getLocation();
 		
 		// Generic white texture
 		texId = GL11.glGenTextures();
@@ -69,13 +77,46 @@ public class GenericShader {
 		GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, wid, hei, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, data);
 		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
 		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+
+		// The texture was bound directly
+		GLState.current().invalidateObjects();
 	}
 
 	public void bind() {
-		GL20.glUseProgram(id);
+		GLState state = GLState.current();
+		state.useProgram(id);
+		state.bindTexture(texId);
+	}
 
-		GL13.glActiveTexture(GL13.GL_TEXTURE0);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texId);
+	/**
+	 * Looks up the locations of all active uniforms once the program is linked.
+	 */
+	private void resolveUniforms() {
+		int count = GL20.glGetProgrami(id, GL20.GL_ACTIVE_UNIFORMS);
+		int maxLength = GL20.glGetProgrami(id, GL20.GL_ACTIVE_UNIFORM_MAX_LENGTH);
+		try (MemoryStack stack = MemoryStack.stackPush()) {
+			IntBuffer size = stack.mallocInt(1);
+			IntBuffer type = stack.mallocInt(1);
+			for (int i = 0; i < count; i++) {
+				String name = GL20.glGetActiveUniform(id, i, maxLength, size, type);
+				if (name.endsWith("[0]"))
+					name = name.substring(0, name.length() - 3);
+				uniforms.put(name, new Uniform(GL20.glGetUniformLocation(id, name)));
+			}
+		}
+	}
+
+	/**
+	 * Returns the uniform with the supplied name. Uniforms that are not active in
+	 * the program are returned as a uniform that ignores all values. Resolve
+	 * uniforms once and keep them, instead of looking them up every frame.
+	 * 
+	 * @param name
+	 * @return
+	 */
+	public Uniform getUniform(String name) {
+		Uniform uniform = uniforms.get(name);
+		return uniform == null ? MISSING_UNIFORM : uniform;
 	}
 
 	public void cleanup() {
@@ -214,22 +255,34 @@ public class GenericShader {
 	 * @param h
 	 */
 	public void projectOrtho(float x, float y, float w, float h) {
+		if (orthoValid && orthoX == x && orthoY == y && orthoW == w && orthoH == h)
+			return;
+
 		setProjectionMatrix(new Matrix4f().ortho(x, x+w, y+h, y, -32000, 32000));
 		setViewMatrix(IDENTITY_MATRIX);
 		setWorldMatrix(IDENTITY_MATRIX);
+
+		orthoValid = true;
+		orthoX = x;
+		orthoY = y;
+		orthoW = w;
+		orthoH = h;
 	}
 
 	public void setProjectionMatrix(Matrix4f mat) {
+		orthoValid = false;
 		mat.get(matrix44Buffer);
 		glUniformMatrix4fv(projMatLoc, false, matrix44Buffer);
 	}
 
 	public void setViewMatrix(Matrix4f mat) {
+		orthoValid = false;
 		mat.get(matrix44Buffer);
 		glUniformMatrix4fv(viewMatLoc, false, matrix44Buffer);
 	}
 
 	public void setWorldMatrix(Matrix4f mat) {
+		orthoValid = false;
 		mat.get(matrix44Buffer);
 		glUniformMatrix4fv(worldMatLoc, false, matrix44Buffer);
 	}
@@ -237,4 +290,63 @@ public class GenericShader {
 	public int getProgram() {
 		return id;
 	}
+
+	/**
+	 * A uniform of a shader program. Remembers the last uploaded value and skips
+	 * uploading it again. The program has to be bound when a value is set.
+	 */
+	public static class Uniform {
+		private final int location;
+		private final float[] value = new float[4];
+		private int components;
+
+		Uniform(int location) {
+			this.location = location;
+		}
+
+		public int getLocation() {
+			return location;
+		}
+
+		public void set(float x) {
+			if (location == -1 || (components == 1 && value[0] == x))
+				return;
+			GL20.glUniform1f(location, x);
+			store(1, x, 0, 0, 0);
+		}
+
+		public void set(float x, float y) {
+			if (location == -1 || (components == 2 && value[0] == x && value[1] == y))
+				return;
+			GL20.glUniform2f(location, x, y);
+			store(2, x, y, 0, 0);
+		}
+
+		public void set(float x, float y, float z, float w) {
+			if (location == -1 || (components == 4 && value[0] == x && value[1] == y && value[2] == z && value[3] == w))
+				return;
+			GL20.glUniform4f(location, x, y, z, w);
+			store(4, x, y, z, w);
+		}
+
+		/**
+		 * Sets an integer uniform, e.g. a sampler.
+		 * 
+		 * @param x
+		 */
+		public void set(int x) {
+			if (location == -1 || (components == -1 && value[0] == x))
+				return;
+			GL20.glUniform1i(location, x);
+			store(-1, x, 0, 0, 0);
+		}
+
+		private void store(int components, float x, float y, float z, float w) {
+			this.components = components;
+			value[0] = x;
+			value[1] = y;
+			value[2] = z;
+			value[3] = w;
+		}
+	}
 }
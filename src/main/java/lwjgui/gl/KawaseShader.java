@@ -0,0 +1,44 @@
+package lwjgui.gl;
+
+/**
+ * One pass of a dual Kawase blur. Downsample passes halve the size of the image, upsample passes double it again.
+ */
+public class KawaseShader extends GenericShader {
+	private final Uniform texelSize;
+	private final Uniform texScale;
+	private final Uniform offset;
+
+	/**
+	 * @param upsample whether this is an upsample pass
+	 * @param legacy whether to use the shaders for legacy OpenGL
+	 */
+	public KawaseShader(boolean upsample, boolean legacy) {
+		super(
+			KawaseShader.class.getResource(legacy ? "blur_vertOld.glsl" : "blur_vert.glsl"),
+			KawaseShader.class.getResource("kawase_" + (upsample ? "up" : "down") + "_frag" + (legacy ? "Old" : "") + ".glsl")
+		);
+
+		texelSize = getUniform("uTexelSize");
+		texScale = getUniform("uTexScale");
+		offset = getUniform("uOffset");
+	}
+
+	/**
+	 * Sets the source of the pass. Only its lower left part of the supplied size is sampled.
+	 * @param source
+	 * @param width
+	 * @param height
+	 */
+	public void setSource(OffscreenBuffer source, int width, int height) {
+		texelSize.set(1f / source.getWidth(), 1f / source.getHeight());
+		texScale.set(width / (float) source.getWidth(), height / (float) source.getHeight());
+	}
+
+	/**
+	 * Sets the distance of the samples in half source texels.
+	 * @param offset
+	 */
+	public void setOffset(float offset) {
+		this.offset.set(offset);
+	}
+}
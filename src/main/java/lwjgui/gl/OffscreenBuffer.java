@@ -13,11 +13,22 @@ public class OffscreenBuffer {
 	private int texId = 0;
 	private int fboId = 0;
 	private int renderId = 0;
+	private final boolean depth;
 	protected boolean quadDirty = true;
 	protected TexturedQuad quad = null;
 	protected GenericShader quadShader = null;
 	
 	public OffscreenBuffer(int width, int height) {
+		this(width, height, true);
+	}
+	
+	/**
+	 * @param width
+	 * @param height
+	 * @param depth whether to attach a depth buffer
+	 */
+	public OffscreenBuffer(int width, int height, boolean depth) {
+		this.depth = depth;
 		
 		if (width <= 0 || height <= 0) {
 			throw new IllegalArgumentException(String.format("invalid size: %dx%d", width, height));
@@ -39,6 +50,14 @@ public class OffscreenBuffer {
 		return height;
 	}
 	
+	/**
+	 * Returns whether this buffer has a depth attachment.
+	 * @return
+	 */
+	public boolean hasDepth() {
+		return depth;
+	}
+	
 	public boolean resize(int width, int height) {
 		if (this.width == width && this.height == height) {
 			return false;
@@ -47,17 +66,7 @@ public class OffscreenBuffer {
 		this.width = width;
 		this.height = height;
 	
-		// resize the texture
-		if (texId != 0) {
-			GL11.glDeleteTextures(texId);
-			GL30.glDeleteFramebuffers(fboId);
-			GL30.glDeleteRenderbuffers(renderId);
-			texId = 0;
-			fboId = 0;
-			renderId = 0;
-		}
-		
-		// Create texture
+		// Create texture. An existing texture and depth buffer are reallocated in place and stay attached.
 		if ( texId == 0 )
 			texId = GL11.glGenTextures();
 		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texId);
@@ -76,11 +85,13 @@ public class OffscreenBuffer {
 		GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL11.GL_TEXTURE_2D, texId, 0);
 		
 		// The depth buffer
-		if ( renderId == 0 )
-			renderId = GL30.glGenRenderbuffers();
-		GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, renderId);
-		GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL11.GL_DEPTH_COMPONENT, width, height);
-		GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_ATTACHMENT, GL30.GL_RENDERBUFFER, renderId);
+		if ( depth ) {
+			if ( renderId == 0 )
+				renderId = GL30.glGenRenderbuffers();
+			GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, renderId);
+			GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL11.GL_DEPTH_COMPONENT, width, height);
+			GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_ATTACHMENT, GL30.GL_RENDERBUFFER, renderId);
+		}
 		
 		// remove the old quad
 		quadDirty = true;
@@ -88,6 +99,9 @@ public class OffscreenBuffer {
 
 		GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
 		
+		// The objects above were bound directly
+		GLState.current().invalidate();
+		
 		return true;
 	}
 	
@@ -101,14 +115,15 @@ public class OffscreenBuffer {
 	
 	private int unbindTo = -1;
 	public void bind() {
-		unbindTo = GL11.glGetInteger(GL30.GL_FRAMEBUFFER_BINDING);
-		GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, getFboId());
+		GLState state = GLState.current();
+		unbindTo = state.getFramebuffer();
+		state.bindFramebuffer(getFboId());
 	}
 	
 	public void unbind() {
 		if ( unbindTo == -1 )
 			return;
-		GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, unbindTo);
+		GLState.current().bindFramebuffer(unbindTo);
 	}
 	
 	public void render(Context context) {
@@ -147,6 +162,9 @@ public class OffscreenBuffer {
 		if (fboId != 0) {
 			GL30.glDeleteFramebuffers(fboId);
 		}
+		if (renderId != 0) {
+			GL30.glDeleteRenderbuffers(renderId);
+		}
 		if (quad != null) {
 			quad.cleanup();
 		}
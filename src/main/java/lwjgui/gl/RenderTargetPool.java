@@ -0,0 +1,113 @@
+package lwjgui.gl;
+
+import java.util.ArrayList;
+
+/**
+ * Pool of offscreen render targets of a context.<br>
+ * Targets are allocated in buckets of {@value #GRANULARITY} pixels, so a user whose size changes slightly (e.g. while a
+ * split pane divider is dragged or the window is resized) keeps its target and only renders into the part it needs,
+ * see {@link #fit(OffscreenBuffer, int, int, boolean)}. Released targets are handed out again and deleted once they
+ * were not used for {@value #EVICT_FRAMES} frames.
+ */
+public class RenderTargetPool {
+	private static final int GRANULARITY = 64;
+	private static final int EVICT_FRAMES = 120;
+
+	private final ArrayList<OffscreenBuffer> free = new ArrayList<OffscreenBuffer>();
+	private final ArrayList<Long> released = new ArrayList<Long>();
+	private long frame;
+
+	/**
+	 * Returns a target that is at least as large as requested. The content of the target is undefined.
+	 * @param width
+	 * @param height
+	 * @param depth whether the target needs a depth attachment
+	 * @return
+	 */
+	public OffscreenBuffer lease(int width, int height, boolean depth) {
+		int best = -1;
+		for (int i = 0; i < free.size(); i++) {
+			OffscreenBuffer buffer = free.get(i);
+			if ( !fits(buffer, width, height, depth) )
+				continue;
+			if ( best == -1 || area(buffer) < area(free.get(best)) )
+				best = i;
+		}
+
+		if ( best != -1 ) {
+			released.remove(best);
+			return free.remove(best);
+		}
+
+		return new OffscreenBuffer(bucket(width), bucket(height), depth);
+	}
+
+	/**
+	 * Hands a target back to the pool. It must not be used afterwards.
+	 * @param buffer
+	 */
+	public void release(OffscreenBuffer buffer) {
+		if ( buffer == null )
+			return;
+
+		free.add(buffer);
+		released.add(frame);
+	}
+
+	/**
+	 * Returns the current target if it still fits the requested size, otherwise releases it and leases another one.
+	 * Targets that are much larger than needed are exchanged as well, so shrinking frees memory.
+	 * @param current the target leased so far, may be null
+	 * @param width
+	 * @param height
+	 * @param depth
+	 * @return
+	 */
+	public OffscreenBuffer fit(OffscreenBuffer current, int width, int height, boolean depth) {
+		if ( current != null && fits(current, width, height, depth) )
+			return current;
+
+		release(current);
+		return lease(width, height, depth);
+	}
+
+	/**
+	 * Deletes targets that were not leased for a while. Called once the frame is finished.
+	 */
+	public void endFrame() {
+		for (int i = free.size() - 1; i >= 0; i--) {
+			if ( frame - released.get(i) < EVICT_FRAMES )
+				continue;
+
+			free.remove(i).cleanup();
+			released.remove(i);
+		}
+
+		frame++;
+	}
+
+	public void dispose() {
+		for (int i = 0; i < free.size(); i++)
+			free.get(i).cleanup();
+		free.clear();
+		released.clear();
+	}
+
+	private static boolean fits(OffscreenBuffer buffer, int width, int height, boolean depth) {
+		if ( depth && !buffer.hasDepth() )
+			return false;
+
+		// Large enough, but not more than a bucket larger than needed
+		int w = buffer.getWidth();
+		int h = buffer.getHeight();
+		return w >= width && h >= height && w <= bucket(width) + GRANULARITY && h <= bucket(height) + GRANULARITY;
+	}
+
+	private static int bucket(int size) {
+		return Math.max(1, (size + GRANULARITY - 1) / GRANULARITY) * GRANULARITY;
+	}
+
+	private static long area(OffscreenBuffer buffer) {
+		return (long) buffer.getWidth() * buffer.getHeight();
+	}
+}
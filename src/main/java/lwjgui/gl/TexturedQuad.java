@@ -19,7 +19,6 @@ import static org.lwjgl.system.MemoryStack.stackPush;
 import java.nio.FloatBuffer;
 
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL30;
 
@@ -94,25 +93,23 @@ public class TexturedQuad {
 			glBindVertexArray(0);
 		}
 		stackPop();
+
+		// The vertex array was bound directly
+		GLState.current().invalidateObjects();
 	}
 
 	public void render() {
 		GL11.glDisable(GL11.GL_CULL_FACE);
 		
 		// bind stuff
-		GL30.glBindVertexArray(vaoId);
+		GLState state = GLState.current();
+		state.bindVertexArray(vaoId);
 		if ( texId > -1 ) {
-			GL13.glActiveTexture(GL13.GL_TEXTURE0);
-			GL11.glBindTexture(GL11.GL_TEXTURE_2D, texId);
+			state.bindTexture(texId);
 		}
 
 		// draw it!
-		glBindVertexArray(vaoId);
 		glDrawArrays(GL_TRIANGLES, 0, 6);
-
-		// unbind things
-		GL30.glBindVertexArray(0);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
 	}
 
 	public void cleanup() {
@@ -31,7 +31,15 @@ import lwjgui.LWJGUIApplication;
 import lwjgui.collections.ObservableList;
 import lwjgui.event.Event;
 import lwjgui.event.EventHelper;
+import lwjgui.event.EventPool;
+import lwjgui.event.KeyEvent;
+import lwjgui.event.MouseEvent;
+import lwjgui.event.ScrollEvent;
+import lwjgui.event.TypeEvent;
 import lwjgui.font.Font;
+import lwjgui.gl.BoxShadowBatch;
+import lwjgui.gl.BoxShadowCache;
+import lwjgui.gl.RenderTargetPool;
 import lwjgui.glfw.input.MouseHandler;
 import lwjgui.scene.control.PopupWindow;
 import lwjgui.scene.image.Image;
@@ -43,6 +51,11 @@ public class Context {
 	private Window window;
 
 	private long nvgContext;
+	private long nvgAccessCount;
+
+	private BoxShadowBatch boxShadowBatch;
+	private BoxShadowCache boxShadowCache;
+	private RenderTargetPool renderTargetPool;
 
 	private boolean modernOpenGL;
 	private boolean isCore;
@@ -51,6 +64,13 @@ public class Context {
 	private Node hovered = null;
 	private Node lastPressed = null;
 
+	// Reused by the input dispatch of this window
+	private final EventPool<Event> events = new EventPool<>(Event::new);
+	private final EventPool<MouseEvent> mouseEvents = new EventPool<>(() -> new MouseEvent(0, 0, 0));
+	private final EventPool<KeyEvent> keyEvents = new EventPool<>(() -> new KeyEvent(0, 0, 0, 0, false, false, false));
+	private final EventPool<TypeEvent> typeEvents = new EventPool<>(() -> new TypeEvent(0));
+	private final EventPool<ScrollEvent> scrollEvents = new EventPool<>(() -> new ScrollEvent(0, 0));
+
 	protected Bounds clipBounds;
 
 	private List<Stylesheet> currentSheets = new ArrayList<>();
@@ -98,6 +118,18 @@ public class Context {
 		fontBuffers.clear();
 		loadedImages.clear();
 		currentSheets.clear();
+		if (boxShadowBatch != null) {
+			boxShadowBatch.dispose();
+			boxShadowBatch = null;
+		}
+		if (boxShadowCache != null) {
+			boxShadowCache.dispose();
+			boxShadowCache = null;
+		}
+		if (renderTargetPool != null) {
+			renderTargetPool.dispose();
+			renderTargetPool = null;
+		}
 		if (this.isModernOpenGL()) {
 			NanoVGGL3.nvgDelete(nvgContext);
 		} else {
@@ -138,13 +170,37 @@ public class Context {
 	private Node lastHovered = null;
 	protected boolean hoveringOverPopup;
 
+	private HitTestIndex hitTestIndex = new HitTestIndex();
+	private float lastHoverX = Float.NaN;
+	private float lastHoverY = Float.NaN;
+
 	private void mouseHover() {
 		// Get scene
 		Scene scene = window.getScene();
+		if (scene == null)
+			return;
+
+		// Hover can only change if the mouse moved or the layout changed
+		MouseHandler mh = window.getMouseHandler();
+		float mouseX = mh.getX();
+		float mouseY = mh.getY();
+		if (!scene.hitTestStale && mouseX == lastHoverX && mouseY == lastHoverY)
+			return;
+		lastHoverX = mouseX;
+		lastHoverY = mouseY;
+
+		// Rebuild the parts of the hit test index that changed
+		if (scene.hitTestStale) {
+			hitTestIndex.update(scene.getRoot());
+			for (int i = 0; i < scene.getPopups().size(); i++) {
+				hitTestIndex.update(scene.getPopups().get(i));
+			}
+			scene.hitTestStale = false;
+		}
 
 		// Calculate current hover
 		hoveringOverPopup = false;
-		hovered = calculateHoverRecursive(null, scene);
+		hovered = hitTestIndex.pick(scene.getRoot(), mouseX, mouseY);
 		Node last = hovered;
 		hovered = calculateHoverPopups(scene);
 
@@ -177,7 +233,7 @@ public class Context {
 		for (int i = 0; i < popups.size(); i++) {
 			PopupWindow popup = popups.get(i);
 			if (popup.contains(mh.getX(), mh.getY())) {
-				return calculateHoverRecursive(null, popup);
+				return hitTestIndex.pick(popup, mh.getX(), mh.getY());
 			}
 		}
 
@@ -237,9 +293,63 @@ public class Context {
 	 * @return
 	 */
 	public long getNVG() {
+		nvgAccessCount++;
 		return nvgContext;
 	}
 
+	/**
+	 * Returns how often {@link #getNVG()} was called. Used to find out whether
+	 * anything was drawn with NanoVG in between two calls.
+	 * 
+	 * @return
+	 */
+	public long getNVGAccessCount() {
+		return nvgAccessCount;
+	}
+
+	/**
+	 * Returns the batch that draws the box shadows of this context on core
+	 * profiles.
+	 * 
+	 * @return
+	 */
+	public BoxShadowBatch getBoxShadowBatch() {
+		if (boxShadowBatch == null)
+			boxShadowBatch = new BoxShadowBatch(this);
+		return boxShadowBatch;
+	}
+
+	/**
+	 * Returns the cache of the box shadow textures of this context.
+	 * 
+	 * @return
+	 */
+	public BoxShadowCache getBoxShadowCache() {
+		if (boxShadowCache == null)
+			boxShadowCache = new BoxShadowCache(this);
+		return boxShadowCache;
+	}
+
+	/**
+	 * Returns the pool of the offscreen render targets of this context.
+	 * 
+	 * @return
+	 */
+	public RenderTargetPool getRenderTargetPool() {
+		if (renderTargetPool == null)
+			renderTargetPool = new RenderTargetPool();
+		return renderTargetPool;
+	}
+
+	/**
+	 * Draws the queued box shadows. Must be called before NanoVG is flushed with
+	 * {@link NanoVG#nvgEndFrame(long)}.
+	 */
+	public void flushBoxShadows() {
+		if (boxShadowBatch != null)
+			boxShadowBatch.flush();
+	}
+
 	/**
 	 * Tests if the given node is the current selected node.
 	 * 
@@ -276,19 +386,49 @@ public class Context {
 		if (node == this.selected)
 			return;
 
-		Node previouslySelected = this.getSelected();
-		if (previouslySelected != null) {
-			EventHelper.fireEvent(previouslySelected.getDeselectedEventInternal(), new Event());
-			EventHelper.fireEvent(previouslySelected.getDeselectedEvent(), new Event());
-		}
+		Event event = events.obtain();
+		try {
+			Node previouslySelected = this.getSelected();
+			if (previouslySelected != null) {
+				previouslySelected.requestLayout();
+				EventHelper.fireEvent(previouslySelected.getDeselectedEventInternal(), event);
+				event.reset();
+				EventHelper.fireEvent(previouslySelected.getDeselectedEvent(), event);
+				event.reset();
+			}
 
-		this.selected = node;
-		if (this.selected != null) {
-			EventHelper.fireEvent(this.selected.getSelectedEventInternal(), new Event());
-			EventHelper.fireEvent(this.selected.getSelectedEvent(), new Event());
+			this.selected = node;
+			if (this.selected != null) {
+				this.selected.requestLayout();
+				EventHelper.fireEvent(this.selected.getSelectedEventInternal(), event);
+				event.reset();
+				EventHelper.fireEvent(this.selected.getSelectedEvent(), event);
+			}
+		} finally {
+			events.free(event);
 		}
 	}
 
+	EventPool<Event> getEvents() {
+		return events;
+	}
+
+	EventPool<MouseEvent> getMouseEvents() {
+		return mouseEvents;
+	}
+
+	EventPool<KeyEvent> getKeyEvents() {
+		return keyEvents;
+	}
+
+	EventPool<TypeEvent> getTypeEvents() {
+		return typeEvents;
+	}
+
+	EventPool<ScrollEvent> getScrollEvents() {
+		return scrollEvents;
+	}
+
 	/**
 	 * Returns the current hovered node.
 	 * 
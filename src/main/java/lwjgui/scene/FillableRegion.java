@@ -9,6 +9,9 @@ public abstract class FillableRegion extends Region {
 	 * @param fill
 	 */
 	public void setFillToParentWidth( boolean fill ) {
+		if ( this.fillToParentWidth != fill )
+			requestLayout();
+		
 		this.fillToParentWidth = fill;
 	}
 
@@ -17,6 +20,9 @@ public abstract class FillableRegion extends Region {
 	 * @param fill
 	 */
 	public void setFillToParentHeight( boolean fill ) {
+		if ( this.fillToParentHeight != fill )
+			requestLayout();
+		
 		this.fillToParentHeight = fill;
 	}
 	
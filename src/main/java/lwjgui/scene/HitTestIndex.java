@@ -0,0 +1,239 @@
+package lwjgui.scene;
+
+import lwjgui.collections.ObservableList;
+
+/**
+ * Per-window index used to find the node under the mouse.<br>
+ * Every node caches its hit region (its own bounds joined with the bounds of its direct children, like
+ * {@link Node#calculateNodeBounds()}) together with the children that can be picked. Only subtrees invalidated by
+ * layout are rebuilt. Nodes with many children additionally get a uniform grid, so that picking among thousands of
+ * siblings does not have to scan all of them.
+ */
+class HitTestIndex {
+	private static final int GRID_THRESHOLD = 32;
+	private static final Node[] NO_CHILDREN = new Node[0];
+
+	/**
+	 * Brings the cached hit regions of the supplied subtree up to date.
+	 * @param root
+	 */
+	public void update(Node root) {
+		if ( root != null )
+			refresh(root);
+	}
+
+	/**
+	 * Returns the top-most, deepest node under the supplied point. Returns null if nothing is hit.
+	 * @param root
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public Node pick(Node root, double x, double y) {
+		if ( root == null )
+			return null;
+
+		return pick(null, root, x, y);
+	}
+
+	private void refresh(Node node) {
+		Entry entry = node.hitTestEntry;
+		if ( entry == null ) {
+			entry = new Entry();
+			node.hitTestEntry = entry;
+		} else if ( !node.hitTestStale && entry.matches(node) ) {
+			return;
+		}
+		node.hitTestStale = false;
+
+		// Own bounds
+		entry.x = node.getX();
+		entry.y = node.getY();
+		entry.width = node.getWidth();
+		entry.height = node.getHeight();
+		entry.minX = entry.x;
+		entry.minY = entry.y;
+		entry.maxX = entry.x + entry.width;
+		entry.maxY = entry.y + entry.height;
+
+		// Hit region is extended by the direct children
+		for (int i = 0; i < node.children.size(); i++) {
+			Node child = node.children.get(i);
+			if ( child == null )
+				continue;
+
+			entry.minX = Math.min(entry.minX, child.getX());
+			entry.minY = Math.min(entry.minY, child.getY());
+			entry.maxX = Math.max(entry.maxX, child.getX() + child.getWidth());
+			entry.maxY = Math.max(entry.maxY, child.getY() + child.getHeight());
+		}
+
+		// Pickable children
+		ObservableList<Node> children = node.getChildren();
+		int count = children.size();
+		if ( entry.children.length < count )
+			entry.children = new Node[count];
+
+		int amount = 0;
+		for (int i = 0; i < count; i++) {
+			Node child = children.get(i);
+			if ( child == null )
+				continue;
+
+			refresh(child);
+			entry.children[amount++] = child;
+		}
+		for (int i = amount; i < entry.childCount; i++)
+			entry.children[i] = null;
+		entry.childCount = amount;
+
+		entry.grid = amount >= GRID_THRESHOLD ? new Grid(entry) : null;
+	}
+
+	private Node pick(Node parent, Node node, double x, double y) {
+		// Ignore if unclickable or not visible
+		if ( node.isMouseTransparent() || !node.isVisible() )
+			return parent;
+
+		// Not indexed yet
+		Entry entry = node.hitTestEntry;
+		if ( entry == null )
+			return parent;
+
+		// If mouse is out of our bounds, we're not clickable
+		if ( !entry.contains(x, y) )
+			return parent;
+
+		// Check children, top-most first
+		if ( entry.grid != null ) {
+			int cell = entry.grid.getCell(x, y);
+			if ( cell >= 0 ) {
+				int[] candidates = entry.grid.cells[cell];
+				for (int i = entry.grid.cellSizes[cell] - 1; i >= 0; i--) {
+					Node ret = pick(node, entry.children[candidates[i]], x, y);
+					if ( ret != null && ret != node )
+						return ret;
+				}
+			}
+		} else {
+			for (int i = entry.childCount - 1; i >= 0; i--) {
+				Node ret = pick(node, entry.children[i], x, y);
+				if ( ret != null && ret != node )
+					return ret;
+			}
+		}
+
+		return node;
+	}
+
+	static class Entry {
+		private double x;
+		private double y;
+		private double width = -1;
+		private double height = -1;
+
+		private double minX;
+		private double minY;
+		private double maxX;
+		private double maxY;
+
+		private Node[] children = NO_CHILDREN;
+		private int childCount;
+		private Grid grid;
+
+		private boolean matches(Node node) {
+			return x == node.getX() && y == node.getY() && width == node.getWidth() && height == node.getHeight();
+		}
+
+		private boolean contains(double px, double py) {
+			return px > minX && px <= maxX && py > minY && py <= maxY;
+		}
+	}
+
+	/**
+	 * Uniform grid over the hit regions of a node's children. Each cell holds the indices of the overlapping
+	 * children in ascending (paint) order.
+	 */
+	private static class Grid {
+		private final double originX;
+		private final double originY;
+		private final double cellWidth;
+		private final double cellHeight;
+		private final int columns;
+		private final int rows;
+
+		private final int[][] cells;
+		private final int[] cellSizes;
+
+		Grid(Entry entry) {
+			double minX = Double.MAX_VALUE;
+			double minY = Double.MAX_VALUE;
+			double maxX = -Double.MAX_VALUE;
+			double maxY = -Double.MAX_VALUE;
+			for (int i = 0; i < entry.childCount; i++) {
+				Entry child = entry.children[i].hitTestEntry;
+				minX = Math.min(minX, child.minX);
+				minY = Math.min(minY, child.minY);
+				maxX = Math.max(maxX, child.maxX);
+				maxY = Math.max(maxY, child.maxY);
+			}
+
+			int size = Math.max(1, (int) Math.ceil(Math.sqrt(entry.childCount / 4d)));
+			this.originX = minX;
+			this.originY = minY;
+			this.columns = size;
+			this.rows = size;
+			this.cellWidth = Math.max(1, (maxX - minX) / columns);
+			this.cellHeight = Math.max(1, (maxY - minY) / rows);
+			this.cells = new int[columns * rows][];
+			this.cellSizes = new int[columns * rows];
+
+			for (int i = 0; i < entry.childCount; i++) {
+				Entry child = entry.children[i].hitTestEntry;
+				int startColumn = column(child.minX);
+				int endColumn = column(child.maxX);
+				int startRow = row(child.minY);
+				int endRow = row(child.maxY);
+
+				for (int r = startRow; r <= endRow; r++) {
+					for (int c = startColumn; c <= endColumn; c++) {
+						add(r * columns + c, i);
+					}
+				}
+			}
+		}
+
+		private void add(int cell, int index) {
+			int[] list = cells[cell];
+			if ( list == null ) {
+				list = new int[4];
+				cells[cell] = list;
+			} else if ( cellSizes[cell] == list.length ) {
+				int[] t = new int[list.length * 2];
+				System.arraycopy(list, 0, t, 0, list.length);
+				list = t;
+				cells[cell] = list;
+			}
+			list[cellSizes[cell]++] = index;
+		}
+
+		private int column(double x) {
+			return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - originX) / cellWidth)));
+		}
+
+		private int row(double y) {
+			return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - originY) / cellHeight)));
+		}
+
+		/**
+		 * Returns the cell containing the point, or -1 if the point lies outside of every child.
+		 */
+		int getCell(double x, double y) {
+			if ( x < originX || y < originY || x > originX + cellWidth * columns || y > originY + cellHeight * rows )
+				return -1;
+
+			int cell = row(y) * columns + column(x);
+			return cellSizes[cell] == 0 ? -1 : cell;
+		}
+	}
+}
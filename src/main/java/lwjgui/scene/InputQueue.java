@@ -0,0 +1,226 @@
+package lwjgui.scene;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Raw input of a window. The GLFW callbacks on the main thread push it and the window thread polls it at the start
+ * of each frame.<br>
+ * The queue is a lock-free ring buffer for exactly one producer and one consumer. Events are stored in primitive
+ * arrays, so queueing and polling does not allocate. Consecutive cursor positions are coalesced into the latest one
+ * and consecutive scroll deltas are summed; they are published by {@link #flush()} or when another event is pushed,
+ * so the order of all events is kept.
+ */
+class InputQueue {
+	static final int KEY = 1;
+	static final int CHAR = 2;
+	static final int MOUSE_BUTTON = 3;
+	static final int CURSOR_POS = 4;
+	static final int SCROLL = 5;
+
+	private static final int INTS = 4;
+	private static final int DOUBLES = 2;
+
+	private final int[] types;
+	private final int[] ints;
+	private final double[] doubles;
+	private final int mask;
+
+	// Next event the consumer reads. Only written by the consumer.
+	private final AtomicLong head = new AtomicLong();
+	// Next slot the producer writes. Only written by the producer.
+	private final AtomicLong tail = new AtomicLong();
+
+	// Producer state: coalesced events that were not published yet
+	private boolean cursorPending;
+	private double cursorX, cursorY;
+	private boolean scrollPending;
+	private double scrollX, scrollY;
+	// Producer state: events that did not fit while the consumer was stalled
+	private final Backlog backlog = new Backlog();
+
+	// Consumer state: contents of the event returned by the last poll()
+	int type;
+	int arg0, arg1, arg2, arg3;
+	double x, y;
+
+	/**
+	 * @param capacity capacity of the ring, rounded up to a power of two
+	 */
+	InputQueue(int capacity) {
+		int length = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		types = new int[length];
+		ints = new int[length * INTS];
+		doubles = new double[length * DOUBLES];
+		mask = length - 1;
+	}
+
+	/**
+	 * Queues an event. Producer only.
+	 */
+	void push(int type, int arg0, int arg1, int arg2, int arg3, double x, double y) {
+		flush();
+		offer(type, arg0, arg1, arg2, arg3, x, y);
+	}
+
+	/**
+	 * Queues a cursor position. It replaces the previous one if nothing else was pushed in between. Producer only.
+	 */
+	void pushCursorPos(double x, double y) {
+		if ( scrollPending )
+			flush();
+
+		cursorPending = true;
+		cursorX = x;
+		cursorY = y;
+	}
+
+	/**
+	 * Queues a scroll delta. It is added to the previous one if nothing else was pushed in between. Producer only.
+	 */
+	void pushScroll(double dx, double dy) {
+		if ( cursorPending )
+			flush();
+
+		if ( !scrollPending ) {
+			scrollPending = true;
+			scrollX = 0;
+			scrollY = 0;
+		}
+		scrollX += dx;
+		scrollY += dy;
+	}
+
+	/**
+	 * Publishes the coalesced cursor and scroll events. Producer only.
+	 * @return whether any event was published
+	 */
+	boolean flush() {
+		boolean published = false;
+		if ( cursorPending ) {
+			cursorPending = false;
+			offer(CURSOR_POS, 0, 0, 0, 0, cursorX, cursorY);
+			published = true;
+		}
+		if ( scrollPending ) {
+			scrollPending = false;
+			offer(SCROLL, 0, 0, 0, 0, scrollX, scrollY);
+			published = true;
+		}
+		if ( !backlog.isEmpty() ) {
+			drainBacklog();
+			published = true;
+		}
+		return published;
+	}
+
+	private void offer(int type, int arg0, int arg1, int arg2, int arg3, double x, double y) {
+		if ( !backlog.isEmpty() )
+			drainBacklog();
+
+		if ( !backlog.isEmpty() || !write(type, arg0, arg1, arg2, arg3, x, y) )
+			backlog.add(type, arg0, arg1, arg2, arg3, x, y);
+	}
+
+	private void drainBacklog() {
+		while ( !backlog.isEmpty() ) {
+			int i = backlog.start;
+			int[] ints = backlog.ints;
+			double[] doubles = backlog.doubles;
+			if ( !write(ints[i * 5], ints[i * 5 + 1], ints[i * 5 + 2], ints[i * 5 + 3], ints[i * 5 + 4], doubles[i * DOUBLES], doubles[i * DOUBLES + 1]) )
+				return;
+			backlog.remove();
+		}
+	}
+
+	private boolean write(int type, int arg0, int arg1, int arg2, int arg3, double x, double y) {
+		long t = tail.get();
+		if ( t - head.get() > mask )
+			return false; // Full
+
+		int index = (int) t & mask;
+		types[index] = type;
+		ints[index * INTS] = arg0;
+		ints[index * INTS + 1] = arg1;
+		ints[index * INTS + 2] = arg2;
+		ints[index * INTS + 3] = arg3;
+		doubles[index * DOUBLES] = x;
+		doubles[index * DOUBLES + 1] = y;
+
+		// Publish the slot to the consumer
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * Removes the oldest published event and copies it into the fields of this queue. Consumer only.
+	 * @return false if the queue was empty
+	 */
+	boolean poll() {
+		long h = head.get();
+		if ( h == tail.get() )
+			return false;
+
+		int index = (int) h & mask;
+		type = types[index];
+		arg0 = ints[index * INTS];
+		arg1 = ints[index * INTS + 1];
+		arg2 = ints[index * INTS + 2];
+		arg3 = ints[index * INTS + 3];
+		x = doubles[index * DOUBLES];
+		y = doubles[index * DOUBLES + 1];
+
+		// Hand the slot back to the producer
+		head.lazySet(h + 1);
+		return true;
+	}
+
+	/**
+	 * Returns whether no published event is waiting. Consumer only.
+	 */
+	boolean isEmpty() {
+		return head.get() == tail.get();
+	}
+
+	/**
+	 * Growable list of events waiting for space in the ring. Only touched by the producer.
+	 */
+	private static class Backlog {
+		private int[] ints = new int[0];
+		private double[] doubles = new double[0];
+		private int start;
+		private int end;
+
+		boolean isEmpty() {
+			return start == end;
+		}
+
+		void add(int type, int arg0, int arg1, int arg2, int arg3, double x, double y) {
+			if ( end * 5 == ints.length ) {
+				int length = Math.max(16, end * 2);
+				int[] ints = new int[length * 5];
+				double[] doubles = new double[length * DOUBLES];
+				System.arraycopy(this.ints, 0, ints, 0, this.ints.length);
+				System.arraycopy(this.doubles, 0, doubles, 0, this.doubles.length);
+				this.ints = ints;
+				this.doubles = doubles;
+			}
+
+			ints[end * 5] = type;
+			ints[end * 5 + 1] = arg0;
+			ints[end * 5 + 2] = arg1;
+			ints[end * 5 + 3] = arg2;
+			ints[end * 5 + 4] = arg3;
+			doubles[end * DOUBLES] = x;
+			doubles[end * DOUBLES + 1] = y;
+			end++;
+		}
+
+		void remove() {
+			start++;
+			if ( start == end ) {
+				start = 0;
+				end = 0;
+			}
+		}
+	}
+}
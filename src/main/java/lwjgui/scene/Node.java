@@ -21,6 +21,7 @@ import lwjgui.geometry.Insets;
 import lwjgui.geometry.Pos;
 import lwjgui.geometry.Resizable;
 import lwjgui.geometry.VPos;
+import lwjgui.style.ComputedStyle;
 import lwjgui.style.StyleTransition;
 import lwjgui.style.Stylesheet;
 import lwjgui.style.StylesheetCompileError;
@@ -50,10 +51,31 @@ public abstract class Node implements Resizable {
 	private String localStyle;
 	private Stylesheet localStylesheet;
 	private Map<String, StyleTransition> styleTransitions = new HashMap<>();
+	private ComputedStyle computedStyle = new ComputedStyle();
+	private boolean styleApplyPending = true;
+	boolean awaitingStyleTransitions;
 
 	private boolean initialized;
 	private boolean visible = true;
 
+	/*
+	 * Layout invalidation
+	 */
+	private boolean layoutDirty = true;
+	private boolean layoutInvalidated;
+	private boolean positioning;
+	private boolean laidOut;
+	private double lastLayoutWidth = -1;
+	private double lastLayoutHeight = -1;
+	private double lastParentWidth = -1;
+	private double lastParentHeight = -1;
+	
+	/*
+	 * Hit testing
+	 */
+	HitTestIndex.Entry hitTestEntry;
+	boolean hitTestStale = true;
+
 	/*
 	 * Event Handlers
 	 */
@@ -99,10 +121,14 @@ public abstract class Node implements Resizable {
 	protected EventHandler<KeyEvent> keyReleasedEvent;
 	protected EventHandler<KeyEvent> keyReleasedEventInternal;
 	
+	protected EventHandler<KeyEvent> keyFilterEvent;
+	protected EventHandler<TypeEvent> textInputFilterEvent;
+	
 	/*
 	 * Other settings
 	 */
 	private boolean mouseTransparent = false;
+	private boolean globalKeyInput = false;
 	protected boolean flag_clip = false;
 	protected boolean mousePressed = false;
 	protected boolean mouseDragged = false;
@@ -114,15 +140,19 @@ public abstract class Node implements Resizable {
 		children.setAddCallback((element) -> {
 			if (!element.initialized)
 				element.init();
+			requestLayout();
 		});
 		children.setRemoveCallback((element) -> {
 			if (element.initialized)
 				element.dispose();
+			requestLayout();
 		});
 	}
 
 	protected void init() {
 		initialized = true;
+		if ( globalKeyInput && window != null )
+			window.setGlobalKeyInput(this, true);
 		for (int i = 0; i < children.size(); i++) {
 			Node c = children.get(i);
 			if (!c.initialized)
@@ -132,6 +162,8 @@ public abstract class Node implements Resizable {
 
 	public void dispose() {
 		initialized = false;
+		if ( globalKeyInput && window != null )
+			window.setGlobalKeyInput(this, false);
 		for (int i = 0; i < children.size(); i++) {
 			Node c = children.get(i);
 			if (c.initialized)
@@ -140,6 +172,12 @@ public abstract class Node implements Resizable {
 	}
 
 	public void setWindow(Window window) {
+		if ( globalKeyInput && this.window != window ) {
+			if ( this.window != null )
+				this.window.setGlobalKeyInput(this, false);
+			if ( window != null )
+				window.setGlobalKeyInput(this, true);
+		}
 		this.window = window;
 		for (int i = 0; i < children.size(); i++) {
 			children.get(i).setWindow(window);
@@ -171,6 +209,7 @@ public abstract class Node implements Resizable {
 	public void setAbsolutePosition(double x, double y) {
 		this.absolutePosition.set(x,y);
 		computeLocalPosition();
+		invalidateHitTest();
 	}
 	
 	public void offset(double x, double y) {
@@ -188,7 +227,7 @@ public abstract class Node implements Resizable {
 	public void updateChildren() {
 		for (int i = 0; i < children.size(); i++) {
 			Node child = children.get(i);
-			if ( child != null ) {
+			if ( child != null && child.isLayoutRequired(this) ) {
 				child.position(this);
 			}
 		}
@@ -198,24 +237,76 @@ public abstract class Node implements Resizable {
 	 * Repositions only the public facing children
 	 */
 	public void updateChildrenPublic() {
-		for (int i = 0; i < getChildren().size(); i++) {
-			Node child = getChildren().get(i);
-			if ( child != null ) {
+		ObservableList<Node> children = getChildren();
+		for (int i = 0; i < children.size(); i++) {
+			Node child = children.get(i);
+			if ( child != null && child.isLayoutRequired(this) ) {
 				child.position(this);
 			}
 		}
 	}
 	
+	/**
+	 * Re-attaches descendants to their parents after a layout pass. Only subtrees that moved or were laid out are visited.
+	 */
 	protected void updateChildrenLocalRecursive() {
 		for (int i = 0; i < children.size(); i++) {
 			Node child = children.get(i);
 			if ( child != null ) {
-				child.updateFromLocalPosition();
-				child.updateChildrenLocalRecursive();
+				boolean moved = child.updateFromLocalPosition();
+				if ( moved || child.laidOut ) {
+					child.laidOut = false;
+					child.updateChildrenLocalRecursive();
+				}
 			}
 		}	
 	}
 	
+	/**
+	 * Flags this node as needing to be laid out again. The request propagates up to the {@link Scene}, so that the
+	 * next layout pass will walk down to this node. Nodes that are not flagged are skipped by the layout pass as long
+	 * as the space given to them by their parent does not change.
+	 */
+	public void requestLayout() {
+		Node p = this;
+		while ( p != null ) {
+			p.layoutDirty = true;
+			p = p.parent;
+		}
+		
+		if ( window != null )
+			window.requestRedraw();
+	}
+	
+	/**
+	 * Flags the hit test region of this node (and its ancestors) to be rebuilt before the next hover check.
+	 */
+	void invalidateHitTest() {
+		Node p = this;
+		while ( p != null && !p.hitTestStale ) {
+			p.hitTestStale = true;
+			p = p.parent;
+		}
+	}
+	
+	/**
+	 * Returns whether this node has been flagged to be laid out on the next layout pass.
+	 * @return
+	 */
+	public boolean isLayoutDirty() {
+		return this.layoutDirty;
+	}
+	
+	/**
+	 * Returns whether this node needs to be positioned when laid out by the supplied parent.
+	 */
+	private boolean isLayoutRequired(Node parent) {
+		if ( layoutDirty || parent.layoutInvalidated || this.parent != parent )
+			return true;
+		
+		return parent.getWidth() != lastParentWidth || parent.getHeight() != lastParentHeight;
+	}
+	
 	/**
 	 * Computes the local position by comparing the absolute position to the parents absolute position.
 	 */
@@ -232,16 +323,24 @@ public abstract class Node implements Resizable {
 	
 	/**
 	 * Sets absolute position based on local positions.
+	 * @return true if the absolute position changed
 	 */
-	private void updateFromLocalPosition() {
+	private boolean updateFromLocalPosition() {
 		if ( parent == null )
-			return;
+			return false;
 
 		LayoutBounds bounds = parent.getInnerBounds();
 
 		float topLeftX = (float) (parent.getX() + bounds.minX);
 		float topLeftY = (float) (parent.getY() + bounds.minY);
-		absolutePosition.set(localPosition.x+topLeftX, localPosition.y+topLeftY);
+		double x = localPosition.x+topLeftX;
+		double y = localPosition.y+topLeftY;
+		if ( x == absolutePosition.x && y == absolutePosition.y )
+			return false;
+		
+		absolutePosition.set(x, y);
+		invalidateHitTest();
+		return true;
 	}
 	
 	/**
@@ -282,12 +381,24 @@ public abstract class Node implements Resizable {
 	 * @param parent
 	 */
 	protected void position(Node parent) {
+		// Consume the layout request. Anything changed while laying out flags us again.
+		layoutInvalidated = layoutDirty;
+		layoutDirty = false;
+		laidOut = true;
+		invalidateHitTest();
+		if ( parent != null ) {
+			lastParentWidth = parent.getWidth();
+			lastParentHeight = parent.getHeight();
+		}
+		
+		// Check parent. Set before styling so inherited style values come from the new parent.
+		Node oldParent = this.parent;
+		this.parent = parent;
+		
+		styleApplyPending = true;
+		positioning = true;
 		stylePush();
 		{
-			// Check parent
-			Node oldParent = this.parent;
-			this.parent = parent;
-	
 			// If parents change...
 			if ( oldParent != this.parent ) {
 				// Recompute absolute position on parent change
@@ -308,6 +419,18 @@ public abstract class Node implements Resizable {
 			computeAbsolutePosition();
 		}
 		stylePop();
+		positioning = false;
+		layoutInvalidated = false;
+		
+		// Resizing may have overwritten styled values, apply the style again when rendering
+		styleApplyPending = true;
+		
+		// Our children were laid out against our old size, so another pass is needed
+		if ( getWidth() != lastLayoutWidth || getHeight() != lastLayoutHeight ) {
+			lastLayoutWidth = getWidth();
+			lastLayoutHeight = getHeight();
+			requestLayout();
+		}
 	}
 	
 	private HashMap<String, Node> idToNode = new HashMap<>();
@@ -355,17 +478,72 @@ public abstract class Node implements Resizable {
 			if ( this.getStylesheet() != null )
 				context.getCurrentStyling().add(this.getStylesheet());
 			
-			// Apply styling!
-			for (int i = 0; i < context.getCurrentStyling().size(); i++)
-				context.getCurrentStyling().get(i).applyStyling(this);
+			// Match the style again only if something it depends on changed. Inherited values (font size, color...)
+			// come from our parent, which is styled before us.
+			Node parent = this.getParent();
+			if ( computedStyle.update(this, parent == null ? null : parent.getComputedStyle(), context.getCurrentStyling(), this.getStyleLocal()) )
+				styleApplyPending = true;
 			
-			// Apply our local style if it exists
-			if ( this.getStyleLocal() != null ) {
-				this.getStyleLocal().applyStyling(this, "NODESTYLE");
+			// Children are only styled again when they are laid out
+			if ( computedStyle.isChildrenChanged() )
+				restyleChildren();
+			
+			// Apply styling!
+			if ( styleApplyPending ) {
+				computedStyle.apply(this);
+				
+				// Running style transitions ignore new values, so keep applying until they are done. Nodes that are
+				// only styled while laid out are laid out again by the scene once the transitions ended.
+				styleApplyPending = hasActiveStyleTransitions();
+				if ( styleApplyPending && !awaitingStyleTransitions && window.getScene() != null ) {
+					awaitingStyleTransitions = true;
+					window.getScene().awaitStyleTransitions(this);
+				}
 			}
 		}
 	}
 	
+	private void restyleChildren() {
+		if ( positioning ) {
+			layoutInvalidated = true;
+			return;
+		}
+		
+		for (int i = 0; i < children.size(); i++)
+			children.get(i).requestLayout();
+	}
+	
+	boolean hasActiveStyleTransitions() {
+		if ( styleTransitions.isEmpty() )
+			return false;
+		
+		for (StyleTransition transition : styleTransitions.values()) {
+			if ( transition.getTransitions().size() > 0 )
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Forces the style of this node to be matched against its stylesheets again the next time it is styled.
+	 * Changes to the stylesheets in use, the local style, element id, class list or pseudo classes are picked up
+	 * automatically.
+	 */
+	public void invalidateStyle() {
+		computedStyle.invalidate();
+		if ( window != null )
+			window.requestRedraw();
+	}
+	
+	/**
+	 * Returns the computed style of this node.
+	 * @return
+	 */
+	public ComputedStyle getComputedStyle() {
+		return this.computedStyle;
+	}
+	
 	/**
 	 * Remove out style from the current stack
 	 */
@@ -382,14 +560,14 @@ public abstract class Node implements Resizable {
 	}
 	
 	/**
-	 * Set the stylesheet used to style this node and all descendent nodes to this node.
+	 * Set the stylesheet used to style this node and all descendent nodes to this node.<br>
+	 * Nodes given the same source share one compiled stylesheet, see {@link Stylesheet#getCompiled(String)}.
 	 * @param css
 	 */
 	public void setStylesheet(String css) {
 		try {
-			Stylesheet style = new Stylesheet(css);
-			style.compile();
-			this.stylesheet = style;
+			this.stylesheet = Stylesheet.getCompiled(css);
+			requestLayout();
 		} catch(StylesheetCompileError e) {
 			e.printStackTrace();
 		}
@@ -410,6 +588,7 @@ public abstract class Node implements Resizable {
 			}
 		}
 		this.stylesheet = css;
+		requestLayout();
 	}
 	
 	/**
@@ -427,9 +606,8 @@ public abstract class Node implements Resizable {
 	public void setStyle(String localStyle) {
 		this.localStyle = localStyle;
 		try {
-			Stylesheet local = new Stylesheet("NODESTYLE { " + this.localStyle + " }");
-			local.compile();
-			this.localStylesheet = local;
+			this.localStylesheet = Stylesheet.getCompiled("NODESTYLE { " + this.localStyle + " }");
+			requestLayout();
 		} catch(StylesheetCompileError e) {
 			e.printStackTrace();
 		}
@@ -538,6 +716,7 @@ public abstract class Node implements Resizable {
 	 */
 	public void setElementId(String id) {
 		this.id = id;
+		requestLayout();
 	}
 	
 	/**
@@ -899,7 +1078,11 @@ public abstract class Node implements Resizable {
 	 * @param pos
 	 */
 	public void setAlignment(Pos pos) {
+		if ( pos == this.alignment )
+			return;
+		
 		this.alignment = pos;
+		requestLayout();
 	}
 	
 	/**
@@ -1061,6 +1244,23 @@ public abstract class Node implements Resizable {
 		if ( this.prefsize == null )
 			return;
 		
+		if ( this.prefsize.x != width )
+			requestLayout();
+		
+		setPrefWidthInternal(width);
+	}
+	
+	/**
+	 * Set the preferred width of this node without flagging it for layout.
+	 * <br>
+	 * For nodes that measure a child at a temporary width during their own layout pass. The caller has to request
+	 * layout itself if the width it settles on differs from the one before the pass.
+	 * @param width
+	 */
+	public void setPrefWidthInternal( double width ) {
+		if ( this.prefsize == null )
+			return;
+		
 		this.prefsize.x = width;
 		if (this.getMinWidth() > 0) {
 			width = Math.max(layoutBounds.minX, Math.min(layoutBounds.maxX, width));
@@ -1078,6 +1278,9 @@ public abstract class Node implements Resizable {
 		if ( this.prefsize == null )
 			return;
 		
+		if ( this.prefsize.y != height )
+			requestLayout();
+		
 		this.prefsize.y = height;
 		if ( this.getMinHeight() > 0 ) {
 			height = Math.max(layoutBounds.minY, Math.min(layoutBounds.maxY, height));
@@ -1109,6 +1312,9 @@ public abstract class Node implements Resizable {
 		if ( width < 0 )
 			width = 0;
 		
+		if ( layoutBounds.minX != (int)width )
+			requestLayout();
+		
 		layoutBounds.minX = (int)width;
 		if ( size.x < (int)width )
 			size.x = (int)width;
@@ -1122,6 +1328,9 @@ public abstract class Node implements Resizable {
 		if ( height < 0 )
 			height = 0;
 		
+		if ( layoutBounds.minY != (int)height )
+			requestLayout();
+		
 		layoutBounds.minY = (int)height;
 		if ( size.y < (int)height )
 			size.y = (int)height;
@@ -1135,6 +1344,9 @@ public abstract class Node implements Resizable {
 		if ( width < 0 )
 			width = 0;
 		
+		if ( layoutBounds.maxX != (int)width )
+			requestLayout();
+		
 		layoutBounds.maxX = (int)width;
 		if ( size.x > (int)width )
 			size.x = (int)width;
@@ -1148,6 +1360,9 @@ public abstract class Node implements Resizable {
 		if ( height < 0 )
 			height = 0;
 		
+		if ( layoutBounds.maxY != (int)height )
+			requestLayout();
+		
 		layoutBounds.maxY = (int)height;
 		if ( size.y > (int)height )
 			size.y = (int)height;
@@ -1212,88 +1427,128 @@ public abstract class Node implements Resizable {
 	}
 	
 	public void setVisible(boolean visible) {
+		if ( visible == this.visible )
+			return;
+		
 		this.visible = visible;
+		requestLayout();
 	}
 	
 	public abstract String getElementType();
 	
 	protected void onMousePressed(double mouseX, double mouseY, int button) {
 		mousePressed = true;
+		requestLayout();
 		
 		Context context = window.getContext();
 		if ( context != null ) {
 			context.setLastPressed(this);
 		}
 		
-		MouseEvent event = new MouseEvent(mouseX, mouseY, button);
-		
-		if (mousePressedEventInternal != null) {
-			EventHelper.fireEvent(mousePressedEventInternal, event);
-		}
-		
-		if (mousePressedEvent != null) {
-			EventHelper.fireEvent(mousePressedEvent, event);
+		MouseEvent event = obtainMouseEvent(context).set(mouseX, mouseY, button, 0);
+		try {
+			if (mousePressedEventInternal != null) {
+				EventHelper.fireEvent(mousePressedEventInternal, event);
+			}
+			
+			if (mousePressedEvent != null) {
+				EventHelper.fireEvent(mousePressedEvent, event);
+			}
+		} finally {
+			if ( context != null )
+				context.getMouseEvents().free(event);
 		}
 	}
 	
+	private static MouseEvent obtainMouseEvent(Context context) {
+		return context == null ? new MouseEvent(0, 0, 0) : context.getMouseEvents().obtain();
+	}
+	
+	private static Event obtainEvent(Context context) {
+		return context == null ? new Event() : context.getEvents().obtain();
+	}
+	
+	private Context getEventContext() {
+		return window == null ? null : window.getContext();
+	}
+	
 	private long _lastClick = 0;
 	private int _flag_clicks = 0;
 	
 	protected boolean onMouseReleased(double mouseX, double mouseY, int button) {
 		if (!mousePressed) return false;
 		mousePressed = false;
+		requestLayout();
 		
-		// Clicked
-		if (mouseClickedEventInternal != null || mouseClickedEvent != null) {
-			long time = System.currentTimeMillis()-_lastClick;
-			
-			if ( time > 300 ) {
-				_flag_clicks = 0;
+		Context context = getEventContext();
+		MouseEvent event = obtainMouseEvent(context);
+		try {
+			// Clicked
+			if (mouseClickedEventInternal != null || mouseClickedEvent != null) {
+				long time = System.currentTimeMillis()-_lastClick;
+				
+				if ( time > 300 ) {
+					_flag_clicks = 0;
+				}
+				
+				_flag_clicks++;
+				_lastClick = System.currentTimeMillis();
+				
+				if (mouseClickedEventInternal != null) {
+					EventHelper.fireEvent(mouseClickedEventInternal, event.set(mouseX, mouseY, button, _flag_clicks));
+				}
+				
+				if (mouseClickedEvent != null) {
+					EventHelper.fireEvent(mouseClickedEvent, event.set(mouseX, mouseY, button, _flag_clicks));
+				}
 			}
 			
-			_flag_clicks++;
-			_lastClick = System.currentTimeMillis();
+			// Released
+			boolean consumed = false;
 			
-			if (mouseClickedEventInternal != null) {
-				EventHelper.fireEvent(mouseClickedEventInternal, new MouseEvent(mouseX, mouseY, button, _flag_clicks));
+			if (mouseReleasedEventInternal != null && EventHelper.fireEvent(mouseReleasedEventInternal, event.set(mouseX, mouseY, button, 0))) {
+				consumed = true;
 			}
 			
-			if (mouseClickedEvent != null) {
-				EventHelper.fireEvent(mouseClickedEvent, new MouseEvent(mouseX, mouseY, button, _flag_clicks));
+			if (mouseReleasedEvent != null && EventHelper.fireEvent(mouseReleasedEvent, event.set(mouseX, mouseY, button, 0))) {
+				consumed = true;
 			}
+			
+			return consumed;
+		} finally {
+			if ( context != null )
+				context.getMouseEvents().free(event);
 		}
-		
-		// Released
-		boolean consumed = false;
-		
-		if (mouseReleasedEventInternal != null && EventHelper.fireEvent(mouseReleasedEventInternal, new MouseEvent(mouseX, mouseY, button))) {
-			consumed = true;
-		}
-		
-		if (mouseReleasedEvent != null && EventHelper.fireEvent(mouseReleasedEvent, new MouseEvent(mouseX, mouseY, button))) {
-			consumed = true;
-		}
-		
-		return consumed;
 	}
 	
 	protected void onMouseEntered() {
-		if (mouseEnteredEventInternal != null) {
-			EventHelper.fireEvent(mouseEnteredEventInternal, new Event());
-		}
-		
-		if (mouseEnteredEvent != null) {
-			EventHelper.fireEvent(mouseEnteredEvent, new Event());
-		}
+		requestLayout();
+		fireEvents(mouseEnteredEventInternal, mouseEnteredEvent);
 	}
 	
 	protected void onMouseExited() {
-		if (mouseExitedEventInternal != null) {
-			EventHelper.fireEvent(mouseExitedEventInternal, new Event());
-		}
+		requestLayout();
+		fireEvents(mouseExitedEventInternal, mouseExitedEvent);
+	}
+	
+	private void fireEvents(EventHandler<Event> internal, EventHandler<Event> handler) {
+		if ( internal == null && handler == null )
+			return;
 		
-		if (mouseExitedEvent != null) {
-			EventHelper.fireEvent(mouseExitedEvent, new Event());
+		Context context = getEventContext();
+		Event event = obtainEvent(context);
+		try {
+			if (internal != null) {
+				EventHelper.fireEvent(internal, event);
+				event.reset();
+			}
+			
+			if (handler != null) {
+				EventHelper.fireEvent(handler, event);
+			}
+		} finally {
+			if ( context != null )
+				context.getEvents().free(event);
 		}
 	}
 	
@@ -1418,6 +1673,47 @@ public abstract class Node implements Resizable {
 	public void setOnKeyReleased( EventHandler<KeyEvent> event ) {
 		this.keyReleasedEvent = event;
 	}
+	
+	public EventHandler<KeyEvent> getKeyFilter() {
+		return this.keyFilterEvent;
+	}
+	
+	/**
+	 * Sets a filter that sees every key event routed through this node before the selected node does.
+	 * Consuming the event stops it from reaching the selected node.
+	 * @param event
+	 */
+	public void setKeyFilter( EventHandler<KeyEvent> event ) {
+		this.keyFilterEvent = event;
+	}
+	
+	public EventHandler<TypeEvent> getTextInputFilter() {
+		return this.textInputFilterEvent;
+	}
+	
+	/**
+	 * Sets a filter that sees every typed character routed through this node before the selected node does.
+	 * Consuming the event stops it from reaching the selected node.
+	 * @param event
+	 */
+	public void setTextInputFilter( EventHandler<TypeEvent> event ) {
+		this.textInputFilterEvent = event;
+	}
+	
+	/**
+	 * Key events are only delivered to the selected node and its ancestors. Setting this flag makes this node
+	 * receive key events even when it is not selected, once the selected node and its ancestors did not consume them.
+	 * @param global
+	 */
+	public void setGlobalKeyInput( boolean global ) {
+		this.globalKeyInput = global;
+		if ( window != null )
+			window.setGlobalKeyInput(this, global);
+	}
+	
+	public boolean isGlobalKeyInput() {
+		return this.globalKeyInput;
+	}
 
 	/*
 	 * 
@@ -1555,6 +1851,7 @@ public abstract class Node implements Resizable {
 	 */
 	public void setMouseTransparent(boolean t ) {
 		this.mouseTransparent = t;
+		invalidateHitTest();
 	}
 
 	/**
@@ -43,7 +43,11 @@ public abstract class Region extends Parent  {
 	 * Set the padding insets of this node. All child nodes will be offset based on the insets.
 	 * @param value
 	 */
-    public final void setPadding(Insets value) { padding = value; }
+    public final void setPadding(Insets value) {
+    	if ( value != padding && (value == null || !value.equals(padding)) )
+    		requestLayout();
+    	padding = value;
+    }
     
     /**
      * 
@@ -55,7 +59,11 @@ public abstract class Region extends Parent  {
      * Set the border insets of this node. All child nodes will be offset based on the insets.
      * @param value
      */
-    public final void setBorder(Insets value) { border = value; }
+    public final void setBorder(Insets value) {
+    	if ( value != border && (value == null || !value.equals(border)) )
+    		requestLayout();
+    	border = value;
+    }
     
     /**
      * 
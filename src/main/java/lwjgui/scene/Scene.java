@@ -1,8 +1,10 @@
 package lwjgui.scene;
 
+import java.util.ArrayList;
+
 import lwjgui.collections.ObservableList;
 import lwjgui.scene.control.PopupWindow;
-import lwjgui.transition.TransitionManager;
+import lwjgui.transition.AnimationTimeline;
 
 /**
  * Every window has a Scene that contains various nodes that add functionality to the program. 
@@ -12,6 +14,9 @@ public class Scene extends Node {
 	private Node root;
 	
 	private ObservableList<PopupWindow> popups = new ObservableList<PopupWindow>();
+	
+	// Nodes with a style apply pending until their style transitions end
+	private final ArrayList<Node> styleTransitionNodes = new ArrayList<Node>();
 
 	public Scene(Node root) {
 		this(root, root.getPrefWidth(), root.getPrefHeight());
@@ -66,8 +71,24 @@ public class Scene extends Node {
 		if ( root == null )
 			return;
 		
-		// Tick Transitions first so that any changes are reflected in the rendering
-		TransitionManager.tick();
+		// Tick Transitions first so that any changes are reflected in the rendering. Keep rendering while they play.
+		if ( window != null ) {
+			AnimationTimeline timeline = window.getAnimationTimeline();
+			timeline.tick();
+			boolean unbound = AnimationTimeline.tickUnbound();
+			if ( timeline.isActive() || unbound )
+				window.requestRedraw();
+		}
+		
+		// Style the nodes whose style transitions just ended again
+		for (int i = styleTransitionNodes.size() - 1; i >= 0; i--) {
+			Node node = styleTransitionNodes.get(i);
+			if ( !node.hasActiveStyleTransitions() ) {
+				styleTransitionNodes.remove(i);
+				node.awaitingStyleTransitions = false;
+				node.requestLayout();
+			}
+		}
 		
 		// Reset stylesheet stack
 		context.getCurrentStyling().clear();
@@ -82,11 +103,18 @@ public class Scene extends Node {
 			((FillableRegion) root).setFillToParentWidth(true);
 		}
 		
-		// Position elements
-		for (int i = 0; i < (first?20:2); i++) {
+		// Position elements. Only runs while something requested a new layout.
+		boolean laidOut = false;
+		for (int i = 0; i < (first?20:4) && isLayoutDirty(); i++) {
 			position(null);
+			laidOut = true;
 		}
-		root.updateChildrenLocalRecursive();
+		if ( laidOut )
+			root.updateChildrenLocalRecursive();
+		
+		// Layout did not settle this frame, make sure another one follows
+		if ( isLayoutDirty() && window != null )
+			window.requestRedraw();
 		
 		// Render normal
 		first = false;
@@ -104,12 +132,22 @@ public class Scene extends Node {
 		stylePop();
 	}
 
+	/**
+	 * Lays out the node again once its style transitions have ended, so that style changes made while they were
+	 * running get applied.
+	 */
+	void awaitStyleTransitions(Node node) {
+		styleTransitionNodes.add(node);
+	}
+
 	public void showPopup(PopupWindow popup) {
 		popups.add(popup);
+		invalidateHitTest();
 	}
 	
 	public void closePopup(PopupWindow popup) {
 		popups.remove(popup);
+		invalidateHitTest();
 	}
 
 	public ObservableList<PopupWindow> getPopups() {
@@ -79,6 +79,7 @@ import org.lwjgl.opengl.GLCapabilities;
 import lwjgui.LWJGUI;
 import lwjgui.Task;
 import lwjgui.collections.ObservableList;
+import lwjgui.event.EventHandler;
 import lwjgui.event.EventHelper;
 import lwjgui.event.KeyEvent;
 import lwjgui.event.MouseEvent;
@@ -93,6 +94,7 @@ import lwjgui.event.listener.MouseWheelListener;
 import lwjgui.event.listener.WindowCloseListener;
 import lwjgui.event.listener.WindowFocusListener;
 import lwjgui.event.listener.WindowSizeListener;
+import lwjgui.gl.GLState;
 import lwjgui.gl.Renderer;
 import lwjgui.glfw.Callbacks.CharCallback;
 import lwjgui.glfw.Callbacks.CharModsCallback;
@@ -116,6 +118,7 @@ import lwjgui.paint.Color;
 import lwjgui.scene.control.PopupWindow;
 import lwjgui.scene.layout.StackPane;
 import lwjgui.theme.Theme;
+import lwjgui.transition.AnimationTimeline;
 
 public class Window {
 
@@ -123,6 +126,21 @@ public class Window {
 
 	private Queue<Task<?>> tasks = new ConcurrentLinkedQueue<>();
 
+	private final InputQueue input = new InputQueue(1024);
+
+	private final ArrayList<Node> dispatchPath = new ArrayList<>();
+	private final ArrayList<Node> globalDispatch = new ArrayList<>();
+	private final ArrayList<Node> globalKeyNodes = new ArrayList<>();
+
+	private final Object damageLock = new Object();
+	private volatile boolean damaged = true;
+	private volatile boolean renderOnDemand;
+	private boolean redrawScheduled;
+	private boolean frameDamaged = true;
+	private long redrawDeadline;
+
+	private final AnimationTimeline animationTimeline = new AnimationTimeline(this);
+
 	protected DisplayUtils displayUtils;
 
 	protected GLCapabilities capabilities;
@@ -137,6 +155,7 @@ public class Window {
 	private boolean autoClear = true;
 	private boolean autoClose = true;
 	private Renderer renderCallback;
+	private final GLState glState = new GLState();
 
 	protected int oldPosX = 0, oldPosY = 0, oldWidth = 0, oldHeight = 0;
 
@@ -260,6 +279,7 @@ public class Window {
 		windowIconifyCallback.addCallback(glfwSetWindowIconifyCallback(windowID, windowIconifyCallback));
 		windowIconifyCallback.addCallback((window, iconify) -> {
 			iconified = iconify;
+			requestRedraw();
 		});
 
 		framebufferSizeCallback = new FramebufferSizeCallback();
@@ -270,10 +290,12 @@ public class Window {
 			pixelRatio = (width <= this.width) ? 1 : width / this.width;
 			framebufferWidth = width;
 			framebufferHeight = height;
+			requestRedraw();
 		});
 
 		cursorEnterCallback = new CursorEnterCallback();
 		cursorEnterCallback.addCallback(glfwSetCursorEnterCallback(windowID, cursorEnterCallback));
+		cursorEnterCallback.addCallback((window, entered) -> requestRedraw());
 
 		charModsCallback = new CharModsCallback();
 		charModsCallback.addCallback(glfwSetCharModsCallback(windowID, charModsCallback));
@@ -292,10 +314,12 @@ public class Window {
 		windowMaximizeCallback.addCallback(glfwSetWindowMaximizeCallback(windowID, windowMaximizeCallback));
 		windowMaximizeCallback.addCallback((window, maximized) -> {
 			this.maximized = maximized;
+			requestRedraw();
 		});
 
 		windowRefreshCallback = new WindowRefreshCallback();
 		windowRefreshCallback.addCallback(glfwSetWindowRefreshCallback(windowID, windowRefreshCallback));
+		windowRefreshCallback.addCallback((window) -> requestRedraw());
 	}
 
 	public void init() {
@@ -304,14 +328,30 @@ public class Window {
 	}
 
 	public void render() {
+		// Anything changed from here on needs another frame. A scheduled redraw only
+		// counts once it is due, until then it stays scheduled.
+		synchronized (damageLock) {
+			boolean scheduleDue = redrawScheduled && redrawDeadline - System.nanoTime() <= 0;
+			frameDamaged = damaged || scheduleDue || renderCallback != null;
+			damaged = false;
+			if (scheduleDue)
+				redrawScheduled = false;
+		}
 		
+		// Dispatch the input queued since the last frame
+		dispatchInput();
+
 		// Render Window
 		if (!iconified/* && !resized */)
 			renderInternal();
 
-		// Perform deferred tasks
+		// Perform deferred tasks. They run after the frame was drawn, so whatever they
+		// change needs another frame, which must not reuse this frame's results.
+		if (tasks.isEmpty())
+			return;
 		while (!tasks.isEmpty())
 			tasks.poll().callI();
+		requestRedraw();
 	}
 
 	private void renderInternal() {
@@ -320,6 +360,9 @@ public class Window {
 		scene.setPrefSize(width, height);
 		scene.setMaxSize(width, height);
 
+		// Tasks may have changed the GL state since the last frame
+		glState.invalidate();
+
 		// Update context
 		context.updateContext();
 
@@ -334,16 +377,22 @@ public class Window {
 		}
 		if (this.renderCallback != null) {
 			this.renderCallback.render(context, width, height);
+			glState.invalidate();
 		}
 
 		// Do NVG frame
 		context.refresh();
 		nvgBeginFrame(context.getNVG(), width, height, pixelRatio);
+		context.getBoxShadowBatch().setFrameSize(width, height);
 		context.setClipBounds(scene.getX(), scene.getY(), scene.getWidth(), scene.getHeight());
 		scene.render(context);
 
+		context.flushBoxShadows();
 		nvgRestore(context.getNVG());
 		nvgEndFrame(context.getNVG());
+		glState.invalidateObjects();
+		context.getBoxShadowCache().endFrame();
+		context.getRenderTargetPool().endFrame();
 	}
 
 	/**
@@ -529,6 +578,13 @@ public class Window {
 		return this.capabilities;
 	}
 
+	/**
+	 * Returns the timeline of the transitions playing in this window. It is ticked once per frame.
+	 */
+	public AnimationTimeline getAnimationTimeline() {
+		return this.animationTimeline;
+	}
+
 	/**
 	 * Freeds callbacks and destroys the window.
 	 * <p>
@@ -577,6 +633,15 @@ public class Window {
 		return context;
 	}
 
+	/**
+	 * Returns the tracker of the GL state of this window's context.
+	 * 
+	 * @return
+	 */
+	public GLState getGLState() {
+		return glState;
+	}
+
 	/**
 	 * Signal to the OS that the window should be focused.
 	 */
@@ -644,6 +709,7 @@ public class Window {
 	 */
 	public void close() {
 		glfwSetWindowShouldClose(windowID, true);
+		requestRedraw();
 	}
 
 	/**
@@ -665,6 +731,7 @@ public class Window {
 	public void setScene(Scene scene) {
 		this.scene = scene;
 		this.scene.setWindow(this);
+		requestRedraw();
 
 		try {
 			final int s = 10000;
@@ -889,10 +956,107 @@ public class Window {
 		if (t == null)
 			return null;
 		tasks.add(t);
+		requestRedraw();
 		return t;
 	}
 
+	/**
+	 * Default: false. When set to true, the window thread only renders a frame when
+	 * something changed (input, tasks, transitions or node invalidation) or when a
+	 * redraw was scheduled with {@link #requestRedraw(long)}. Otherwise the thread
+	 * sleeps in {@link #waitForRedraw()}.
+	 * 
+	 * @param onDemand
+	 */
+	public void setRenderOnDemand(boolean onDemand) {
+		this.renderOnDemand = onDemand;
+		requestRedraw();
+	}
+
+	public boolean isRenderOnDemand() {
+		return this.renderOnDemand;
+	}
+
+	/**
+	 * Marks the window as damaged so that the next frame gets rendered. Safe to
+	 * call from any thread.
+	 */
+	public void requestRedraw() {
+		if (damaged)
+			return;
+
+		synchronized (damageLock) {
+			damaged = true;
+			damageLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Returns whether the frame being rendered may differ from the previous one.
+	 * Content rendered before this point of the frame is known to be unchanged if
+	 * this returns false, so its derived results (e.g. a blurred backdrop) can be
+	 * reused. Only valid on the window thread while rendering.
+	 * 
+	 * @return
+	 */
+	public boolean isFrameDamaged() {
+		return frameDamaged;
+	}
+
+	/**
+	 * Marks the frame being rendered as changed, for content that is redrawn every
+	 * frame without requesting a redraw. Must be called on the window thread while
+	 * rendering.
+	 */
+	public void damageFrame() {
+		frameDamaged = true;
+	}
+
+	/**
+	 * Schedules a frame to be rendered once the delay has passed, e.g. for caret
+	 * blinking or animations. Safe to call from any thread.
+	 * 
+	 * @param delayMillis Delay in milliseconds
+	 */
+	public void requestRedraw(long delayMillis) {
+		long deadline = System.nanoTime() + Math.max(0, delayMillis) * 1000000L;
+		synchronized (damageLock) {
+			if (!redrawScheduled || deadline - redrawDeadline < 0) {
+				redrawScheduled = true;
+				redrawDeadline = deadline;
+				damageLock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Blocks the calling thread until the window is damaged, a scheduled redraw is
+	 * due or the window is requested to close. Returns immediately when render on
+	 * demand is disabled.
+	 */
+	public void waitForRedraw() {
+		synchronized (damageLock) {
+			while (renderOnDemand && !damaged && !isCloseRequested()) {
+				long wait = 0;
+				if (redrawScheduled) {
+					long remaining = redrawDeadline - System.nanoTime();
+					if (remaining <= 0)
+						break;
+					wait = Math.max(1, remaining / 1000000L);
+				}
+
+				try {
+					damageLock.wait(wait);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
 	private void closeCallback(long window) {
+		requestRedraw();
 		/*
 		 * Call window event listeners
 		 */
@@ -904,6 +1068,7 @@ public class Window {
 	}
 
 	private void sizeCallback(long window, int width, int height) {
+		requestRedraw();
 
 		/*
 		 * Call window event listeners
@@ -920,6 +1085,7 @@ public class Window {
 	}
 
 	private void focusCallback(long window, boolean focus) {
+		requestRedraw();
 		/*
 		 * Call window event listeners
 		 */
@@ -935,10 +1101,69 @@ public class Window {
 
 	}
 
+	/**
+	 * Queues input for the scene. It is dispatched on the window thread by {@link #dispatchInput()}.
+	 * Must only be called from the main thread.
+	 */
+	private void queueInput(int type, int arg0, int arg1, int arg2, int arg3, double x, double y) {
+		input.push(type, arg0, arg1, arg2, arg3, x, y);
+		requestRedraw();
+	}
+
+	/**
+	 * Publishes the coalesced cursor and scroll input. Called by the {@link WindowManager} after the
+	 * events were polled. Must only be called from the main thread.
+	 */
+	void flushInput() {
+		if (input.flush())
+			requestRedraw();
+	}
+
+	/**
+	 * Dispatches the queued input to the scene nodes. Events are taken from the
+	 * pools of the context, so steady input does not allocate.
+	 */
+	private void dispatchInput() {
+		while (input.poll()) {
+			frameDamaged = true;
+			switch (input.type) {
+			case InputQueue.KEY:
+				onKey(input.arg0, input.arg1, input.arg2, input.arg3);
+				break;
+			case InputQueue.CHAR:
+				onChar(input.arg0);
+				break;
+			case InputQueue.MOUSE_BUTTON:
+				onMouseButton(input.arg0, input.arg1, (float) input.x, (float) input.y);
+				break;
+			case InputQueue.CURSOR_POS:
+				onCursorPos(input.x, input.y);
+				break;
+			case InputQueue.SCROLL:
+				onScroll(input.x, input.y);
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	private static boolean isCtrlDown(int mods) {
+		return (mods & GLFW_MOD_CONTROL) == GLFW_MOD_CONTROL || (mods & GLFW_MOD_SUPER) == GLFW_MOD_SUPER;
+	}
+
+	private static boolean isAltDown(int mods) {
+		return (mods & GLFW_MOD_ALT) == GLFW_MOD_ALT;
+	}
+
+	private static boolean isShiftDown(int mods) {
+		return (mods & GLFW_MOD_SHIFT) == GLFW_MOD_SHIFT;
+	}
+
 	private void keyCallback(long handle, int key, int scancode, int action, int mods) {
-		boolean isCtrlDown = (mods & GLFW_MOD_CONTROL) == GLFW_MOD_CONTROL || (mods & GLFW_MOD_SUPER) == GLFW_MOD_SUPER;
-		boolean isAltDown = (mods & GLFW_MOD_ALT) == GLFW_MOD_ALT;
-		boolean isShiftDown = (mods & GLFW_MOD_SHIFT) == GLFW_MOD_SHIFT;
+		boolean isCtrlDown = isCtrlDown(mods);
+		boolean isAltDown = isAltDown(mods);
+		boolean isShiftDown = isShiftDown(mods);
 
 		/*
 		 * Call window event listeners
@@ -953,102 +1178,169 @@ public class Window {
 		/*
 		 * Call scene node listeners
 		 */
-		runLater(() -> {
-			notifyKeyInput(scene, key, scancode, action, mods, isCtrlDown, isAltDown, isShiftDown);
-
-			ObservableList<PopupWindow> popups = scene.getPopups();
-			for (int i = 0; i < popups.size(); i++) {
-				Node root = popups.get(i);
-				notifyKeyInput(root, key, scancode, action, mods, isCtrlDown, isAltDown, isShiftDown);
-			}
-		});
+		queueInput(InputQueue.KEY, key, scancode, action, mods, 0, 0);
 	}
 
-	private void notifyKeyInput(Node root, int key, int scancode, int action, int mods, boolean isCtrlDown,
-			boolean isAltDown, boolean isShiftDown) {
-		runLater(() -> {
-			if (root == null)
-				return;
-
-			ObservableList<Node> children = root.getChildren();
-			for (int i = 0; i < children.size(); i++) {
-				notifyKeyInput(children.get(i), key, scancode, action, mods, isCtrlDown, isAltDown, isShiftDown);
-			}
+	private void onKey(int key, int scancode, int action, int mods) {
+		KeyEvent event = context.getKeyEvents().obtain();
+		try {
+			dispatchKeyEvent(event.set(key, scancode, action, mods, isCtrlDown(mods), isAltDown(mods), isShiftDown(mods)));
+		} finally {
+			context.getKeyEvents().free(event);
+		}
 
-			KeyEvent event = new KeyEvent(key, scancode, action, mods, isCtrlDown, isAltDown, isShiftDown);
-			/*
-			 * Key pressed
-			 */
-			if (event.action == GLFW_PRESS) {
-				if (root.keyPressedEventInternal != null
-						&& EventHelper.fireEvent(root.keyPressedEventInternal, event)) {
-					return;
-				}
+		Node selected = context.getSelected();
+		if (selected != null)
+			selected.requestLayout();
+	}
 
-				if (root.keyPressedEvent != null && EventHelper.fireEvent(root.keyPressedEvent, event)) {
+	/**
+	 * Dispatches a key event along the focus path: the selected node and its
+	 * ancestors. Filters are called root first (capture), handlers are called
+	 * target first (bubble). Dispatch stops once the event is consumed. Nodes that
+	 * opted in with {@link Node#setGlobalKeyInput(boolean)} are notified last, in
+	 * the order they registered.
+	 */
+	private void dispatchKeyEvent(KeyEvent event) {
+		buildDispatchPath(getInputTarget());
+		try {
+			// Capture
+			for (int i = dispatchPath.size() - 1; i >= 0; i--) {
+				Node node = dispatchPath.get(i);
+				if (node.keyFilterEvent != null && EventHelper.fireEvent(node.keyFilterEvent, event))
 					return;
-				}
 			}
-			/*
-			 * Key repeat (e.g. holding backspace to "spam" it)
-			 */
-			if (event.action == GLFW_REPEAT) {
-				if (root.keyRepeatEventInternal != null && EventHelper.fireEvent(root.keyRepeatEventInternal, event)) {
-					return;
-				}
 
-				if (root.keyRepeatEvent != null && EventHelper.fireEvent(root.keyRepeatEvent, event)) {
+			// Bubble
+			for (int i = 0; i < dispatchPath.size(); i++) {
+				if (fireKeyHandlers(dispatchPath.get(i), event))
 					return;
-				}
 			}
-			/*
-			 * Key released
-			 */
-			if (event.action == GLFW_RELEASE) {
-				if (root.keyReleasedEventInternal != null
-						&& EventHelper.fireEvent(root.keyReleasedEventInternal, event)) {
-					return;
-				}
 
-				if (root.keyReleasedEvent != null && EventHelper.fireEvent(root.keyReleasedEvent, event)) {
+			// Global
+			if (globalKeyNodes.isEmpty())
+				return;
+			// Snapshot, handlers may register or unregister global nodes
+			for (int i = 0; i < globalKeyNodes.size(); i++)
+				globalDispatch.add(globalKeyNodes.get(i));
+			for (int i = 0; i < globalDispatch.size(); i++) {
+				Node node = globalDispatch.get(i);
+				if (dispatchPath.contains(node))
+					continue;
+				if (fireKeyHandlers(node, event))
 					return;
-				}
 			}
-		});
+		} finally {
+			dispatchPath.clear();
+			globalDispatch.clear();
+		}
 	}
 
-	private void charCallback(long window, int codepoint) {
-		runLater(() -> {
-			notifyTextInput(scene, new TypeEvent(codepoint));
+	private boolean fireKeyHandlers(Node node, KeyEvent event) {
+		EventHandler<KeyEvent> internal = null;
+		EventHandler<KeyEvent> handler = null;
+		switch (event.action) {
+		case GLFW_PRESS:
+			internal = node.keyPressedEventInternal;
+			handler = node.keyPressedEvent;
+			break;
+		case GLFW_REPEAT: // Key repeat (e.g. holding backspace to "spam" it)
+			internal = node.keyRepeatEventInternal;
+			handler = node.keyRepeatEvent;
+			break;
+		case GLFW_RELEASE:
+			internal = node.keyReleasedEventInternal;
+			handler = node.keyReleasedEvent;
+			break;
+		default:
+			return false;
+		}
 
-			ObservableList<PopupWindow> popups = scene.getPopups();
-			for (int i = 0; i < popups.size(); i++) {
-				Node root = popups.get(i);
-				notifyTextInput(root, new TypeEvent(codepoint));
-			}
-		});
+		if (internal != null && EventHelper.fireEvent(internal, event))
+			return true;
+
+		return handler != null && EventHelper.fireEvent(handler, event);
 	}
 
-	private void notifyTextInput(Node root, TypeEvent event) {
-		boolean consumed = false;
+	/**
+	 * Returns the node that receives key and text input: the selected node, or if
+	 * nothing is selected the topmost open popup or the scene root.
+	 */
+	private Node getInputTarget() {
+		Node selected = context.getSelected();
+		if (selected != null)
+			return selected;
 
-		if (root == null)
-			return;
+		ObservableList<PopupWindow> popups = scene.getPopups();
+		if (popups.size() > 0)
+			return popups.get(popups.size() - 1);
 
-		if (root.textInputEventInternal != null && EventHelper.fireEvent(root.textInputEventInternal, event)) {
-			consumed = true;
+		Node root = scene.getRoot();
+		return root != null ? root : scene;
+	}
+
+	private void buildDispatchPath(Node target) {
+		dispatchPath.clear();
+		for (Node node = target; node != null; node = node.getParent()) {
+			dispatchPath.add(node);
 		}
+	}
+
+	/**
+	 * Registers a node to receive key events regardless of the focus path. Nodes
+	 * unregister themselves when they are disposed.
+	 */
+	void setGlobalKeyInput(Node node, boolean global) {
+		if (!global)
+			globalKeyNodes.remove(node);
+		else if (!globalKeyNodes.contains(node))
+			globalKeyNodes.add(node);
+	}
+
+	private void charCallback(long window, int codepoint) {
+		queueInput(InputQueue.CHAR, codepoint, 0, 0, 0, 0, 0);
+	}
 
-		if (root.textInputEvent != null && EventHelper.fireEvent(root.textInputEvent, event)) {
-			consumed = true;
+	private void onChar(int codepoint) {
+		TypeEvent event = context.getTypeEvents().obtain();
+		try {
+			dispatchTextInput(event.set(codepoint));
+		} finally {
+			context.getTypeEvents().free(event);
 		}
 
-		if (consumed)
-			return;
+		Node selected = context.getSelected();
+		if (selected != null)
+			selected.requestLayout();
+	}
 
-		ObservableList<Node> children = root.getChildren();
-		for (int i = 0; i < children.size(); i++) {
-			notifyTextInput(children.get(i), event);
+	/**
+	 * Dispatches a typed character along the focus path, like
+	 * {@link #dispatchKeyEvent(KeyEvent)}.
+	 */
+	private void dispatchTextInput(TypeEvent event) {
+		buildDispatchPath(getInputTarget());
+		try {
+			// Capture
+			for (int i = dispatchPath.size() - 1; i >= 0; i--) {
+				Node node = dispatchPath.get(i);
+				if (node.textInputFilterEvent != null && EventHelper.fireEvent(node.textInputFilterEvent, event))
+					return;
+			}
+
+			// Bubble
+			for (int i = 0; i < dispatchPath.size(); i++) {
+				Node node = dispatchPath.get(i);
+				boolean consumed = false;
+				if (node.textInputEventInternal != null && EventHelper.fireEvent(node.textInputEventInternal, event))
+					consumed = true;
+				if (node.textInputEvent != null && EventHelper.fireEvent(node.textInputEvent, event))
+					consumed = true;
+				if (consumed)
+					return;
+			}
+		} finally {
+			dispatchPath.clear();
 		}
 	}
 
@@ -1062,67 +1354,65 @@ public class Window {
 		for (int i = 0; i < listeners.size(); i++) {
 			((MouseButtonListener) listeners.get(i)).invoke(window, button, downup, modifier);
 		}
-		runLater(() -> {
-			/*
-			 * Call scene node/etc listeners
-			 */
-
-			float mouseX = mouseHandler.getX();
-			float mouseY = mouseHandler.getY();
 
-			if (downup == 1) { // Press
-				if (!context.hoveringOverPopup && context.getPopups().size() > 0) {
-					context.closePopups();
-					return;
-				}
+		/*
+		 * Call scene node/etc listeners. The cursor position is taken now, so the event
+		 * carries the position it happened at rather than the one at dispatch.
+		 */
+		queueInput(InputQueue.MOUSE_BUTTON, button, downup, modifier, 0, mouseHandler.getX(), mouseHandler.getY());
+	}
 
-				Node hovered = context.getHovered();
-				if (hovered != null) {
-					hovered.onMousePressed(mouseX, mouseY, button);
-				}
-			} else { // Release
-				Node lastPressed = context.getLastPressed();
-
-				Node hovered = context.getHovered();
-				if (hovered != null && hovered.mousePressed) {
-					boolean consumed = hovered.onMouseReleased(mouseX, mouseY, button);
-
-					// If not consumed, set selected
-					if (button == GLFW_MOUSE_BUTTON_LEFT && !consumed) {
-						context.setSelected(hovered);
-					}
-
-					if (hovered.mouseDragged)
-						EventHelper.fireEvent(hovered.getMouseDraggedEndEvent(),
-								new MouseEvent(mouseX, mouseY, GLFW_MOUSE_BUTTON_LEFT));
-					if (hovered.mouseDragged)
-						EventHelper.fireEvent(hovered.getMouseDraggedEndEventInternal(),
-								new MouseEvent(mouseX, mouseY, GLFW_MOUSE_BUTTON_LEFT));
-					hovered.mouseDragged = false;
-				}
+	private void onMouseButton(int button, int downup, float mouseX, float mouseY) {
 
-				// If we released on a different node than the one we clicked on...
-				if (lastPressed != null && lastPressed != hovered) {
-					lastPressed.mousePressed = false;
+		if (downup == 1) { // Press
+			if (!context.hoveringOverPopup && context.getPopups().size() > 0) {
+				context.closePopups();
+				return;
+			}
 
-					if (lastPressed.mouseDragged) {
-						EventHelper.fireEvent(lastPressed.getMouseDraggedEndEvent(),
-								new MouseEvent(mouseX, mouseY, GLFW_MOUSE_BUTTON_LEFT));
-					}
+			Node hovered = context.getHovered();
+			if (hovered != null) {
+				hovered.onMousePressed(mouseX, mouseY, button);
+			}
+		} else { // Release
+			Node lastPressed = context.getLastPressed();
 
-					if (lastPressed.mouseDragged) {
-						EventHelper.fireEvent(lastPressed.getMouseDraggedEndEventInternal(),
-								new MouseEvent(mouseX, mouseY, GLFW_MOUSE_BUTTON_LEFT));
-					}
+			Node hovered = context.getHovered();
+			if (hovered != null && hovered.mousePressed) {
+				boolean consumed = hovered.onMouseReleased(mouseX, mouseY, button);
 
-					lastPressed.mouseDragged = false;
+				// If not consumed, set selected
+				if (button == GLFW_MOUSE_BUTTON_LEFT && !consumed) {
+					context.setSelected(hovered);
 				}
+
+				if (hovered.mouseDragged)
+					fireDraggedEnd(hovered, mouseX, mouseY);
+				hovered.mouseDragged = false;
 			}
-		});
+
+			// If we released on a different node than the one we clicked on...
+			if (lastPressed != null && lastPressed != hovered) {
+				lastPressed.mousePressed = false;
+
+				if (lastPressed.mouseDragged)
+					fireDraggedEnd(lastPressed, mouseX, mouseY);
+				lastPressed.mouseDragged = false;
+			}
+		}
 	}
 
-	public void cursorPosCallback(long window, double x, double y) {
+	private void fireDraggedEnd(Node node, double mouseX, double mouseY) {
+		MouseEvent event = context.getMouseEvents().obtain();
+		try {
+			EventHelper.fireEvent(node.getMouseDraggedEndEvent(), event.set(mouseX, mouseY, GLFW_MOUSE_BUTTON_LEFT, 0));
+			EventHelper.fireEvent(node.getMouseDraggedEndEventInternal(), event.set(mouseX, mouseY, GLFW_MOUSE_BUTTON_LEFT, 0));
+		} finally {
+			context.getMouseEvents().free(event);
+		}
+	}
 
+	public void cursorPosCallback(long window, double x, double y) {
 		/*
 		 * Call window event listeners
 		 */
@@ -1132,26 +1422,39 @@ public class Window {
 			((CursorPositionListener) listeners.get(i)).invoke(window, x, y);
 		}
 
-		//runLater(() -> {
-			/*
-			 * Call scene node listeners
-			 */
-			Node selected = context.getSelected();
-			if (selected == null)
+		/*
+		 * Call scene node listeners. Positions are coalesced until the events were polled.
+		 */
+		input.pushCursorPos(x, y);
+	}
+
+	private void onCursorPos(double x, double y) {
+		Node pressed = context.getLastPressed();
+		if (pressed != null && pressed.mousePressed)
+			pressed.requestLayout(); // Dragging scroll bars/dividers is handled during layout
+		
+		Node selected = context.getSelected();
+		if (selected == null)
+			return;
+
+		if (selected.mousePressed) {
+			selected.mouseDragged = true;
+			if (selected.mouseDraggedEvent == null && selected.mouseDraggedEventInternal == null)
 				return;
 
-			if (selected.mousePressed) {
-				selected.mouseDragged = true;
+			MouseEvent event = context.getMouseEvents().obtain();
+			try {
 				if (selected.mouseDraggedEvent != null) {
-					EventHelper.fireEvent(selected.mouseDraggedEvent, new MouseEvent(x, y, GLFW_MOUSE_BUTTON_LEFT));
+					EventHelper.fireEvent(selected.mouseDraggedEvent, event.set(x, y, GLFW_MOUSE_BUTTON_LEFT, 0));
 				}
 
 				if (selected.mouseDraggedEventInternal != null) {
-					EventHelper.fireEvent(selected.mouseDraggedEventInternal,
-							new MouseEvent(x, y, GLFW_MOUSE_BUTTON_LEFT));
+					EventHelper.fireEvent(selected.mouseDraggedEventInternal, event.set(x, y, GLFW_MOUSE_BUTTON_LEFT, 0));
 				}
+			} finally {
+				context.getMouseEvents().free(event);
 			}
-		//});
+		}
 	}
 
 	public void scrollCallback(long window, double dx, double dy) {
@@ -1178,30 +1481,33 @@ public class Window {
 		}
 
 		/*
-		 * Call scene node listeners
+		 * Call scene node listeners. Deltas are summed until the events were polled.
 		 */
+		input.pushScroll(dx, dy);
+	}
 
-		double[] values = new double[2];
-		values[0] = dx;
-		values[1] = dy;
-		runLater(() -> {
-			notifyScroll(scene, values[0], values[1]);
-		});
+	private void onScroll(double x, double y) {
+		ScrollEvent event = context.getScrollEvents().obtain();
+		try {
+			notifyScroll(scene, x, y, event);
+		} finally {
+			context.getScrollEvents().free(event);
+		}
 	}
 
-	private void notifyScroll(Node t, double x, double y) {
+	private void notifyScroll(Node t, double x, double y, ScrollEvent event) {
 		if (t == null)
 			return;
 
 		ObservableList<Node> children = t.getChildren();
 		for (int i = 0; i < children.size(); i++) {
-			notifyScroll(children.get(i), x, y);
+			notifyScroll(children.get(i), x, y, event);
 		}
 		if (t.mouseScrollEventInternal != null) {
-			EventHelper.fireEvent(t.mouseScrollEventInternal, new ScrollEvent(x, y));
+			EventHelper.fireEvent(t.mouseScrollEventInternal, event.set(x, y));
 		}
 		if (t.mouseScrollEvent != null) {
-			EventHelper.fireEvent(t.mouseScrollEvent, new ScrollEvent(x, y));
+			EventHelper.fireEvent(t.mouseScrollEvent, event.set(x, y));
 		}
 	}
 
@@ -325,6 +325,11 @@ public final class WindowManager {
 			windows.remove(window);
 		}
 		glfwPollEvents();
+
+		// Hand the coalesced input over to the window threads
+		for (int i = 0; i < windows.size(); i++) {
+			windows.get(i).flushInput();
+		}
 	}
 
 	/**
@@ -370,6 +375,17 @@ public final class WindowManager {
 		return windows.isEmpty();
 	}
 
+	/**
+	 * Requests a redraw of every open {@link Window}. Can be called from any
+	 * thread; the windows are woken from the main thread.
+	 */
+	public static void requestRedrawAll() {
+		runLater(() -> {
+			for (int i = 0; i < windows.size(); i++)
+				windows.get(i).requestRedraw();
+		});
+	}
+
 	/**
 	 * Executes code at the beginning of the next frame or if the caller's thread is
 	 * the main thread it is executed immediately.
@@ -44,7 +44,8 @@ public class WindowThread extends Thread {
 	}
 
 	/**
-	 * Called before {@link Window#render()}
+	 * Called before {@link Window#render()}. With {@link Window#setRenderOnDemand(boolean)} enabled this is only
+	 * called for frames that are actually rendered.
 	 */
 	protected void update() {
 	}
@@ -62,6 +63,7 @@ public class WindowThread extends Thread {
 		WindowManager.createWindow(handle, window, true);
 		init(window);
 		while (!window.isCloseRequested()) {
+			window.waitForRedraw();
 			update();
 			window.render();
 			window.updateDisplay(0);
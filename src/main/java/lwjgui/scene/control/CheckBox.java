@@ -68,6 +68,9 @@ public class CheckBox extends ButtonBase {
 	}
 	
 	public void setSize(int size) {
+		if ( this.size != size )
+			requestLayout();
+		
 		this.size = size;
 	}
 
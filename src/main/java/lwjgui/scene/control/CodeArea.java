@@ -6,6 +6,7 @@ import org.lwjgl.nanovg.NanoVG;
 import lwjgui.LWJGUIUtil;
 import lwjgui.event.KeyEvent;
 import lwjgui.font.Font;
+import lwjgui.font.FontStyle;
 import lwjgui.geometry.Insets;
 import lwjgui.geometry.Pos;
 import lwjgui.paint.Color;
@@ -13,7 +14,6 @@ import lwjgui.scene.Context;
 import lwjgui.scene.Node;
 import lwjgui.scene.control.TextInputControl.TextInputControlShortcuts;
 import lwjgui.scene.layout.Pane;
-import lwjgui.scene.layout.VBox;
 import lwjgui.theme.Theme;
 
 public class CodeArea extends TextArea {
@@ -113,6 +113,9 @@ public class CodeArea extends TextArea {
 		// Update padding
 		//this.internalScrollPane.setInternalPadding(new Insets(internalScrollPane.getInternalPadding().getTop(), internalScrollPane.getInternalPadding().getRight(), internalScrollPane.getInternalPadding().getBottom(), lineCounter.getWidth()+2));
 		this.internalScrollPane.setInternalPadding(new Insets(internalScrollPane.getInternalPadding().getTop(), internalScrollPane.getInternalPadding().getRight(), internalScrollPane.getInternalPadding().getBottom(), lineCounter.getWidth()+2));
+		
+		// Pin the gutter to the left edge. Scrolling lays us out again, so it follows the content vertically.
+		lineCounter.pin();
 	}
 	
 	@Override
@@ -145,15 +148,22 @@ public class CodeArea extends TextArea {
 		}
 	}
 	
-	class LineCounterNode extends VBox {
-		int lastLines = -1;
+	/**
+	 * Gutter that draws the line numbers of the rows inside the viewport. It has no child nodes, so its cost depends
+	 * on the height of the viewport instead of the amount of lines.
+	 */
+	class LineCounterNode extends Pane {
+		private static final int PADDING = 4;
+		
+		private int lines;
+		private int measuredDigits = -1;
+		private int measuredFontSize = -1;
+		private float[] bounds = new float[4];
 		
 		public LineCounterNode() {
 			this.setFillToParentWidth(false);
 			this.setFillToParentHeight(true);
 			this.setMouseTransparent(true);
-			this.setPadding(new Insets(0,4,0,0));
-			this.setAlignment(Pos.TOP_LEFT);
 			this.setBackgroundLegacy(null);
 			this.setPrefWidth(0);
 			this.flag_clip = false;
@@ -162,31 +172,36 @@ public class CodeArea extends TextArea {
 		@Override
 		public void position(Node parent) {
 			super.position(parent);
-			
-			this.setAbsolutePosition(CodeArea.this.getX(), internalScrollPane.getContent().getY()+2);
-			this.updateChildren();
+			pin();
+		}
+		
+		void pin() {
+			double x = CodeArea.this.getX();
+			double y = internalScrollPane.getContent().getY()+2;
+			if ( x != getX() || y != getY() )
+				this.setAbsolutePosition(x, y);
 		}
 		
 		public void update(int lines) {
-			if ( lines != lastLines ) {
-				lastLines = lines;
-				
-				// Add line labels in
-				getChildren().clear();
-				for (int i = 0; i < lines; i++) {
-					Label l = new Label(" "+(i+1)) {
-						@Override
-						public void render(Context context) {
-							Pane viewport = CodeArea.this.getInternalScrollPane().getViewport();
-							NanoVG.nvgScissor(context.getNVG(), (int)viewport.getX(), (int)viewport.getY(), (int)viewport.getWidth(), (int)viewport.getHeight());
-							super.render(context);
-						}
-					};
-					l.setFontSize(fontSize);
-					l.setFont(Font.COURIER);
-					getChildren().add(l);
-				}
-			}
+			this.lines = lines;
+			
+			// Only measure again if the widest line number gets another digit
+			int digits = Integer.toString(Math.max(1, lines)).length();
+			if ( digits == measuredDigits && fontSize == measuredFontSize )
+				return;
+			
+			Context context = window.getContext();
+			if ( context == null )
+				return;
+			
+			StringBuilder widest = new StringBuilder(" ");
+			for (int i = 0; i < digits; i++)
+				widest.append('9');
+			
+			float[] b = Font.COURIER.getTextBounds(context, widest.toString(), FontStyle.REGULAR, fontSize, bounds);
+			this.setPrefWidth(Math.ceil(b[2]-b[0]) + PADDING);
+			this.measuredDigits = digits;
+			this.measuredFontSize = fontSize;
 		}
 		
 		@Override
@@ -195,9 +210,24 @@ public class CodeArea extends TextArea {
 			LWJGUIUtil.fillRect(context, CodeArea.this.getX(), CodeArea.this.getY(), getWidth(), CodeArea.this.getInnerBounds().getHeight()-2, Theme.current().getPane());
 			LWJGUIUtil.fillRect(context, CodeArea.this.getX()+getWidth(), CodeArea.this.getY(), 1, CodeArea.this.getInnerBounds().getHeight()-2, Theme.current().getSelectionPassive());
 			
-			this.position(this.getParent());
-
-			super.render(context);
+			if ( lines == 0 || fontSize <= 0 )
+				return;
+			
+			// Find the rows inside the viewport
+			Pane viewport = CodeArea.this.getInternalScrollPane().getViewport();
+			double top = this.getY();
+			int firstRow = (int) Math.max(0, Math.floor((viewport.getY()-top)/fontSize));
+			int lastRow = (int) Math.min(lines-1, Math.ceil((viewport.getY()+viewport.getHeight()-top)/fontSize));
+			
+			// Draw line numbers
+			long vg = context.getNVG();
+			NanoVG.nvgSave(vg);
+			NanoVG.nvgScissor(vg, (int)viewport.getX(), (int)viewport.getY(), (int)viewport.getWidth(), (int)viewport.getHeight());
+			Color color = Theme.current().getText();
+			for (int i = firstRow; i <= lastRow; i++) {
+				LWJGUIUtil.drawText(context, " "+(i+1), Font.COURIER, FontStyle.REGULAR, fontSize, color, this.getX(), top+i*fontSize, Pos.TOP_LEFT);
+			}
+			NanoVG.nvgRestore(vg);
 		}
 	}
 }
@@ -34,6 +34,10 @@ public abstract class Control extends FillableRegion {
 	}
 	
 	public void setDisabled(boolean disabled) {
+		// The :disabled pseudo class is matched again when the control is laid out
+		if ( this.disabled != disabled )
+			requestLayout();
+		
 		this.disabled = disabled;
 	}
 	
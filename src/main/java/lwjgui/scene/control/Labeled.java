@@ -13,8 +13,6 @@ import lwjgui.paint.Color;
 import lwjgui.scene.Context;
 import lwjgui.scene.Node;
 import lwjgui.style.Shadow;
-import lwjgui.style.StyleOperationDefinitions;
-import lwjgui.style.Stylesheet;
 import lwjgui.theme.Theme;
 
 public abstract class Labeled extends Control {
@@ -46,9 +44,13 @@ public abstract class Labeled extends Control {
 	 * @param text
 	 */
 	public void setText(String text) {
+		if ( text == this.text || (text != null && text.equals(this.text)) )
+			return;
+		
 		this.text = text;
 		this.cachedHeight = -1;
 		this.cachedWidth = -1;
+		requestLayout();
 	}
 
 	/**
@@ -56,9 +58,13 @@ public abstract class Labeled extends Control {
 	 * @param font
 	 */
 	public void setFont(Font font) {
+		if ( font == this.font )
+			return;
+		
 		this.font = font;
 		this.cachedHeight = -1;
 		this.cachedWidth = -1;
+		requestLayout();
 	}
 
 	/**
@@ -72,6 +78,7 @@ public abstract class Labeled extends Control {
 		this.fontSize = size;
 		this.cachedHeight = -1;
 		this.cachedWidth = -1;
+		requestLayout();
 	}
 
 	/**
@@ -85,6 +92,7 @@ public abstract class Labeled extends Control {
 		this.fontStyle = style;
 		this.cachedHeight = -1;
 		this.cachedWidth = -1;
+		requestLayout();
 	}
 	
 	/**
@@ -125,9 +133,13 @@ public abstract class Labeled extends Control {
 	 * @param gap
 	 */
 	public void setGraphicTextGap( double gap ) {
+		if ( gap == this.contentGap )
+			return;
+		
 		this.contentGap = gap;
 		this.cachedHeight = -1;
 		this.cachedWidth = -1;
+		requestLayout();
 	}
 	
 	/**
@@ -148,7 +160,11 @@ public abstract class Labeled extends Control {
 		if ( display == null )
 			display = ContentDisplay.LEFT;
 		
+		if ( display == this.contentDisplay )
+			return;
+		
 		this.contentDisplay = display;
+		requestLayout();
 	}
 	
 	/**
@@ -169,9 +185,6 @@ public abstract class Labeled extends Control {
 		
 		super.resize();
 		
-		// Get some font CSS from ancestors!
-		Stylesheet.findAndApplyStyle(this.window.getContext().getCurrentStyling(), this, this.getParent(), StyleOperationDefinitions.FONT_SIZE, StyleOperationDefinitions.COLOR);
-		
 		// Dont check for resizing
 		boolean checkResize = false;
 		
@@ -302,6 +315,7 @@ public abstract class Labeled extends Control {
 		if ( !context.isFontLoaded(font) ) {
 			LWJGUI.runLater(()->{
 				context.loadFont(font);
+				requestLayout();
 			});
 			return;
 		}
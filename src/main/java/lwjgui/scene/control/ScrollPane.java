@@ -60,7 +60,7 @@ public class ScrollPane extends Pane {
 				vBar.pixel = newvPixel;
 				hBar.pixel = newhPixel;
 				
-				position(this.getParent());
+				requestLayout();
 			}
 		});
 		
@@ -74,6 +74,8 @@ public class ScrollPane extends Pane {
 		super.position(node);
 		//this.internalCanvas.position(this);
 		
+		float oldViewportWidth = this.viewport.x;
+		float oldViewportHeight = this.viewport.y;
 		this.viewport.set((float)this.getInnerBounds().getWidth(), (float)this.getInnerBounds().getHeight());
 		if ( hBar.active )
 			this.viewport.y -= (thickness+barPadding*2);
@@ -83,12 +85,20 @@ public class ScrollPane extends Pane {
 		updateBars();
 		
 		// Update internal canvas
+		this.internalCanvas.sizing = true;
 		this.internalCanvas.forceSize(Integer.MAX_VALUE,Integer.MAX_VALUE);
 		this.internalCanvas.setParent(null);
+		if ( content != null && (oldViewportWidth != viewport.x || oldViewportHeight != viewport.y) )
+			content.requestLayout();
 		this.internalCanvas.updateChildren();
 		this.internalCanvas.setParent(this);
 		internalCanvas.setAbsolutePosition(getX()+this.getInnerBounds().getX(), getY()+this.getInnerBounds().getY());
 		internalCanvas.forceSize(this.viewport.x, this.viewport.y);
+		this.internalCanvas.sizing = false;
+		
+		// Content changed size while laid out, we need another pass to fit it
+		if ( content != null && content.isLayoutDirty() )
+			requestLayout();
 		
 		
 		// Position content relative to scrollbars
@@ -179,14 +189,17 @@ public class ScrollPane extends Pane {
 	
 	public void setVvalue(double value) {
 		vBar.pixel = value*vBar.contentLen;
+		requestLayout();
 	}
 	
 	public void setHvalue(double value) {
 		hBar.pixel = value*hBar.contentLen;
+		requestLayout();
 	}
 	
 	public void setVbarPolicy( ScrollBarPolicy policy ) {
 		this.vBar.policy = policy;
+		requestLayout();
 	}
 	
 	public ScrollBarPolicy getVbarPolicy() {
@@ -195,6 +208,7 @@ public class ScrollPane extends Pane {
 	
 	public void setHbarPolicy( ScrollBarPolicy policy ) {
 		this.hBar.policy = policy;
+		requestLayout();
 	}
 	
 	public ScrollBarPolicy getHbarPolicy() {
@@ -203,6 +217,7 @@ public class ScrollPane extends Pane {
 	
 	public void setScrollBarThickness(double thickness) {
 		this.thickness = thickness;
+		requestLayout();
 	}
 	
 	@Override
@@ -231,6 +246,7 @@ public class ScrollPane extends Pane {
 		
 		this.internalCanvas.getChildren().clear();
 		this.internalCanvas.getChildren().add(content);
+		requestLayout();
 	}
 	
 	/**
@@ -245,6 +261,15 @@ public class ScrollPane extends Pane {
 		return this.content;
 	}
 	
+	@Override
+	protected void updateChildrenLocalRecursive() {
+		super.updateChildrenLocalRecursive();
+		
+		// The canvas is not part of our children, so bring it along manually
+		internalCanvas.setAbsolutePosition(getX()+this.getInnerBounds().getX(), getY()+this.getInnerBounds().getY());
+		internalCanvas.updateChildrenLocalRecursive();
+	}
+	
 	public void setInternalPadding(Insets insets) {
 		this.internalCanvas.setPadding(insets);
 	}
@@ -305,6 +330,8 @@ public class ScrollPane extends Pane {
 	}
 	
 	class ScrollPaneCanvas extends Pane {
+		private boolean sizing;
+		
 		ScrollPaneCanvas() {
 			this.setAlignment(Pos.TOP_LEFT);
 			this.setPadding(Insets.EMPTY);
@@ -319,6 +346,21 @@ public class ScrollPane extends Pane {
 			this.parent = node;
 		}
 		
+		@Override
+		public void requestLayout() {
+			// Resizing the canvas around its content must not invalidate the scroll pane
+			if ( sizing )
+				return;
+			
+			super.requestLayout();
+		}
+		
+		@Override
+		protected void updateChildrenLocalRecursive() {
+			// Overridden so that the owning scroll pane may call it
+			super.updateChildrenLocalRecursive();
+		}
+		
 		@Override
 		public void position(Node parent) {
 			this.setBorderRadii(ScrollPane.this.getBorderRadii());
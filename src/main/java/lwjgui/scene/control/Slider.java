@@ -66,6 +66,9 @@ public class Slider extends Control {
 	}
 	
 	public void setDisabled(boolean disabled) {
+		if ( this.disabled != disabled )
+			requestLayout();
+		
 		this.disabled = disabled;
 	}
 	
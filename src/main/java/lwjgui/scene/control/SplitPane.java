@@ -297,6 +297,9 @@ public class SplitPane extends Control {
 	}
 
 	public void setOrientation( Orientation orientation ) {
+		if ( this.orientation != orientation )
+			requestLayout();
+		
 		this.orientation = orientation;
 
 		// Re add dividers into holder
@@ -462,6 +465,8 @@ public class SplitPane extends Control {
 		position = Math.min( maxPos, Math.max(minPos, position) );
 
 		// Set position
+		if ( d.position != position )
+			requestLayout();
 		d.position = position;
 	}
 
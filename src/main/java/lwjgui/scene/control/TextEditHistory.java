@@ -0,0 +1,188 @@
+package lwjgui.scene.control;
+
+import java.util.ArrayDeque;
+
+/**
+ * Undo/redo history of a {@link TextInputControl}, stored as edit deltas instead of copies of the text.<br>
+ * Consecutive typing (or deleting) is merged into a single edit until a checkpoint is set. The oldest edits are
+ * dropped once the history uses more memory than its budget.
+ */
+class TextEditHistory {
+	/**
+	 * Default memory budget in bytes.
+	 */
+	public static final int DEFAULT_MEMORY_BUDGET = 8 * 1024 * 1024;
+
+	private static final int EDIT_OVERHEAD = 64;
+
+	private final ArrayDeque<Edit> undo = new ArrayDeque<Edit>();
+	private final ArrayDeque<Edit> redo = new ArrayDeque<Edit>();
+	private long memory;
+	private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+	private boolean checkpoint = true;
+
+	/**
+	 * Forces the next recorded edit to start a new undo step.
+	 */
+	public void checkpoint() {
+		this.checkpoint = true;
+	}
+
+	/**
+	 * Records that the text at the supplied offset was replaced.
+	 * @param offset where the edit happened
+	 * @param removed text that was removed (may be empty)
+	 * @param inserted text that was inserted (may be empty)
+	 * @param caret caret position before the edit
+	 */
+	public void record(int offset, String removed, String inserted, int caret) {
+		if ( removed.length() == 0 && inserted.length() == 0 )
+			return;
+
+		// New edits discard the redo history
+		while ( !redo.isEmpty() )
+			memory -= redo.pollLast().getMemory();
+
+		Edit last = undo.peekLast();
+		if ( !checkpoint && last != null && last.merge(offset, removed, inserted) ) {
+			memory += 2L * (removed.length() + inserted.length());
+		} else {
+			Edit edit = new Edit(offset, removed, inserted, caret);
+			undo.addLast(edit);
+			memory += edit.getMemory();
+		}
+		checkpoint = false;
+
+		trim();
+	}
+
+	/**
+	 * Returns the edit to undo, moving it to the redo history. Returns null if there is nothing to undo.
+	 * @return
+	 */
+	public Edit undo() {
+		Edit edit = undo.pollLast();
+		if ( edit != null )
+			redo.addLast(edit);
+		checkpoint = true;
+		return edit;
+	}
+
+	/**
+	 * Returns the edit to redo, moving it back to the undo history. Returns null if there is nothing to redo.
+	 * @return
+	 */
+	public Edit redo() {
+		Edit edit = redo.pollLast();
+		if ( edit != null )
+			undo.addLast(edit);
+		checkpoint = true;
+		return edit;
+	}
+
+	public void clear() {
+		undo.clear();
+		redo.clear();
+		memory = 0;
+		checkpoint = true;
+	}
+
+	/**
+	 * Sets the amount of bytes the history may use. The most recent edit is always kept.
+	 * @param bytes
+	 */
+	public void setMemoryBudget(long bytes) {
+		this.memoryBudget = Math.max(0, bytes);
+		trim();
+	}
+
+	public long getMemoryBudget() {
+		return this.memoryBudget;
+	}
+
+	/**
+	 * Returns an estimate of the amount of bytes used by the history.
+	 * @return
+	 */
+	public long getMemoryUsage() {
+		return this.memory;
+	}
+
+	private void trim() {
+		while ( memory > memoryBudget && undo.size() > 1 )
+			memory -= undo.pollFirst().getMemory();
+	}
+
+	static class Edit {
+		private int offset;
+		private final StringBuilder removed;
+		private final StringBuilder inserted;
+		private final int caret;
+
+		Edit(int offset, String removed, String inserted, int caret) {
+			this.offset = offset;
+			this.removed = new StringBuilder(removed);
+			this.inserted = new StringBuilder(inserted);
+			this.caret = caret;
+		}
+
+		/**
+		 * Tries to extend this edit with a following edit of the same kind.
+		 */
+		private boolean merge(int offset, String removed, String inserted) {
+			// Typing
+			if ( removed.length() == 0 && this.removed.length() == 0 && offset == this.offset + this.inserted.length() ) {
+				this.inserted.append(inserted);
+				return true;
+			}
+
+			if ( inserted.length() == 0 && this.inserted.length() == 0 ) {
+				// Deleting backwards
+				if ( offset + removed.length() == this.offset ) {
+					this.removed.insert(0, removed);
+					this.offset = offset;
+					return true;
+				}
+
+				// Deleting forwards
+				if ( offset == this.offset ) {
+					this.removed.append(removed);
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		public int getOffset() {
+			return offset;
+		}
+
+		public String getRemoved() {
+			return removed.toString();
+		}
+
+		public String getInserted() {
+			return inserted.toString();
+		}
+
+		public int getRemovedLength() {
+			return removed.length();
+		}
+
+		public int getInsertedLength() {
+			return inserted.length();
+		}
+
+		/**
+		 * Returns the caret position before this edit was made.
+		 */
+		public int getCaret() {
+			return caret;
+		}
+
+		private long getMemory() {
+			return EDIT_OVERHEAD + 2L * (removed.length() + inserted.length());
+		}
+	}
+}
@@ -0,0 +1,306 @@
+package lwjgui.scene.control;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import lwjgui.scene.control.TextInputControl.TextHighlighter;
+
+/**
+ * Highlighting of a {@link TextInputControl}, stored as an array of spans sorted by start offset.<br>
+ * A segment tree over that array stores the largest end offset of each range of spans. A lookup binary searches the
+ * spans starting at or before the offset and only descends into ranges that reach the offset, so it visits the spans
+ * containing the offset plus a logarithmic number of nodes, no matter how long earlier spans are. When spans overlap,
+ * the one added first wins, like it did when the highlighting was a plain list.<br>
+ * End offsets are inclusive. Edits of the text move the spans along with it, see {@link #insert(int, int)} and
+ * {@link #delete(int, int)}.
+ */
+class TextHighlightIndex {
+	private static final Comparator<TextHighlighter> ORDER = new Comparator<TextHighlighter>() {
+		@Override
+		public int compare(TextHighlighter a, TextHighlighter b) {
+			if ( a.getStartIndex() != b.getStartIndex() )
+				return Integer.compare(a.getStartIndex(), b.getStartIndex());
+			return Integer.compare(a.order, b.order);
+		}
+	};
+
+	private static final int NONE = Integer.MIN_VALUE;
+
+	private TextHighlighter[] spans = new TextHighlighter[16];
+	private int size;
+	private int nextOrder;
+
+	private boolean sorted = true;
+
+	// Segment tree of the largest end offsets. Node 1 is the root, the leaves start at index leaves.
+	private int[] tree = { NONE, NONE };
+	private int leaves = 1;
+	// Leaves that held spans when the tree was last updated, and the first leaf that is out of date
+	private int treeSize;
+	private int validTree;
+
+	// Result of the last stab()
+	private TextHighlighter stabBest;
+	private int stabEnd;
+
+	/**
+	 * Adds a span. Spans added in ascending start order are appended without having to sort again.
+	 * @param highlighter
+	 */
+	public void add(TextHighlighter highlighter) {
+		if ( size == spans.length )
+			spans = Arrays.copyOf(spans, size * 2);
+
+		highlighter.order = nextOrder++;
+		if ( size > 0 && spans[size-1].getStartIndex() > highlighter.getStartIndex() )
+			sorted = false;
+		spans[size++] = highlighter;
+	}
+
+	/**
+	 * Removes all spans.
+	 */
+	public void clear() {
+		Arrays.fill(spans, 0, size, null);
+		size = 0;
+		nextOrder = 0;
+		sorted = true;
+		validTree = 0;
+	}
+
+	/**
+	 * Removes all spans that overlap the supplied offsets (start inclusive, end exclusive), including spans that
+	 * start before the range and reach into it.
+	 * @param start
+	 * @param end
+	 * @return the index of the first span starting at or after the start offset, where the gap was closed
+	 */
+	public int remove(int start, int end) {
+		prepare();
+
+		// Spans starting at or after the end do not overlap, only the ones before them have to be checked
+		int to = firstStartAtOrAfter(end);
+		int from = to;
+		for (int i = 0; i < to; i++) {
+			if ( spans[i].getEndIndex() >= start ) {
+				from = i;
+				break;
+			}
+		}
+
+		int kept = from;
+		for (int i = from; i < to; i++) {
+			if ( spans[i].getEndIndex() < start )
+				spans[kept++] = spans[i];
+		}
+
+		if ( kept < to ) {
+			System.arraycopy(spans, to, spans, kept, size - to);
+			Arrays.fill(spans, size - (to - kept), size, null);
+			size -= to - kept;
+			validTree = Math.min(validTree, from);
+		}
+		return firstStartAtOrAfter(start);
+	}
+
+	/**
+	 * Replaces the spans overlapping the supplied offsets (start inclusive, end exclusive) with the supplied ones.
+	 * New spans that lie within the range are spliced into place without sorting all spans again.
+	 * @param start
+	 * @param end
+	 * @param highlighters
+	 */
+	public void replace(int start, int end, List<? extends TextHighlighter> highlighters) {
+		int at = remove(start, end);
+
+		TextHighlighter[] added = highlighters.toArray(new TextHighlighter[highlighters.size()]);
+		for (int i = 0; i < added.length; i++)
+			added[i].order = nextOrder++;
+		Arrays.sort(added, ORDER);
+
+		// Spans starting outside of the range have to be sorted in with the others
+		boolean inside = added.length == 0 || (added[0].getStartIndex() >= start && added[added.length-1].getStartIndex() < end);
+		if ( !inside ) {
+			for (int i = 0; i < added.length; i++) {
+				if ( size == spans.length )
+					spans = Arrays.copyOf(spans, size * 2);
+				spans[size++] = added[i];
+			}
+			sorted = false;
+			return;
+		}
+
+		if ( size + added.length > spans.length )
+			spans = Arrays.copyOf(spans, Math.max(size * 2, size + added.length));
+		System.arraycopy(spans, at, spans, at + added.length, size - at);
+		System.arraycopy(added, 0, spans, at, added.length);
+		size += added.length;
+		validTree = Math.min(validTree, at);
+	}
+
+	/**
+	 * Moves the spans along with text inserted at the supplied offset. Spans after the offset are shifted, spans
+	 * containing it grow by the inserted length.
+	 * @param index
+	 * @param length
+	 */
+	public void insert(int index, int length) {
+		if ( length <= 0 || size == 0 )
+			return;
+
+		prepare();
+		for (int i = 0; i < size; i++) {
+			TextHighlighter span = spans[i];
+			int start = span.getStartIndex();
+			int end = span.getEndIndex();
+			if ( start >= index )
+				span.setRange(start + length, end + length);
+			else if ( end >= index )
+				span.setRange(start, end + length);
+		}
+		validTree = 0;
+	}
+
+	/**
+	 * Moves the spans along with text deleted between the supplied offsets (start inclusive, end exclusive). Spans
+	 * after the range are shifted, spans overlapping it are cut and dropped once nothing of them is left.
+	 * @param start
+	 * @param end
+	 */
+	public void delete(int start, int end) {
+		int length = end - start;
+		if ( length <= 0 || size == 0 )
+			return;
+
+		// Shifting keeps the start order, since every start offset moves to the same or a later position than the
+		// start offsets before it
+		prepare();
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			TextHighlighter span = spans[i];
+			int s = span.getStartIndex();
+			int e = span.getEndIndex();
+			if ( s >= end ) {
+				span.setRange(s - length, e - length);
+			} else if ( e >= start ) {
+				s = Math.min(s, start);
+				e = e >= end ? e - length : start - 1;
+				if ( e < s )
+					continue;
+				span.setRange(s, e);
+			}
+			spans[kept++] = span;
+		}
+
+		Arrays.fill(spans, kept, size, null);
+		size = kept;
+		validTree = 0;
+	}
+
+	/**
+	 * Returns the span containing the supplied offset. Returns null if there is none.
+	 * @param position
+	 * @return
+	 */
+	public TextHighlighter get(int position) {
+		prepare();
+		stab(position);
+		return stabBest;
+	}
+
+	/**
+	 * Returns the first offset after the supplied offset at which {@link #get(int)} can return a different span.
+	 * Everything in between shares the same highlighting, which lets the renderer draw it as one run.
+	 * @param position
+	 * @return
+	 */
+	public int nextBoundary(int position) {
+		prepare();
+
+		int next = firstStartAtOrAfter(position + 1);
+		int boundary = next < size ? spans[next].getStartIndex() : Integer.MAX_VALUE;
+		stab(position);
+		if ( stabBest != null )
+			boundary = Math.min(boundary, stabEnd + 1);
+
+		return boundary;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private void prepare() {
+		if ( !sorted ) {
+			Arrays.sort(spans, 0, size, ORDER);
+			sorted = true;
+			validTree = 0;
+		}
+
+		if ( size > leaves ) {
+			while ( leaves < size )
+				leaves <<= 1;
+			tree = new int[leaves * 2];
+			Arrays.fill(tree, NONE);
+			treeSize = 0;
+			validTree = 0;
+		}
+
+		// Update the changed leaves, and the nodes above them level by level
+		int high = Math.max(size, treeSize);
+		if ( validTree < high ) {
+			for (int i = validTree; i < high; i++)
+				tree[leaves + i] = i < size ? spans[i].getEndIndex() : NONE;
+			for (int lo = (leaves + validTree) >> 1, hi = (leaves + high - 1) >> 1; lo >= 1; lo >>= 1, hi >>= 1) {
+				for (int node = lo; node <= hi; node++)
+					tree[node] = Math.max(tree[node * 2], tree[node * 2 + 1]);
+			}
+		}
+		treeSize = size;
+		validTree = size;
+	}
+
+	/**
+	 * Finds the spans containing the offset. Stores the one added first in stabBest and the smallest end offset of
+	 * all of them in stabEnd.
+	 */
+	private void stab(int position) {
+		stabBest = null;
+		stabEnd = Integer.MAX_VALUE;
+		stab(1, 0, leaves, firstStartAtOrAfter(position + 1), position);
+	}
+
+	private void stab(int node, int lo, int hi, int limit, int position) {
+		// Only spans starting at or before the offset, and only ranges that reach it
+		if ( lo >= limit || tree[node] < position )
+			return;
+
+		if ( node >= leaves ) {
+			TextHighlighter span = spans[lo];
+			if ( span.contains(position) ) {
+				if ( stabBest == null || span.order < stabBest.order )
+					stabBest = span;
+				stabEnd = Math.min(stabEnd, span.getEndIndex());
+			}
+			return;
+		}
+
+		int mid = (lo + hi) >>> 1;
+		stab(node * 2, lo, mid, limit, position);
+		stab(node * 2 + 1, mid, hi, limit, position);
+	}
+
+	private int firstStartAtOrAfter(int position) {
+		int low = 0;
+		int high = size;
+		while ( low < high ) {
+			int mid = (low + high) >>> 1;
+			if ( spans[mid].getStartIndex() < position )
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+}
@@ -1,17 +1,21 @@
 package lwjgui.scene.control;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.lwjgl.BufferUtils;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.nanovg.NVGGlyphPosition;
 import org.lwjgl.nanovg.NanoVG;
 import org.lwjgl.system.MemoryStack;
 
 import lwjgui.LWJGUIUtil;
+import lwjgui.collections.FenwickTree;
 import lwjgui.collections.ObservableList;
-import lwjgui.collections.StateStack;
+import lwjgui.collections.PieceTable;
 import lwjgui.event.Event;
 import lwjgui.event.EventHandler;
 import lwjgui.event.EventHelper;
@@ -43,7 +47,9 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 	ArrayList<String> lines;
 	ArrayList<ArrayList<GlyphData>> glyphData;
 	ArrayList<String> linesDraw;
-	private String source = "";
+	private PieceTable source = new PieceTable();
+	private FenwickTree lineOffsets = new FenwickTree();
+	private float maxTextWidth = -1;
 	int caretPosition;
 	protected boolean editing = false;
 	protected boolean editable = true;
@@ -63,8 +69,8 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 	protected TextInputScrollPane internalScrollPane;
 	protected TextInputContentRenderer internalRenderingPane;
 	
-	private StateStack<TextState> undoStack;
-	private boolean forceSaveState;
+	private TextEditHistory history = new TextEditHistory();
+	private boolean restoringHistory;
 
 	private EventHandler<Event> onSelectEvent;
 	private EventHandler<Event> onDeselectEvent;
@@ -73,8 +79,6 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 	private String prompt = null;
 	
 	private TextParser textParser;
-
-	private static final int MAX_LINES = Integer.MAX_VALUE;
 	
 	/*
 	 * Visual customization
@@ -114,7 +118,6 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 		internalScrollPane.setContent(internalRenderingPane);
 		children.add(internalScrollPane);
 		
-		undoStack = new StateStack<TextState>();
 		setText("");
 		saveState();
 		this.flag_clip = false;
@@ -124,10 +127,6 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 			public void handle(TypeEvent event) {
 				if (!editing) return;
 				
-				if ( forceSaveState ) {
-					saveState();
-					forceSaveState = false;
-				}
 				deleteSelection();
 				insertText(caretPosition, event.getCharacterString());
 				setCaretPosition(caretPosition+1);
@@ -148,12 +147,28 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 		});
 	}
 	
+	/**
+	 * Ends the current undo step. The next edit starts a new one.
+	 */
 	protected void saveState() {
-		undoStack.Push(new TextState(getText(),caretPosition));
+		history.checkpoint();
+	}
+	
+	/**
+	 * Sets the amount of memory (in bytes) the undo history may use. Once exceeded, the oldest edits are forgotten.
+	 * @param bytes
+	 */
+	public void setUndoMemoryBudget(long bytes) {
+		history.setMemoryBudget(bytes);
+	}
+	
+	public long getUndoMemoryBudget() {
+		return history.getMemoryBudget();
 	}
 	
 	public void setWordWrap(boolean wrap) {
 		wordWrap = wrap;
+		requestLayout();
 	}
 	
 	public boolean isWordWrap() {
@@ -179,12 +194,18 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 		if (text == null)
 			return;
 		
-		boolean changed = true;
-		if ( this.source != null && this.source.equals(text) )
-			changed = false;
+		text = text.replace("\r", "");
+		boolean changed = !this.source.toString().equals(text);
 		
 		int oldCaret = caretPosition;
 		
+		// Replacing the whole text is its own undo step
+		if ( changed && !restoringHistory ) {
+			history.checkpoint();
+			history.record(0, source.toString(), text, oldCaret);
+			history.checkpoint();
+		}
+		
 		if ( lines == null ) {
 			this.lines = new ArrayList<String>();
 			this.linesDraw = new ArrayList<String>();
@@ -194,10 +215,11 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 			this.linesDraw.clear();
 			this.glyphData.clear();
 		}
+		this.lineOffsets.clear();
 		this.caretPosition = 0;
+		this.maxTextWidth = -1;
 		String trail = "[!$*]T!R@A#I$L%I^N&G[!$*]"; // Naive fix to allow trailing blank lines to still be parsed
-		text = text.replace("\r", "");
-		this.source = text;
+		this.source.set(text);
 
 		String temp = text + trail; // Add tail
 		String[] split = temp.split("\n");
@@ -210,6 +232,14 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 			addRow(tt);
 		}
 		setCaretPosition(oldCaret);
+		textModified(changed);
+	}
+	
+	/**
+	 * Called after the text has been modified. Relayouts the control and fires the on text change event.
+	 */
+	private void textModified(boolean changed) {
+		requestLayout();
 		
 		// Fire on text change event
 		if ( onTextChange != null && changed ) {
@@ -217,7 +247,45 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 		}
 	}
 	
+	/**
+	 * Replaces the rows from firstRow to lastRow (inclusive) with the rows contained in the supplied text.
+	 * Only these rows are measured again.
+	 */
+	private void replaceRows(int firstRow, int lastRow, String text) {
+		boolean endsWithNewLine = lines.get(lastRow).endsWith("\n");
+		
+		// Remove old rows. If the widest row is removed, the width needs to be recalculated.
+		for (int i = firstRow; i <= lastRow && maxTextWidth >= 0; i++) {
+			if ( getRowWidth(i) >= maxTextWidth )
+				maxTextWidth = -1;
+		}
+		lines.subList(firstRow, lastRow+1).clear();
+		linesDraw.subList(firstRow, lastRow+1).clear();
+		glyphData.subList(firstRow, lastRow+1).clear();
+		lineOffsets.remove(firstRow, lastRow+1);
+		
+		// Add new rows. Each row keeps its line break.
+		int row = firstRow;
+		int start = 0;
+		while ( true ) {
+			int end = text.indexOf('\n', start);
+			if ( end == -1 ) {
+				// Text after the last line break belongs to the next row, unless there is nothing left to add
+				if ( start < text.length() || !endsWithNewLine )
+					addRow(row++, text.substring(start));
+				break;
+			}
+			
+			addRow(row++, text.substring(start, end+1));
+			start = end+1;
+		}
+	}
+	
 	private void addRow(String originalText) {
+		addRow(lines.size(), originalText);
+	}
+	
+	private void addRow(int row, String originalText) {
 		String drawLine = originalText;
 		
 		ArrayList<GlyphData> glyphEntry = new ArrayList<GlyphData>();
@@ -275,21 +343,19 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 			index++;
 		}*/
 		
-		glyphData.add(glyphEntry);
+		glyphData.add(row, glyphEntry);
 		
 		// Get decorated line
 		if ( this.textParser != null )
 			drawLine = textParser.parseText(drawLine);
 		
 		// Add line normally
-		lines.add(originalText);
-		linesDraw.add(drawLine);
+		lines.add(row, originalText);
+		linesDraw.add(row, drawLine);
+		lineOffsets.insert(row, originalText.length());
 		
-		while ( lines.size() > MAX_LINES ) {
-			lines.remove(0);
-			linesDraw.remove(0);
-			glyphData.remove(0);
-		}
+		if ( maxTextWidth >= 0 )
+			maxTextWidth = Math.max(maxTextWidth, getRowWidth(row));
 	}
 	
 	public void appendText(String text) {
@@ -300,9 +366,26 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 	}
 	
 	public void insertText(int index, String text) {
-		String before = getText(0, index);
-		String after = getText(index, getLength());
-		setText(before + text + after);
+		if ( text == null )
+			return;
+		
+		text = text.replace("\r", "");
+		index = Math.max(0, Math.min(index, getLength()));
+		
+		if ( text.length() > 0 ) {
+			int row = getRowFromCaret(index);
+			int column = index - getCaretFromRowLine(row, 0);
+			String line = lines.get(row);
+			
+			if ( !restoringHistory )
+				history.record(index, "", text, caretPosition);
+			source.insert(index, text);
+			highlighting.insert(index, text.length());
+			replaceRows(row, row, line.substring(0, column) + text + line.substring(column));
+		}
+		
+		setCaretPosition(caretPosition);
+		textModified(text.length() > 0);
 		deselect();
 	}
 	
@@ -324,13 +407,36 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 	}
 	
 	public void deleteText(IndexRange range) {
+		saveState();
+		removeText(range);
+	}
+	
+	/**
+	 * Deletes text without ending the current undo step, so that consecutive deletes are undone together.
+	 */
+	private void removeText(IndexRange range) {
 		range.normalize();
 		
-		String before = getText(0, range.getStart());
-		String after = getText(range.getEnd(), getLength());
-
-		saveState();
-		setText(before+after);
+		int start = Math.max(0, Math.min(range.getStart(), getLength()));
+		int end = Math.max(start, Math.min(range.getEnd(), getLength()));
+		
+		if ( end > start ) {
+			int startRow = getRowFromCaret(start);
+			int endRow = getRowFromCaret(end);
+			String startLine = lines.get(startRow);
+			String endLine = lines.get(endRow);
+			int startColumn = start - getCaretFromRowLine(startRow, 0);
+			int endColumn = end - getCaretFromRowLine(endRow, 0);
+			
+			if ( !restoringHistory )
+				history.record(start, source.substring(start, end), "", caretPosition);
+			source.delete(start, end);
+			highlighting.delete(start, end);
+			replaceRows(startRow, endRow, startLine.substring(0, startColumn) + endLine.substring(endColumn));
+		}
+		
+		setCaretPosition(caretPosition);
+		textModified(end > start);
 		deselect();
 	}
 	
@@ -340,22 +446,21 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 	
 	public void deletePreviousCharacter() {
 		if (!deleteSelection()) {
-			this.saveState();
 			int old = caretPosition;
-			deleteText(caretPosition-1, caretPosition);
+			removeText(new IndexRange(caretPosition-1, caretPosition));
 			this.setCaretPosition(old-1);
 		}
 	}
 	
 	public void deleteNextCharacter() {
 		if (!deleteSelection()) {
-			this.saveState();
-			deleteText(caretPosition, caretPosition+1);
+			removeText(new IndexRange(caretPosition, caretPosition+1));
 		}
 	}
 	
 	public void setFont(Font font) {
 		this.font = font;
+		requestLayout();
 	}
 	
 	public void setFontFill(Color fontFill) {
@@ -364,10 +469,12 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 	
 	public void setFontSize( int size ) {
 		this.fontSize = size;
+		requestLayout();
 	}
 	
 	public void setFontStyle(FontStyle style) {
 		this.style = style;
+		requestLayout();
 	}
 
 	public Color getSelectionFill() {
@@ -407,27 +514,37 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 	}
 	
 	public void undo() {
-		if ( this.undoStack.isCurrent() ) {
-			this.saveState();
-			this.undoStack.Rewind(); // Extra undo, since we just secretly saved. SHHHH
-		}
-		TextState state = this.undoStack.Rewind();
-		if ( state == null )
+		TextEditHistory.Edit edit = history.undo();
+		if ( edit == null )
 			return;
-		setText(state.text);
+		
+		restoringHistory = true;
+		try {
+			removeText(new IndexRange(edit.getOffset(), edit.getOffset()+edit.getInsertedLength()));
+			insertText(edit.getOffset(), edit.getRemoved());
+		} finally {
+			restoringHistory = false;
+		}
+		
 		deselect();
-		this.setCaretPosition(state.caretPosition);
-		forceSaveState = true;
+		this.setCaretPosition(edit.getCaret());
 	}
 	
 	public void redo() {
-		TextState state = this.undoStack.Forward();
-		if ( state == null )
+		TextEditHistory.Edit edit = history.redo();
+		if ( edit == null )
 			return;
-		//this.undoStack.Rewind(); // Go back one more, since setting text will overwrite
-		setText(state.text);
+		
+		restoringHistory = true;
+		try {
+			removeText(new IndexRange(edit.getOffset(), edit.getOffset()+edit.getRemovedLength()));
+			insertText(edit.getOffset(), edit.getInserted());
+		} finally {
+			restoringHistory = false;
+		}
+		
 		deselect();
-		this.setCaretPosition(state.caretPosition);
+		this.setCaretPosition(edit.getOffset()+edit.getInsertedLength());
 	}
 	
 	public void copy() {
@@ -540,10 +657,12 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 		if ( selection.getLength() == 0 )
 			return "";
 		
-		return source.substring(
-				Math.max(0, selection.getStart()),
-				Math.min(selection.getEnd(),source.length())
-		);
+		int start = Math.max(0, selection.getStart());
+		int end = Math.min(selection.getEnd(), source.length());
+		if ( end <= start )
+			return "";
+		
+		return source.substring(start, end);
 		
 		/*
 		int startLine = getRowFromCaret(selection.getStart());
@@ -579,7 +698,7 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 		}
 		
 		return text;*/
-		return source;
+		return source.toString();
 	}
 	
 	public String getText(int start, int end) {
@@ -617,11 +736,10 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 	 */
 	protected int getIndexFromCaret(int pos) {
 		int line = getRowFromCaret(pos);
-		int a = 0;
-		for (int i = 0; i < line; i++) {
-			a += lines.get(i).length();
-		}
-		return pos-a;
+		if ( line < 0 )
+			return pos;
+		
+		return pos-lineOffsets.sum(line);
 	}
 
 	/**
@@ -630,15 +748,11 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 	 * @return
 	 */
 	protected int getRowFromCaret(int caret) {
-		int line = -1;
-		int a = 0;
+		if ( caret < 0 || lines.size() == 0 )
+			return -1;
 		
-		while ( a <= caret && line < lines.size()-1 ) {
-			line++;
-			String t = lines.get(line);
-			a += t.length();
-		}
-		return line;
+		// Amount of rows that end at or before the caret
+		return Math.min(lineOffsets.find(caret), lines.size()-1);
 	}
 	
 	/**
@@ -737,16 +851,12 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 	}
 	
 	private int getMaxTextWidth() {
+		if ( maxTextWidth >= 0 )
+			return (int) maxTextWidth;
+		
 		float width = 0;
 		for (int i = 0; i < linesDraw.size(); i++) {
-			String str = linesDraw.get(i);
-			float len = 0;
-			if ( glyphData.size() > 0 ) {
-				for (int j = 0; j < str.length(); j++) {
-					GlyphData d = glyphData.get(i).get(j);
-					len += d.width();
-				}
-			}
+			float len = getRowWidth(i);
 			/*float[] bounds = new float[4];
 			
 			
@@ -761,9 +871,22 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 			}
 		}
 		
+		maxTextWidth = width;
 		return (int) width;
 	}
 	
+	private float getRowWidth(int row) {
+		String str = linesDraw.get(row);
+		float len = 0;
+		if ( glyphData.size() > 0 ) {
+			for (int j = 0; j < str.length(); j++) {
+				GlyphData d = glyphData.get(row).get(j);
+				len += d.width();
+			}
+		}
+		return len;
+	}
+	
 	protected void bindFont() {
 		long vg = window.getContext().getNVG();
 		NanoVG.nvgFontSize(vg, fontSize);
@@ -794,12 +917,8 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 	}
 	
 	protected int getCaretFromRowLine(int row, int index) {
-		int c = 0;
-		for (int i = 0; i < row; i++) {
-			c += lines.get(i).length();
-		}
-		c += index;
-		return c;
+		row = Math.max(0, Math.min(row, lines.size()));
+		return lineOffsets.sum(row) + index;
 	}
 	
 	int getPixelOffsetFromCaret( int caret ) {
@@ -950,22 +1069,54 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 		highlighting.clear();
 	}
 	
-	private ArrayList<TextHighlighter> highlighting = new ArrayList<TextHighlighter>();
+	/**
+	 * Removes the highlighting that overlaps the supplied rows (inclusive), including spans that start on an earlier
+	 * row. Use this together with {@link #setHighlighting(int, int, FontMetaData)} to highlight edited lines again
+	 * without resetting the highlighting of the whole text.
+	 * @param startRow
+	 * @param endRow
+	 */
+	public void resetHighlighting(int startRow, int endRow) {
+		highlighting.remove(getRowStart(startRow), getRowEnd(endRow));
+	}
+	
+	/**
+	 * Replaces the highlighting that overlaps the supplied rows (inclusive) with the supplied spans in one step.
+	 * The spans are given in offsets of the whole text and should lie within the rows.
+	 * @param startRow
+	 * @param endRow
+	 * @param highlighting
+	 */
+	public void replaceHighlighting(int startRow, int endRow, List<TextHighlighter> highlighting) {
+		this.highlighting.replace(getRowStart(startRow), getRowEnd(endRow), highlighting);
+	}
+	
+	private int getRowStart(int row) {
+		return getCaretFromRowLine(row, 0);
+	}
+	
+	private int getRowEnd(int row) {
+		return row >= lines.size()-1 ? Integer.MAX_VALUE : getCaretFromRowLine(row+1, 0);
+	}
+	
+	private TextHighlightIndex highlighting = new TextHighlightIndex();
 	
 	protected TextHighlighter getHighlighting( int position ) {
-		for (int i = 0; i < highlighting.size(); i++) {
-			TextHighlighter t = highlighting.get(i);
-			if ( t.contains(position) )
-				return t;
-		}
-		
-		return null;
+		return highlighting.get(position);
+	}
+	
+	/**
+	 * Returns the first position after the supplied one where the highlighting can change.
+	 */
+	protected int getNextHighlightingBoundary( int position ) {
+		return highlighting.nextBoundary(position);
 	}
 	
-	static class TextHighlighter {
+	public static class TextHighlighter {
 		private int startIndex;
 		private int endIndex;
 		private FontMetaData metaData;
+		int order;
 		
 		public TextHighlighter(int startIndex, int endIndex, FontMetaData metaData) {
 			this.startIndex = startIndex;
@@ -976,6 +1127,19 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 		public boolean contains(int position) {
 			return position >= startIndex && position <= endIndex;
 		}
+		
+		void setRange(int startIndex, int endIndex) {
+			this.startIndex = startIndex;
+			this.endIndex = endIndex;
+		}
+		
+		public int getStartIndex() {
+			return this.startIndex;
+		}
+		
+		public int getEndIndex() {
+			return this.endIndex;
+		}
 
 		public FontMetaData getMetaData() {
 			return this.metaData;
@@ -1024,21 +1188,6 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 		}
 	}
 	
-	class TextState {
-		protected String text;
-		protected int caretPosition;
-		
-		public TextState(String text, int pos) {
-			this.text = text;
-			this.caretPosition = pos;
-		}
-		
-		@Override
-		public String toString() {
-			return caretPosition+":"+text;
-		}
-	}
-	
 	class GlyphData { // This class could be avoided if NanoVG author wouldn't ignore me.
 		float width;
 		float x;
@@ -1192,6 +1341,10 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 		private TextInputControl textInputControl;
 		private Color caretFillCopy = null;
 		
+		// UTF-8 of the row being drawn and the byte offset of each of its characters
+		private ByteBuffer rowBuffer = BufferUtils.createByteBuffer(256);
+		private int[] rowOffsets = new int[64];
+		
 		public TextInputContentRenderer(TextInputControl textInputControl) {
 			this.textInputControl = textInputControl;
 			this.setMouseTransparent(true);
@@ -1265,69 +1418,10 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 				
 				String text = this.textInputControl.linesDraw.get(i);
 				
-				// Setup font
-				this.textInputControl.bindFont();
+				if ( context == null || this.textInputControl.glyphData.size() == 0 )
+					continue;
 				
-				// Inefficient Draw. Thanks NanoVG refusing to implement \t Very cool
-				if ( this.textInputControl.glyphData.size() > 0 ) {
-					ArrayList<GlyphData> dat = this.textInputControl.glyphData.get(i);
-					if ( dat.size() > 0 ) {
-						
-						for (int j = 0; j < text.length(); j++) {
-							boolean draw = true;
-							String c = text.substring(j, j+1);
-							
-							// Manual fix for drawing boxes of special characters of certain fonts
-							// NanoVG author ALSO refuses to fix this. Cheers.
-							if ( c.length() == 1 ) {
-								if ( c.charAt(0) < 32 )
-									draw = false;
-							}
-							GlyphData g = dat.get(j);
-							
-							if ( draw ) {
-								final int currentPosition = textInputControl.getCaretFromRowLine(i, j);
-								TextHighlighter highlight = textInputControl.getHighlighting(currentPosition);
-								Color color = textInputControl.fontFill;
-								Color background = null;
-								if ( highlight == null ) {
-									textInputControl.bindFont();
-								} else {
-									textInputControl.bindFont(highlight.getMetaData());
-									if ( highlight.getMetaData().getColor() != null )
-										color = highlight.getMetaData().getColor();
-									
-									background = highlight.getMetaData().getBackground();
-								}
-								if ( context == null )
-									continue;
-								long vg = context.getNVG();
-								
-								// Fill a background behind the letter if necessary.
-								if ( background != null ) {
-									float wid = g.width();
-									if ( j < text.length() - 1 ) {
-										GlyphData nextGlyph = dat.get(j+1);
-										wid = nextGlyph.x()-g.x();
-									}
-									
-									// NVG Background
-									NanoVG.nvgBeginPath(context.getNVG());
-									NanoVG.nvgRect(context.getNVG(), mx+g.x(), my, wid, (int)this.textInputControl.fontSize);
-									NanoVG.nvgFillColor(context.getNVG(), background.getNVG());
-									NanoVG.nvgFill(context.getNVG());
-									NanoVG.nvgClosePath(context.getNVG());
-								}
-								
-								// Draw character
-								NanoVG.nvgBeginPath(vg);
-								NanoVG.nvgFontBlur(vg,0);
-								NanoVG.nvgFillColor(vg, color.getNVG());
-								NanoVG.nvgText(vg, mx+g.x(), my, c);
-							}
-						}
-					}
-				}
+				drawRow(context, i, text, mx, my);
 			}
 			
 			// Draw caret
@@ -1336,6 +1430,17 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 				int index = this.textInputControl.getIndexFromCaret(this.textInputControl.caretPosition);
 				int cx = (int) (startX-1);
 				int cy = (int) (startY + (line * this.textInputControl.fontSize));
+				
+				// Wake up on-demand windows for the next caret blink
+				if ( window != null ) {
+					if ( this.textInputControl.caretFading ) {
+						window.requestRedraw(16);
+					} else {
+						double phase = this.textInputControl.renderCaret/150d;
+						double untilFlip = (phase - Math.floor(phase/Math.PI)*Math.PI)*150d;
+						window.requestRedraw((long) Math.ceil(untilFlip == 0 ? Math.PI*150d : untilFlip));
+					}
+				}
 				if ( this.textInputControl.glyphData.size() > 0 ) {
 					
 					// Check if caret goes past the line
@@ -1368,6 +1473,159 @@ public abstract class TextInputControl extends Control implements BlockPaneRende
 			
 			super.render(context);
 		}
+		
+		/**
+		 * Draws a row of text. Neighbouring characters sharing the same highlighting are drawn as one run with a
+		 * single nvgText call. Control characters (tabs, line breaks) are not drawn and end the current run, since
+		 * their glyph positions are adjusted manually. Highlights that change the font, and text that was replaced by
+		 * a {@link TextParser} (e.g. password bullets), are drawn glyph by glyph at the positions measured on the
+		 * original text with the base font, so they stay aligned with the caret and selection.
+		 */
+		private void drawRow(Context context, int row, String text, int x, int y) {
+			ArrayList<GlyphData> dat = this.textInputControl.glyphData.get(row);
+			if ( dat.size() == 0 )
+				return;
+			
+			long vg = context.getNVG();
+			int rowStart = this.textInputControl.getCaretFromRowLine(row, 0);
+			int length = Math.min(text.length(), dat.size());
+			encodeRow(text, length);
+			boolean parsed = this.textInputControl.textParser != null;
+			
+			NanoVG.nvgFontBlur(vg, 0);
+			FontMetaData boundFont = null;
+			this.textInputControl.bindFont();
+			
+			int j = 0;
+			while ( j < length ) {
+				// Manual fix for drawing boxes of special characters of certain fonts
+				// NanoVG author ALSO refuses to fix this. Cheers.
+				if ( text.charAt(j) < 32 ) {
+					j++;
+					continue;
+				}
+				
+				// Find end of run
+				TextHighlighter highlight = this.textInputControl.getHighlighting(rowStart + j);
+				int boundary = this.textInputControl.getNextHighlightingBoundary(rowStart + j);
+				int end = j+1;
+				while ( end < length && text.charAt(end) >= 32 ) {
+					if ( rowStart + end >= boundary ) {
+						if ( this.textInputControl.getHighlighting(rowStart + end) != highlight )
+							break;
+						boundary = this.textInputControl.getNextHighlightingBoundary(rowStart + end);
+					}
+					end++;
+				}
+				
+				FontMetaData metaData = highlight == null ? null : highlight.getMetaData();
+				Color color = this.textInputControl.fontFill;
+				Color background = null;
+				if ( metaData != null ) {
+					if ( metaData.getColor() != null )
+						color = metaData.getColor();
+					background = metaData.getBackground();
+				}
+				
+				GlyphData first = dat.get(j);
+				
+				// Fill a background behind the run if necessary.
+				if ( background != null ) {
+					GlyphData last = dat.get(end-1);
+					float wid = last.x()+last.width()-first.x();
+					if ( end < text.length() && end < dat.size() )
+						wid = dat.get(end).x()-first.x();
+					
+					NanoVG.nvgBeginPath(vg);
+					NanoVG.nvgRect(vg, x+first.x(), y, wid, (int)this.textInputControl.fontSize);
+					NanoVG.nvgFillColor(vg, background.getNVG());
+					NanoVG.nvgFill(vg);
+					NanoVG.nvgClosePath(vg);
+				}
+				
+				// Only switch fonts when the run needs a different one
+				if ( metaData != boundFont ) {
+					if ( metaData == null )
+						this.textInputControl.bindFont();
+					else
+						this.textInputControl.bindFont(metaData);
+					boundFont = metaData;
+				}
+				
+				// Draw run
+				NanoVG.nvgFillColor(vg, color.getNVG());
+				if ( parsed || changesFont(metaData) ) {
+					for (int k = j; k < end; k++)
+						drawText(vg, x+dat.get(k).x(), y, k, k+1);
+				} else {
+					drawText(vg, x+first.x(), y, j, end);
+				}
+				
+				j = end;
+			}
+		}
+		
+		/**
+		 * Returns whether the highlight draws with another font than the one the glyphs were measured with.
+		 */
+		private boolean changesFont(FontMetaData metaData) {
+			if ( metaData == null )
+				return false;
+			
+			TextInputControl tic = this.textInputControl;
+			return (metaData.getSize() != null && metaData.getSize().floatValue() != tic.fontSize)
+					|| (metaData.getFont() != null && metaData.getFont() != tic.font)
+					|| (metaData.getStyle() != null && metaData.getStyle() != tic.style);
+		}
+		
+		/**
+		 * Draws the characters [start, end) of the row encoded by {@link #encodeRow(String, int)}.
+		 */
+		private void drawText(long vg, float x, float y, int start, int end) {
+			rowBuffer.clear();
+			rowBuffer.position(rowOffsets[start]);
+			rowBuffer.limit(rowOffsets[end]);
+			NanoVG.nvgText(vg, x, y, rowBuffer);
+		}
+		
+		/**
+		 * Encodes the row as UTF-8 into a reused buffer and remembers the byte offset of every character, so runs can
+		 * be drawn without creating substrings.
+		 */
+		private void encodeRow(String text, int length) {
+			if ( rowOffsets.length < length+1 )
+				rowOffsets = new int[Math.max(length+1, rowOffsets.length*2)];
+			if ( rowBuffer.capacity() < length*3+1 ) {
+				rowBuffer = BufferUtils.createByteBuffer(Math.max(length*3+1, rowBuffer.capacity()*2));
+			}
+			
+			rowBuffer.clear();
+			for (int i = 0; i < length; i++) {
+				rowOffsets[i] = rowBuffer.position();
+				char c = text.charAt(i);
+				if ( c < 0x80 ) {
+					rowBuffer.put((byte) c);
+				} else if ( c < 0x800 ) {
+					rowBuffer.put((byte) (0xC0 | (c >> 6)));
+					rowBuffer.put((byte) (0x80 | (c & 0x3F)));
+				} else if ( Character.isHighSurrogate(c) && i+1 < length && Character.isLowSurrogate(text.charAt(i+1)) ) {
+					int cp = Character.toCodePoint(c, text.charAt(i+1));
+					rowBuffer.put((byte) (0xF0 | (cp >> 18)));
+					rowBuffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+					rowBuffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+					rowBuffer.put((byte) (0x80 | (cp & 0x3F)));
+					
+					// The low surrogate is part of the character before it
+					i++;
+					rowOffsets[i] = rowBuffer.position();
+				} else {
+					rowBuffer.put((byte) (0xE0 | (c >> 12)));
+					rowBuffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+					rowBuffer.put((byte) (0x80 | (c & 0x3F)));
+				}
+			}
+			rowOffsets[length] = rowBuffer.position();
+		}
 	}
 	
 	/**
@@ -42,6 +42,10 @@ public class ToggleButton extends Button implements Toggle {
 	 * @param b
 	 */
 	public void setSelected(boolean b) {
+		// isSelected() drives the :select and :focus pseudo classes
+		if ( this.selected != b )
+			requestLayout();
+		
 		this.selected = b;
 		
 		if ( this.toggleGroup != null && b && (this.toggleGroup.getCurrectSelected()==null || !this.toggleGroup.getCurrectSelected().equals(this)) ) {
@@ -58,6 +58,9 @@ public class ToggleSwitch extends Labeled implements Toggle {
 
 	@Override
 	public void setSelected(boolean b) {
+		if ( selected != b )
+			requestLayout();
+		
 		selected = b;
 	}
 	
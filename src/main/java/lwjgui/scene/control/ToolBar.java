@@ -48,6 +48,9 @@ public class ToolBar extends Control {
 	}
 
 	public void setOrientation(Orientation orientation) {
+		if ( this.orientation != orientation )
+			requestLayout();
+		
 		this.orientation = orientation;
 		
 		if ( orientation.equals(Orientation.HORIZONTAL) ) {
@@ -30,10 +30,14 @@ public class TreeItem<E> extends TreeBase<E> {
 	}
 	
 	public void setExpanded(boolean expanded) {
+		if ( this.opened == expanded )
+			return;
+		
 		this.opened = expanded;
 		
 		if ( this.parentView != null ) {
 			this.parentView.needsRefresh = true;
+			this.parentView.requestLayout();
 		}
 	}
 	
@@ -65,8 +69,10 @@ public class TreeItem<E> extends TreeBase<E> {
 	}
 
 	protected void setTree(TreeView<E> treeView) {
-		if ( !treeView.equals(this.parentView) )
+		if ( !treeView.equals(this.parentView) ) {
 			treeView.needsRefresh = true;
+			treeView.requestLayout();
+		}
 		
 		this.parentView = treeView;
 		for (int i = 0; i < this.items.size(); i++) {
@@ -145,7 +145,8 @@ public class TreeNode<E> extends HBox {
 	
 	@Override
 	public void position(Node parent) {
-		this.setPrefWidth(0);
+		// Measured at the natural width, the tree stretches the row again afterwards
+		this.setPrefWidthInternal(0);
 		super.position(parent);
 		
 		if ( item.getItems().size() == 0 ) {
@@ -83,16 +83,20 @@ public class TreeView<E> extends TreeBase<E> {
 			items.get(i).setTree(this);
 		}
 		
-		this.internalBox.setPrefWidth(0);
+		// Measure the rows at their natural width, they are stretched to the tree below. The
+		// temporary width must not flag them for layout, or the tree would never settle.
+		double rowWidth = this.internalBox.getPrefWidth();
+		this.internalBox.setPrefWidthInternal(0);
 		for (int i = 0; i < visibleItems.size(); i++) {
 			TreeItem<E> item = visibleItems.get(i);
 			TreeNode<E> node = getNode(item);
 			if ( node != null ) {
-				node.setPrefWidth(0);
+				node.setPrefWidthInternal(0);
 			}
 		}
 
 		// Refresh visible Item list
+		boolean refreshed = needsRefresh;
 		if ( needsRefresh ) {
 			needsRefresh = false;
 			visibleItems.clear();
@@ -108,13 +112,18 @@ public class TreeView<E> extends TreeBase<E> {
 		super.position(parent);
 		
 		// Size internal box
-		this.internalBox.setPrefWidth(TreeView.this.getWidth());
+		double width = TreeView.this.getWidth();
+		this.internalBox.setPrefWidthInternal(width);
 		
 		// Update sizes
 		for (int i = 0; i < internalBox.getChildren().size(); i++) {
 			Node node = internalBox.getChildren().get(i);
-			node.setPrefWidth(TreeView.this.getWidth());
+			node.setPrefWidthInternal(width);
 		}
+		
+		// Only lay out again if the rows actually changed width
+		if ( refreshed || width != rowWidth )
+			requestLayout();
 	}
 	
 	private void addChildren(int indent, TreeBase<E> root) {
@@ -28,6 +28,9 @@ public class ImageView extends FillableRegion {
 	}
 
 	public void setMaintainAspectRatio(boolean maintain) {
+		if ( this.stretchToFit == maintain )
+			requestLayout();
+		
 		this.stretchToFit = !maintain;
 	}
 
@@ -90,6 +93,9 @@ public class ImageView extends FillableRegion {
 	}
 
 	public void setImage(Image image) {
+		if (image != this.image)
+			requestLayout();
+		
 		if (this.image != null && image != this.image)
 			this.image.dispose();
 		this.image = image;
@@ -2,22 +2,23 @@ package lwjgui.scene.layout;
 
 import static org.lwjgl.system.MemoryStack.stackPush;
 
-import org.joml.Vector2i;
 import org.lwjgl.nanovg.NVGColor;
 import org.lwjgl.nanovg.NVGPaint;
 import org.lwjgl.nanovg.NanoVG;
 import org.lwjgl.nanovg.NanoVGGL2;
 import org.lwjgl.nanovg.NanoVGGL3;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
 import org.lwjgl.system.MemoryStack;
 
-import lwjgui.LWJGUI;
 import lwjgui.gl.BlurShader;
 import lwjgui.gl.BlurShaderOld;
+import lwjgui.gl.GLState;
+import lwjgui.gl.GenericShader.Uniform;
+import lwjgui.gl.KawaseShader;
+import lwjgui.gl.GenericShader;
 import lwjgui.gl.OffscreenBuffer;
+import lwjgui.gl.RenderTargetPool;
 import lwjgui.gl.TexturedQuad;
 import lwjgui.paint.Color;
 import lwjgui.scene.Context;
@@ -25,36 +26,70 @@ import lwjgui.style.Background;
 import lwjgui.style.BackgroundSolid;
 
 public class BlurPane extends StackPane {
-	private Vector2i oldSize = new Vector2i(2,2);
+	private static final int MAX_PASSES = 6;
+	
+	private int oldWidth;
+	private int oldHeight;
 	private float blurRadius = 52;
 	private Background internalBackground;
 
-	private BlurBuffer buffer;
+	// Render targets leased from the pool of the context. Only their lower left part of the pane's size is used.
+	private OffscreenBuffer buffer;
 	private OffscreenBuffer bufferTemp;
 	private int nanoImage = -1;
+	
+	// Downsampled copies of the backdrop, index 0 is bufferTemp
+	private OffscreenBuffer[] levels = new OffscreenBuffer[MAX_PASSES+1];
+	private int[] levelWidths = new int[MAX_PASSES+1];
+	private int[] levelHeights = new int[MAX_PASSES+1];
+	private KawaseShader downShader;
+	private KawaseShader upShader;
+	private TexturedQuad quad;
+	
+	private GenericShader blurShader;
+	private Uniform uColor;
+	private Uniform uBlurSize;
+	private Uniform uTexelSize;
+	private Uniform uTexScale;
+	private Uniform uCornerRadii;
+	
+	// The blurred backdrop in buffer is reused while the window is not damaged and the pane did not move
+	private boolean blurDirty = true;
+	private double blurX;
+	private double blurY;
 
 	public BlurPane() {
 		this.setBackground(new BackgroundSolid(new Color(150,150,150,255)));
 	}
 	
-	@Override
-	protected void init() {
-		super.init();
-		bufferTemp = new OffscreenBuffer((int)oldSize.x, (int)oldSize.y);
-		buffer = new BlurBuffer(bufferTemp.getWidth(), bufferTemp.getHeight(), bufferTemp);
-		if ( this.window.getContext().isModernOpenGL() ) {
-			nanoImage = NanoVGGL3.nvglCreateImageFromHandle(this.window.getContext().getNVG(), buffer.getTexId(), oldSize.x, oldSize.y, NanoVG.NVG_IMAGE_FLIPY);
-		} else {
-			nanoImage = NanoVGGL2.nvglCreateImageFromHandle(this.window.getContext().getNVG(), buffer.getTexId(), oldSize.x, oldSize.y, NanoVG.NVG_IMAGE_FLIPY);
-		}
-	}
-	
 	@Override
 	public void dispose() {
 		super.dispose();
-		bufferTemp.cleanup();
-		buffer.cleanup();
-		NanoVG.nvgDeleteImage(window.getContext().getNVG(), nanoImage);
+		RenderTargetPool pool = window.getContext().getRenderTargetPool();
+		pool.release(bufferTemp);
+		pool.release(buffer);
+		bufferTemp = null;
+		buffer = null;
+		for (int i = 1; i < levels.length; i++) {
+			pool.release(levels[i]);
+			levels[i] = null;
+		}
+		if ( downShader != null ) {
+			downShader.cleanup();
+			upShader.cleanup();
+			blurShader.cleanup();
+			downShader = null;
+			upShader = null;
+			blurShader = null;
+		}
+		if ( quad != null ) {
+			quad.cleanup();
+			quad = null;
+		}
+		if ( nanoImage != -1 ) {
+			NanoVG.nvgDeleteImage(window.getContext().getNVG(), nanoImage);
+			nanoImage = -1;
+		}
 	}
 	
 	@Override
@@ -63,14 +98,22 @@ public class BlurPane extends StackPane {
 	}
 
 	private void resizeBuffer() {
-		NanoVG.nvgDeleteImage(this.window.getContext().getNVG(), nanoImage);
-		buffer.resize((int)oldSize.x, (int)oldSize.y);
-		bufferTemp.resize(buffer.getWidth(), buffer.getHeight());
-		if ( this.window.getContext().isModernOpenGL() ) {
-			nanoImage = NanoVGGL3.nvglCreateImageFromHandle(this.window.getContext().getNVG(), buffer.getTexId(), oldSize.x, oldSize.y, NanoVG.NVG_IMAGE_FLIPY);
-		} else {
-			nanoImage = NanoVGGL2.nvglCreateImageFromHandle(this.window.getContext().getNVG(), buffer.getTexId(), oldSize.x, oldSize.y, NanoVG.NVG_IMAGE_FLIPY);
+		// Keep the targets while they are large enough, so resizing does not create GL objects every frame
+		RenderTargetPool pool = this.window.getContext().getRenderTargetPool();
+		OffscreenBuffer target = pool.fit(buffer, oldWidth, oldHeight, false);
+		bufferTemp = pool.fit(bufferTemp, oldWidth, oldHeight, false);
+		
+		if ( target != buffer || nanoImage == -1 ) {
+			buffer = target;
+			if ( nanoImage != -1 )
+				NanoVG.nvgDeleteImage(this.window.getContext().getNVG(), nanoImage);
+			if ( this.window.getContext().isModernOpenGL() ) {
+				nanoImage = NanoVGGL3.nvglCreateImageFromHandle(this.window.getContext().getNVG(), buffer.getTexId(), buffer.getWidth(), buffer.getHeight(), NanoVG.NVG_IMAGE_FLIPY);
+			} else {
+				nanoImage = NanoVGGL2.nvglCreateImageFromHandle(this.window.getContext().getNVG(), buffer.getTexId(), buffer.getWidth(), buffer.getHeight(), NanoVG.NVG_IMAGE_FLIPY);
+			}
 		}
+		blurDirty = true;
 	}
 
 	@Override
@@ -79,26 +122,37 @@ public class BlurPane extends StackPane {
 			return;
 		
 		// Check for resize
-		Vector2i newDims = new Vector2i((int)getWidth(),(int)getHeight());
-		if ( !newDims.equals(oldSize) || nanoImage == -1 ) {
-			oldSize.set(newDims);
+		int width = Math.max(1, (int)getWidth());
+		int height = Math.max(1, (int)getHeight());
+		if ( width != oldWidth || height != oldHeight || nanoImage == -1 ) {
+			oldWidth = width;
+			oldHeight = height;
 			resizeBuffer();
 		}
 
 		// FBO Rendering
 		if ( nanoImage != -1 ) {
-			NanoVG.nvgSave(context.getNVG());
-			NanoVG.nvgEndFrame(context.getNVG());
-			
-			// Blit (Copy current FBO to BlurPane FBO)
-			blit(context);
-			
-			// Blur (Blur the FBO)
-			blur(context);
-			
-			// Restore nanovg
-			NanoVG.nvgRestore(context.getNVG());
-			context.refresh(); // Restore glViewport
+			// Only blur again if the backdrop may have changed
+			if ( blurDirty || window.isFrameDamaged() || getX() != blurX || getY() != blurY ) {
+				blurDirty = false;
+				blurX = getX();
+				blurY = getY();
+				
+				context.flushBoxShadows();
+				NanoVG.nvgSave(context.getNVG());
+				NanoVG.nvgEndFrame(context.getNVG());
+				GLState.current().invalidateObjects();
+				
+				// Blit (Copy current FBO to BlurPane FBO)
+				blit(context);
+				
+				// Blur (Blur the FBO)
+				blur(context);
+				
+				// Restore nanovg
+				NanoVG.nvgRestore(context.getNVG());
+				context.refresh(); // Restore glViewport
+			}
 
 			// Render children (Apply Styling)
 			super.render(context);
@@ -110,7 +164,10 @@ public class BlurPane extends StackPane {
 			float w = (int)this.getWidth();
 			float h = (int)this.getHeight();
 			try (MemoryStack stack = stackPush()) {
-				NVGPaint imagePaint = NanoVG.nvgImagePattern(nanovg, x, y, w, h, 0, nanoImage, 1, NVGPaint.callocStack(stack));
+				// The image is flipped, so the used lower left part of the buffer ends up at its bottom
+				float iw = buffer.getWidth();
+				float ih = buffer.getHeight();
+				NVGPaint imagePaint = NanoVG.nvgImagePattern(nanovg, x, y - (ih - oldHeight), iw, ih, 0, nanoImage, 1, NVGPaint.callocStack(stack));
 				NanoVG.nvgBeginPath(nanovg);
 				NanoVG.nvgRoundedRectVarying(context.getNVG(), (int)x, (int)y, (int)w, (int)h, (float)this.getBorderRadii()[0], (float)this.getBorderRadii()[1], (float)this.getBorderRadii()[2], (float)this.getBorderRadii()[3]);
 				NanoVG.nvgFillPaint(nanovg, imagePaint);
@@ -122,38 +179,162 @@ public class BlurPane extends StackPane {
 	@Override
 	public void setBackground(Background color) {
 		this.internalBackground = color;
+		this.blurDirty = true;
 		super.setBackground(null);
 	}
 	
+	/**
+	 * Sets the size of the blur in pixels. The blur is approximated with a dual Kawase blur, so its cost barely
+	 * depends on the radius.
+	 * @param radius
+	 */
 	public void setBlurRadius(float radius) {
 		this.blurRadius = radius;
+		this.blurDirty = true;
 	}
 	
 	private void blur(Context context) {
+		boolean legacy = !context.isCoreOpenGL();
+		if ( downShader == null ) {
+			downShader = new KawaseShader(false, legacy);
+			upShader = new KawaseShader(true, legacy);
+			blurShader = legacy ? new BlurShaderOld() : new BlurShader();
+			uColor = blurShader.getUniform("uColor");
+			uBlurSize = blurShader.getUniform("uBlurSize");
+			uTexelSize = blurShader.getUniform("uTexelSize");
+			uTexScale = blurShader.getUniform("uTexScale");
+			uCornerRadii = blurShader.getUniform("uCornerRadii");
+			if ( !legacy )
+				quad = new TexturedQuad(0, 0, 1, 1, -1);
+		}
+		
+		// Blur the copied backdrop
+		blurLevels(context);
+		
 		// Bind final buffer
 		this.buffer.bind();
 		
 		// Clear
 		GL11.glClearColor(1, 1, 1, 1);
-		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT|GL11.GL_DEPTH_BUFFER_BIT);
+		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+		
+		// Tint and round the blurred backdrop in bufferTemp
+		GL11.glViewport(0, 0, oldWidth, oldHeight);
+		blurShader.bind();
+		blurShader.projectOrtho(0, 1, 1, -1);
+		GLState.current().bindTexture(bufferTemp.getTexId());
 		
-		// Render the blur buffer (uses the buffer temp as texture)
-		this.buffer.render(context);
+		if ( internalBackground instanceof BackgroundSolid ) {
+			BackgroundSolid bg = (BackgroundSolid)internalBackground;
+			uColor.set(
+					bg.getColor().getRed()/255f-0.5f,
+					bg.getColor().getGreen()/255f-0.5f,
+					bg.getColor().getBlue()/255f-0.5f,
+					bg.getColor().getAlpha()/255f);
+		}
+		uBlurSize.set(1f); // Already blurred by blurLevels()
+		uTexelSize.set(1.0f/(float)oldWidth, 1.0f/(float)oldHeight);
+		uTexScale.set(oldWidth/(float)bufferTemp.getWidth(), oldHeight/(float)bufferTemp.getHeight());
+		uCornerRadii.set((float)Math.max(getBorderRadii()[0], 0.1), (float)Math.max(getBorderRadii()[1], 0.1), (float)Math.max(getBorderRadii()[2], 0.1), (float)Math.max(getBorderRadii()[3], 0.1));
+		drawQuad();
 		
 		// unbind
 		this.buffer.unbind();
 	}
+	
+	/**
+	 * Draws a unit quad with the texture coordinates of its corners.
+	 */
+	private void drawQuad() {
+		if ( quad != null ) {
+			quad.render();
+		} else {
+			GL11.glBegin(GL11.GL_QUADS);
+				GL11.glColor3f(1.0f, 1.0f, 1.0f);
+				GL11.glTexCoord2f(0, 0);
+				GL11.glVertex2f(0, 0);
+				GL11.glTexCoord2f(1, 0);
+				GL11.glVertex2f(1, 0);
+				GL11.glTexCoord2f(1, 1);
+				GL11.glVertex2f(1, 1);
+				GL11.glTexCoord2f(0, 1);
+				GL11.glVertex2f(0, 1);
+			GL11.glEnd();
+		}
+	}
+
+	/**
+	 * Blurs the backdrop in bufferTemp in place. Every downsample pass halves the resolution and every upsample pass
+	 * doubles it again, so the passes only grow with the logarithm of the radius and together cost about as much as
+	 * a single full resolution pass.
+	 */
+	private void blurLevels(Context context) {
+		float radius = blurRadius / 2f;
+		int width = oldWidth;
+		int height = oldHeight;
+		
+		int passes = 0;
+		while ( passes < MAX_PASSES && (1 << passes) < radius )
+			passes++;
+		while ( passes > 0 && ((width >> passes) == 0 || (height >> passes) == 0) )
+			passes--;
+		if ( passes == 0 )
+			return;
+		
+		// Spread the samples to cover the part of the radius the passes do not
+		float offset = Math.max(0.5f, radius / (1 << (passes-1)) - 1);
+		
+		// Lease the levels, and hand back the ones a smaller radius does not need
+		RenderTargetPool pool = context.getRenderTargetPool();
+		levels[0] = bufferTemp;
+		levelWidths[0] = width;
+		levelHeights[0] = height;
+		for (int i = 1; i < levels.length; i++) {
+			if ( i > passes ) {
+				pool.release(levels[i]);
+				levels[i] = null;
+				continue;
+			}
+			levelWidths[i] = Math.max(1, width >> i);
+			levelHeights[i] = Math.max(1, height >> i);
+			levels[i] = pool.fit(levels[i], levelWidths[i], levelHeights[i], false);
+		}
+		
+		GLState state = GLState.current();
+		int framebuffer = state.getFramebuffer();
+		
+		for (int i = 1; i <= passes; i++)
+			blurPass(downShader, i-1, i, offset);
+		for (int i = passes; i >= 1; i--)
+			blurPass(upShader, i, i-1, offset);
+		
+		state.bindFramebuffer(framebuffer);
+	}
+	
+	private void blurPass(KawaseShader shader, int source, int target, float offset) {
+		GLState state = GLState.current();
+		state.bindFramebuffer(levels[target].getFboId());
+		GL11.glViewport(0, 0, levelWidths[target], levelHeights[target]);
+		
+		shader.bind();
+		shader.projectOrtho(0, 1, 1, -1);
+		shader.setSource(levels[source], levelWidths[source], levelHeights[source]);
+		shader.setOffset(offset);
+		state.bindTexture(levels[source].getTexId());
+		drawQuad();
+	}
 
 	private void blit(Context context) {
 		// Source
 		float ratio = window.getPixelRatio();
-		int srcfbo = GL11.glGetInteger(GL30.GL_FRAMEBUFFER_BINDING);
-		GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, srcfbo);
+		GLState state = GLState.current();
+		int srcfbo = state.getFramebuffer();
+		state.bindReadFramebuffer(srcfbo);
 		
 		// Destination
-		GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, bufferTemp.getFboId());
-		int destwid = bufferTemp.getWidth();
-		int desthei = bufferTemp.getHeight();
+		state.bindDrawFramebuffer(bufferTemp.getFboId());
+		int destwid = oldWidth;
+		int desthei = oldHeight;
 		
 		int sx1 = (int)(getX()*ratio);
 		int sy1 = (int)(getY()*ratio);
@@ -167,90 +348,6 @@ public class BlurPane extends StackPane {
 				                GL11.GL_NEAREST);
 		
 		// Rebind source
-		GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER,srcfbo);
-	}
-	
-	class BlurBuffer extends OffscreenBuffer {
-
-		private OffscreenBuffer source;
-		
-		public BlurBuffer(int width, int height, OffscreenBuffer source) {
-			super(width, height);
-			
-			if ( this.quad != null ) {
-				this.quad.cleanup();
-			}
-			
-			this.source = source;
-			if ( LWJGUI.getThreadWindow().getContext().isCoreOpenGL() ) {
-				this.quadShader = new BlurShader();
-			} else {
-				this.quadShader = new BlurShaderOld();
-			}
-		}
-		
-		@Override
-		public void render(Context context, int x, int y, int w, int h) {
-			if ( !isVisible() )
-				return;
-			
-			if ( this.quad == null || quadDirty ) {
-				if ( this.quad != null ) {
-					this.quad.cleanup();
-				}
-				quad = new TexturedQuad(0, 0, w, h, source.getTexId());
-			}
-			
-			GL11.glViewport(x, y, w, h);
-			this.quadDirty = false;
-			quadShader.bind();
-			quadShader.projectOrtho(0, h, w, -h);
-			
-			// bind stuff
-			GL13.glActiveTexture(GL13.GL_TEXTURE0);
-			GL11.glBindTexture(GL11.GL_TEXTURE_2D, source.getTexId());
-			
-			if ( internalBackground instanceof BackgroundSolid ) {
-				BackgroundSolid bg = (BackgroundSolid)internalBackground;
-				GL20.glUniform4f(GL20.glGetUniformLocation(quadShader.getProgram(), "uColor"),
-						bg.getColor().getRed()/255f-0.5f,
-						bg.getColor().getGreen()/255f-0.5f,
-						bg.getColor().getBlue()/255f-0.5f,
-						bg.getColor().getAlpha()/255f);
-			}
-			GL20.glUniform1f(GL20.glGetUniformLocation(quadShader.getProgram(), "uBlurSize"), blurRadius);
-			GL20.glUniform2f(GL20.glGetUniformLocation(quadShader.getProgram(), "uTexelSize"), 1.0f/(float)w, 1.0f/(float)h);
-			GL20.glUniform4f(GL20.glGetUniformLocation(quadShader.getProgram(), "uCornerRadii"), (float)Math.max(BlurPane.this.getBorderRadii()[0], 0.1), (float)Math.max(BlurPane.this.getBorderRadii()[1], 0.1), (float)Math.max(BlurPane.this.getBorderRadii()[2], 0.1), (float)Math.max(BlurPane.this.getBorderRadii()[3], 0.1));
-			
-			
-			// Draw quad
-			if ( context.isCoreOpenGL() ) {
-				if ( quad != null ) {
-					quad.render();
-				}
-			} else {
-
-				GL13.glActiveTexture(GL13.GL_TEXTURE0);
-				GL11.glBindTexture(GL11.GL_TEXTURE_2D, source.getTexId());
-				
-				GL11.glBegin(GL11.GL_QUADS);
-					GL11.glColor3f(1.0f, 1.0f, 1.0f);
-					GL11.glTexCoord2f(0, 0);
-					GL11.glVertex2f(0, 0);
-	
-					GL11.glColor3f(1.0f, 1.0f, 1.0f);
-					GL11.glTexCoord2f(1, 0);
-					GL11.glVertex2f(w, 0);
-	
-					GL11.glColor3f(1.0f, 1.0f, 1.0f);
-					GL11.glTexCoord2f(1, 1);
-					GL11.glVertex2f(w, h);
-	
-					GL11.glColor3f(1.0f, 1.0f, 1.0f);
-					GL11.glTexCoord2f(0, 1);
-					GL11.glVertex2f(0, h);
-				GL11.glEnd();
-			}
-		}
+		state.bindFramebuffer(srcfbo);
 	}
 }
@@ -14,6 +14,9 @@ public abstract class DirectionalBox extends Pane implements Spacable {
 	}
 	
 	public void setSpacing(double d) {
+		if ( this.spacing != (float) d )
+			requestLayout();
+		
 		this.spacing = (float) d;
 	}
 	
@@ -159,6 +159,9 @@ public class FlowPane extends FillableRegion implements Gappable {
 	}
 	
 	public void setOrientation( Orientation orientation ) {
+		if ( this.orientation != orientation )
+			requestLayout();
+		
 		this.orientation = orientation;
 	}
 	
@@ -222,6 +222,9 @@ public class GridPane extends Pane implements Gappable {
 	}
 	
 	public void setColumnConstraint(int column, ColumnConstraint constraint) {
+		if ( constraints[column] != constraint )
+			requestLayout();
+		
 		constraints[column] = constraint;
 	}
 	
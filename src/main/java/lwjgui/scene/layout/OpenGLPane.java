@@ -2,7 +2,6 @@ package lwjgui.scene.layout;
 
 import static org.lwjgl.system.MemoryStack.stackPush;
 
-import org.joml.Vector2i;
 import org.lwjgl.nanovg.NVGPaint;
 import org.lwjgl.nanovg.NanoVG;
 import org.lwjgl.nanovg.NanoVGGL2;
@@ -10,7 +9,9 @@ import org.lwjgl.nanovg.NanoVGGL3;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.system.MemoryStack;
 
+import lwjgui.gl.GLState;
 import lwjgui.gl.OffscreenBuffer;
+import lwjgui.gl.RenderTargetPool;
 import lwjgui.gl.Renderer;
 import lwjgui.paint.Color;
 import lwjgui.scene.Context;
@@ -19,8 +20,10 @@ import lwjgui.style.BackgroundSolid;
 import lwjgui.theme.Theme;
 
 public class OpenGLPane extends Pane {
-	private Vector2i oldSize = new Vector2i(1,1);
+	private int oldWidth;
+	private int oldHeight;
 	private OpenGLPaneContext internalContext;
+	// Leased from the pool of the window's context. Only its lower left part of the pane's size is used.
 	private OffscreenBuffer buffer;
 	private Renderer renderer;
 	private Color internalBackground;
@@ -57,12 +60,6 @@ public class OpenGLPane extends Pane {
 		if ( internalContext == null ) {
 			internalContext = new OpenGLPaneContext(-1);
 			internalContext.init();
-			buffer = new OffscreenBuffer((int)oldSize.x, (int)oldSize.y);
-			if ( this.window.getContext().isModernOpenGL() ) {
-				nanoImage = NanoVGGL3.nvglCreateImageFromHandle(this.window.getContext().getNVG(), buffer.getTexId(), oldSize.x, oldSize.y, NanoVG.NVG_IMAGE_FLIPY);
-			} else {
-				nanoImage = NanoVGGL2.nvglCreateImageFromHandle(this.window.getContext().getNVG(), buffer.getTexId(), oldSize.x, oldSize.y, NanoVG.NVG_IMAGE_FLIPY);
-			}
 		}
 	}
 	
@@ -71,18 +68,28 @@ public class OpenGLPane extends Pane {
 		super.dispose();
 		internalContext.dispose();
 		internalContext = null;
-		buffer.cleanup();
-		NanoVG.nvgDeleteImage(window.getContext().getNVG(), nanoImage);
-		nanoImage = -1;
+		window.getContext().getRenderTargetPool().release(buffer);
+		buffer = null;
+		if ( nanoImage != -1 ) {
+			NanoVG.nvgDeleteImage(window.getContext().getNVG(), nanoImage);
+			nanoImage = -1;
+		}
 	}
 	
 	private void resizeBuffer() {
-		NanoVG.nvgDeleteImage(window.getContext().getNVG(), nanoImage);
-		buffer.resize((int) oldSize.x, (int) oldSize.y);
+		// Keep the target while it is large enough, so resizing does not create GL objects every frame
+		RenderTargetPool pool = window.getContext().getRenderTargetPool();
+		OffscreenBuffer target = pool.fit(buffer, oldWidth, oldHeight, true);
+		if ( target == buffer && nanoImage != -1 )
+			return;
+		
+		buffer = target;
+		if ( nanoImage != -1 )
+			NanoVG.nvgDeleteImage(window.getContext().getNVG(), nanoImage);
 		if ( this.window.getContext().isModernOpenGL() ) {
-			nanoImage = NanoVGGL3.nvglCreateImageFromHandle(this.window.getContext().getNVG(), buffer.getTexId(), oldSize.x, oldSize.y, NanoVG.NVG_IMAGE_FLIPY);
+			nanoImage = NanoVGGL3.nvglCreateImageFromHandle(this.window.getContext().getNVG(), buffer.getTexId(), buffer.getWidth(), buffer.getHeight(), NanoVG.NVG_IMAGE_FLIPY);
 		} else {
-			nanoImage = NanoVGGL2.nvglCreateImageFromHandle(this.window.getContext().getNVG(), buffer.getTexId(), oldSize.x, oldSize.y, NanoVG.NVG_IMAGE_FLIPY);
+			nanoImage = NanoVGGL2.nvglCreateImageFromHandle(this.window.getContext().getNVG(), buffer.getTexId(), buffer.getWidth(), buffer.getHeight(), NanoVG.NVG_IMAGE_FLIPY);
 		}
 	}
 
@@ -129,9 +136,11 @@ public class OpenGLPane extends Pane {
 			return;
 		
 		// Check for resize
-		Vector2i newDims = new Vector2i((int)getWidth(),(int)getHeight());
-		if ( !newDims.equals(oldSize) || nanoImage == -1 ) {
-			oldSize.set(newDims);
+		int width = Math.max(1, (int)getWidth());
+		int height = Math.max(1, (int)getHeight());
+		if ( width != oldWidth || height != oldHeight || nanoImage == -1 ) {
+			oldWidth = width;
+			oldHeight = height;
 			resizeBuffer();
 		}
 		
@@ -157,9 +166,17 @@ public class OpenGLPane extends Pane {
 					
 					// Drawing
 					NanoVG.nvgBeginFrame(internalContext.getNVG(), (int)getWidth(), (int)getHeight(), window.getPixelRatio());
+					internalContext.getBoxShadowBatch().setFrameSize((int)getWidth(), (int)getHeight());
 					//internalContext.refresh(context);
+					GLState.current().bindVertexArray(0);
+					window.damageFrame();
 					renderer.render(internalContext, (int)getWidth(), (int)getHeight());
+					internalContext.flushBoxShadows();
 					NanoVG.nvgEndFrame(internalContext.getNVG());
+					
+					// The renderer and NanoVG changed the state behind the tracker
+					GLState.current().invalidate();
+					internalContext.getBoxShadowCache().endFrame();
 				}
 				this.buffer.unbind();
 			}
@@ -174,12 +191,17 @@ public class OpenGLPane extends Pane {
 			float y = (int)this.getY();
 			float w = (int)this.getWidth();
 			float h = (int)this.getHeight();
+			
+			// The image is flipped, so the used lower left part of the buffer ends up at its bottom
+			float iy = y - (buffer.getHeight() - oldHeight);
+			float iw = buffer.getWidth();
+			float ih = buffer.getHeight();
 			if ( flipY ) {
-				y = y + h;
-				h = -h;
+				iy = y + buffer.getHeight();
+				ih = -ih;
 			}
 			try (MemoryStack stack = stackPush()) {
-				NVGPaint imagePaint = NanoVG.nvgImagePattern(nanovg, x, y, w, h, 0, nanoImage, 1, NVGPaint.callocStack(stack));
+				NVGPaint imagePaint = NanoVG.nvgImagePattern(nanovg, x, iy, iw, ih, 0, nanoImage, 1, NVGPaint.callocStack(stack));
 				NanoVG.nvgBeginPath(nanovg);
 				NanoVG.nvgRect(nanovg, x, y, w, h);
 				NanoVG.nvgFillPaint(nanovg, imagePaint);
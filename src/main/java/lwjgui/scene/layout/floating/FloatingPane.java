@@ -130,6 +130,10 @@ public class FloatingPane extends Pane {
 
 	@Override
 	public void setAbsolutePosition(double x, double y) {
+		// Children are placed relative to us, so they need to follow
+		if ( x != this.absx || y != this.absy )
+			requestLayout();
+		
 		super.setAbsolutePosition(x, y);
 		this.absx = x;
 		this.absy = y;
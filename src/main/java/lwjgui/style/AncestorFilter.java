@@ -0,0 +1,93 @@
+package lwjgui.style;
+
+import java.util.ArrayList;
+
+import lwjgui.scene.Node;
+
+/**
+ * Bloom filter of the tags, ids and classes of a node and its ancestors.<br>
+ * Descendant selectors are first checked against the filter of the parent node: if one of the simple selectors they
+ * require on an ancestor is not in the filter, the selector cannot match and the tree is never walked. The filter can
+ * report false positives, never false negatives.
+ */
+class AncestorFilter {
+	private static final int WORDS = 4; // 256 bits
+	private static final int MASK = WORDS * 64 - 1;
+
+	static final int TAG = 1;
+	static final int ID = 2;
+	static final int CLASS = 3;
+
+	private final long[] bits = new long[WORDS];
+
+	/**
+	 * Replaces the contents with the filter of the parent node (or nothing) and the keys of the node.
+	 * @param parent filter of the parent node. May be null.
+	 * @param node
+	 */
+	public void set(AncestorFilter parent, Node node) {
+		if ( parent == null ) {
+			for (int i = 0; i < WORDS; i++)
+				bits[i] = 0;
+		} else {
+			System.arraycopy(parent.bits, 0, bits, 0, WORDS);
+		}
+
+		add(key(TAG, node.getElementType()));
+		add(key(ID, node.getElementId()));
+		ArrayList<String> classList = node.getClassList();
+		for (int i = 0; i < classList.size(); i++)
+			add(key(CLASS, classList.get(i)));
+	}
+
+	/**
+	 * Returns whether all of the supplied keys may have been added.
+	 * @param keys
+	 * @return
+	 */
+	public boolean mightContainAll(int[] keys) {
+		for (int i = 0; i < keys.length; i++) {
+			int key = keys[i];
+			if ( !isSet(key) || !isSet(key >>> 16) )
+				return false;
+		}
+		return true;
+	}
+
+	private void add(int key) {
+		if ( key == 0 )
+			return;
+		set(key);
+		set(key >>> 16);
+	}
+
+	private void set(int hash) {
+		int bit = hash & MASK;
+		bits[bit >>> 6] |= 1L << bit;
+	}
+
+	private boolean isSet(int hash) {
+		int bit = hash & MASK;
+		return (bits[bit >>> 6] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * Returns the key of a simple selector. Returns 0 for empty names, which are never added.
+	 * @param type {@link #TAG}, {@link #ID} or {@link #CLASS}
+	 * @param name
+	 * @return
+	 */
+	static int key(int type, String name) {
+		if ( name == null || name.length() == 0 )
+			return 0;
+
+		// Spread the bits, both halves of the key are used as a hash
+		int h = name.hashCode() * 31 + type;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h == 0 ? 1 : h;
+	}
+}
@@ -0,0 +1,396 @@
+package lwjgui.style;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lwjgui.scene.Node;
+
+/**
+ * The resolved style of a node: every declaration of the stylesheets on the stack (and the node's local style) that
+ * matches the node, in the order they are applied.<br>
+ * The declarations are only matched again when something they depend on changes: the stylesheet stack, the local
+ * style, the element type, id, class list or the active pseudo classes of the node. When a stylesheet on the stack
+ * has descendant selectors, a change to any of these on an ancestor also matches the declarations again.<br>
+ * Values of inherited properties (see {@link StyleOperation#isInherited()}) are resolved top-down: a node that does
+ * not declare one takes it from its parent's computed style, so looking it up never walks the ancestors.
+ */
+public class ComputedStyle {
+	private static final PseudoClass[] PSEUDO_CLASSES = PseudoClass.values();
+	private static final Stylesheet[] NO_SHEETS = new Stylesheet[0];
+	private static final String[] NO_CLASSES = new String[0];
+	private static final StyleOperationValue[] NO_DECLARATIONS = new StyleOperationValue[0];
+	private static final StyleOperation[] NO_OPERATIONS = new StyleOperation[0];
+	private static final Match NO_MATCH = new Match();
+
+	/**
+	 * Amount of matches of child nodes each computed style keeps for sharing.
+	 */
+	private static final int SHARING_CACHE_SIZE = 8;
+
+	// Statistics only, not synchronized
+	private static long sharingHits;
+	private static long sharingMisses;
+
+	private boolean valid;
+	private Match match = NO_MATCH;
+	private StyleOperationValue[] inherited = NO_DECLARATIONS;
+	private ComputedStyle parent;
+
+	private final AncestorFilter filter = new AncestorFilter();
+	private long pathKey;
+	private boolean childrenChanged = true;
+
+	// Matches of our children, reused by siblings that look the same
+	private Match[] sharedMatches;
+	private int sharedMatchIndex;
+
+	/**
+	 * Brings the style up to date with the node: matches the declarations again if needed and resolves the inherited
+	 * values. The parent must have been updated first.
+	 * @param node
+	 * @param parent computed style of the parent node. May be null.
+	 * @param sheets stylesheets on the stack when the node is styled
+	 * @param localSheet local style of the node. May be null.
+	 * @return whether the style has to be applied to the node again
+	 */
+	public boolean update(Node node, ComputedStyle parent, List<Stylesheet> sheets, Stylesheet localSheet) {
+		int pseudoClasses = getPseudoClassState(node);
+
+		// Keys of this node and its ancestors, used for descendant selectors
+		filter.set(parent == null ? null : parent.filter, node);
+		long oldPathKey = pathKey;
+		pathKey = pathKey(parent == null ? 0 : parent.pathKey, node, pseudoClasses);
+
+		boolean changed = false;
+		if ( !matches(node, parent, sheets, localSheet, pseudoClasses) ) {
+			compute(node, parent, sheets, localSheet, pseudoClasses);
+			changed = true;
+		}
+
+		boolean inheritedChanged = inherit(parent);
+		if ( inheritedChanged )
+			changed = true;
+
+		childrenChanged = inheritedChanged || pathKey != oldPathKey;
+		return changed;
+	}
+
+	/**
+	 * Returns whether the last {@link #update(Node, ComputedStyle, List, Stylesheet)} changed something the styles of
+	 * the children depend on: the inherited values, or the keys descendant selectors are matched against. The
+	 * children have to be updated again in that case, and their children in turn if theirs changed.
+	 * @return
+	 */
+	public boolean isChildrenChanged() {
+		return childrenChanged;
+	}
+
+	/**
+	 * Returns whether the declarations still match the supplied node.
+	 * @param node
+	 * @param parent computed style of the parent node. May be null.
+	 * @param sheets stylesheets on the stack when the node is styled
+	 * @param localSheet local style of the node. May be null.
+	 * @param pseudoClasses bit mask of the active pseudo classes, see {@link #getPseudoClassState(Node)}.
+	 * @return
+	 */
+	public boolean matches(Node node, ComputedStyle parent, List<Stylesheet> sheets, Stylesheet localSheet, int pseudoClasses) {
+		return valid && match.matches(node, parent, sheets, localSheet, pseudoClasses);
+	}
+
+	/**
+	 * Matches the declarations of the supplied stylesheets against the node.<br>
+	 * Siblings with the same element type, id, class list and pseudo classes (and no local style) share one match:
+	 * the parent keeps the last few matches of its children, see {@link #getSharingHits()}.
+	 * @param node
+	 * @param parent
+	 * @param sheets
+	 * @param localSheet
+	 * @param pseudoClasses
+	 */
+	public void compute(Node node, ComputedStyle parent, List<Stylesheet> sheets, Stylesheet localSheet, int pseudoClasses) {
+		this.valid = true;
+		boolean share = parent != null && localSheet == null;
+
+		// Reuse the match of a sibling
+		if ( share && parent.sharedMatches != null ) {
+			for (int i = 0; i < parent.sharedMatches.length; i++) {
+				Match shared = parent.sharedMatches[i];
+				if ( shared != null && shared.matches(node, parent, sheets, localSheet, pseudoClasses) ) {
+					sharingHits++;
+					setMatch(shared);
+					return;
+				}
+			}
+		}
+
+		Match match = new Match();
+		match.compute(node, parent, sheets, localSheet, pseudoClasses);
+		setMatch(match);
+
+		if ( share ) {
+			sharingMisses++;
+			if ( parent.sharedMatches == null )
+				parent.sharedMatches = new Match[SHARING_CACHE_SIZE];
+			parent.sharedMatches[parent.sharedMatchIndex] = match;
+			parent.sharedMatchIndex = (parent.sharedMatchIndex + 1) % SHARING_CACHE_SIZE;
+		}
+	}
+
+	private void setMatch(Match match) {
+		this.match = match;
+		if ( inherited.length != match.ownInherited.length )
+			this.inherited = match.ownInherited.length == 0 ? NO_DECLARATIONS : new StyleOperationValue[match.ownInherited.length];
+	}
+
+	/**
+	 * Resolves the inherited properties against the computed style of the parent node. The parent must have been
+	 * resolved first.
+	 * @param parent computed style of the parent node. May be null.
+	 * @return whether any inherited value changed since the last time
+	 */
+	public boolean inherit(ComputedStyle parent) {
+		this.parent = parent;
+
+		boolean changed = false;
+		for (int i = 0; i < inherited.length; i++) {
+			StyleOperationValue value = match.ownInherited[i];
+			if ( value == null && parent != null && i < parent.inherited.length )
+				value = parent.inherited[i];
+
+			if ( value != inherited[i] ) {
+				inherited[i] = value;
+				changed = true;
+			}
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Returns the declaration that applies to the node for the supplied property, resolving inherited values and the
+	 * <code>inherit</code> keyword. Returns null if there is none.
+	 * @param operation
+	 * @return
+	 */
+	public StyleOperationValue getValue(StyleOperation operation) {
+		if ( operation.isInherited() ) {
+			int index = operation.getInheritedIndex();
+			return index < inherited.length ? inherited[index] : null;
+		}
+
+		StyleOperation[] inheritDeclarations = match.inheritDeclarations;
+		for (int i = 0; i < inheritDeclarations.length; i++) {
+			if ( inheritDeclarations[i] == operation )
+				return parent == null ? null : parent.getValue(operation);
+		}
+
+		StyleOperationValue[] declarations = match.declarations;
+		for (int i = declarations.length - 1; i >= 0; i--) {
+			if ( declarations[i].getOperation() == operation )
+				return declarations[i];
+		}
+
+		return null;
+	}
+
+	/**
+	 * Applies the declarations to the node.
+	 * @param node
+	 */
+	public void apply(Node node) {
+		StyleOperationValue[] declarations = match.declarations;
+		for (int i = 0; i < declarations.length; i++)
+			declarations[i].process(node);
+
+		for (int i = 0; i < inherited.length; i++) {
+			if ( inherited[i] != null )
+				inherited[i].process(node);
+		}
+
+		StyleOperation[] inheritDeclarations = match.inheritDeclarations;
+		if ( parent != null ) {
+			for (int i = 0; i < inheritDeclarations.length; i++) {
+				StyleOperationValue value = parent.getValue(inheritDeclarations[i]);
+				if ( value != null )
+					value.process(node);
+			}
+		}
+	}
+
+	/**
+	 * Forces the declarations to be matched again.
+	 */
+	public void invalidate() {
+		this.valid = false;
+
+		// Don't pick up the old match from the sharing cache either
+		if ( parent != null && parent.sharedMatches != null ) {
+			for (int i = 0; i < parent.sharedMatches.length; i++) {
+				if ( parent.sharedMatches[i] == match )
+					parent.sharedMatches[i] = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns whether there are no declarations matching the node.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		if ( match.declarations.length > 0 || match.inheritDeclarations.length > 0 )
+			return false;
+
+		for (int i = 0; i < inherited.length; i++) {
+			if ( inherited[i] != null )
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns how often a node reused the match of a sibling instead of matching the stylesheets itself.
+	 * @return
+	 */
+	public static long getSharingHits() {
+		return sharingHits;
+	}
+
+	/**
+	 * Returns how often a node that could share a match with its siblings had to match the stylesheets itself.
+	 * @return
+	 */
+	public static long getSharingMisses() {
+		return sharingMisses;
+	}
+
+	/**
+	 * Resets the sharing hit and miss counters.
+	 */
+	public static void resetSharingCounters() {
+		sharingHits = 0;
+		sharingMisses = 0;
+	}
+
+	/**
+	 * Returns a bit mask of the pseudo classes active on the node. Bit n is set if the n-th {@link PseudoClass} is active.
+	 * @param node
+	 * @return
+	 */
+	public static int getPseudoClassState(Node node) {
+		int state = 0;
+		for (int i = 0; i < PSEUDO_CLASSES.length; i++) {
+			if ( PSEUDO_CLASSES[i].isActive(node) )
+				state |= 1 << i;
+		}
+		return state;
+	}
+
+	private static long pathKey(long parentKey, Node node, int pseudoClasses) {
+		long h = parentKey * 0x9E3779B97F4A7C15L + pseudoClasses;
+		h = h * 31 + hash(node.getElementType());
+		h = h * 31 + hash(node.getElementId());
+		ArrayList<String> classList = node.getClassList();
+		for (int i = 0; i < classList.size(); i++)
+			h = h * 31 + hash(classList.get(i));
+		return h;
+	}
+
+	private static int hash(String s) {
+		return s == null ? 0 : s.hashCode();
+	}
+
+	private static boolean equals(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	/**
+	 * Declarations matched for a node, and what the match depends on. Can be shared by nodes that look the same.
+	 */
+	private static class Match {
+		private Stylesheet[] sheets = NO_SHEETS;
+		private Stylesheet localSheet;
+		private String elementType;
+		private String elementId;
+		private String[] classes = NO_CLASSES;
+		private int pseudoClasses;
+		private long matchedAncestorKey;
+		private boolean ancestorDependent;
+
+		private StyleOperationValue[] declarations = NO_DECLARATIONS;
+		private StyleOperation[] inheritDeclarations = NO_OPERATIONS;
+		private StyleOperationValue[] ownInherited = NO_DECLARATIONS;
+
+		boolean matches(Node node, ComputedStyle parent, List<Stylesheet> sheets, Stylesheet localSheet, int pseudoClasses) {
+			if ( ancestorDependent && (parent == null ? 0 : parent.pathKey) != matchedAncestorKey )
+				return false;
+
+			if ( pseudoClasses != this.pseudoClasses || localSheet != this.localSheet )
+				return false;
+
+			if ( sheets.size() != this.sheets.length )
+				return false;
+			for (int i = 0; i < this.sheets.length; i++) {
+				if ( sheets.get(i) != this.sheets[i] )
+					return false;
+			}
+
+			if ( !ComputedStyle.equals(node.getElementType(), elementType) || !ComputedStyle.equals(node.getElementId(), elementId) )
+				return false;
+
+			ArrayList<String> classList = node.getClassList();
+			if ( classList.size() != classes.length )
+				return false;
+			for (int i = 0; i < classes.length; i++) {
+				if ( !ComputedStyle.equals(classList.get(i), classes[i]) )
+					return false;
+			}
+
+			return true;
+		}
+
+		void compute(Node node, ComputedStyle parent, List<Stylesheet> sheets, Stylesheet localSheet, int pseudoClasses) {
+			this.sheets = sheets.size() == 0 ? NO_SHEETS : sheets.toArray(new Stylesheet[sheets.size()]);
+			this.localSheet = localSheet;
+			this.elementType = node.getElementType();
+			this.elementId = node.getElementId();
+			this.classes = node.getClassList().size() == 0 ? NO_CLASSES : node.getClassList().toArray(new String[node.getClassList().size()]);
+			this.pseudoClasses = pseudoClasses;
+
+			this.matchedAncestorKey = parent == null ? 0 : parent.pathKey;
+			this.ancestorDependent = false;
+
+			AncestorFilter parentFilter = parent == null ? null : parent.filter;
+			List<StyleOperationValue> output = new ArrayList<>();
+			for (int i = 0; i < this.sheets.length; i++) {
+				this.sheets[i].computeStyling(node, null, parentFilter, output);
+				this.ancestorDependent |= this.sheets[i].hasAncestorSelectors();
+			}
+			if ( localSheet != null )
+				localSheet.computeStyling(node, "NODESTYLE", null, output);
+
+			// Split off inherited properties and 'inherit' keywords. Later declarations override earlier ones.
+			int inheritedCount = StyleOperation.getInheritedCount();
+			this.ownInherited = inheritedCount == 0 ? NO_DECLARATIONS : new StyleOperationValue[inheritedCount];
+			List<StyleOperation> inheritOperations = new ArrayList<>();
+			for (int i = 0; i < output.size(); i++) {
+				StyleOperationValue value = output.get(i);
+				StyleOperation operation = value.getOperation();
+				if ( operation.isInherited() ) {
+					ownInherited[operation.getInheritedIndex()] = value.isInherit() ? null : value;
+					output.remove(i--);
+				} else if ( value.isInherit() ) {
+					if ( !inheritOperations.contains(operation) )
+						inheritOperations.add(operation);
+					output.remove(i--);
+				} else {
+					inheritOperations.remove(operation);
+				}
+			}
+
+			this.declarations = output.size() == 0 ? NO_DECLARATIONS : output.toArray(new StyleOperationValue[output.size()]);
+			this.inheritDeclarations = inheritOperations.size() == 0 ? NO_OPERATIONS : inheritOperations.toArray(new StyleOperation[inheritOperations.size()]);
+		}
+	}
+}
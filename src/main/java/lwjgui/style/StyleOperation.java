@@ -8,23 +8,78 @@ import lwjgui.scene.Node;
  *
  */
 public abstract class StyleOperation {
+	private static int inheritedCount;
+	
 	private String name;
+	private int inheritedIndex = -1;
 	
 	public StyleOperation(String key) {
+		this(key, false);
+	}
+	
+	/**
+	 * Creates a style operation.
+	 * @param key name of the CSS property
+	 * @param inherited whether nodes that do not declare this property take the value of their parent
+	 */
+	public StyleOperation(String key, boolean inherited) {
 		this.name = key;
 		StyleOperationDefinitions.operations.put(key, this);
+		
+		if ( inherited ) {
+			synchronized(StyleOperation.class) {
+				this.inheritedIndex = inheritedCount++;
+			}
+		}
 	}
 	
 	public String getName() {
 		return this.name;
 	}
 	
+	/**
+	 * Returns whether this property is passed down to nodes that do not declare it themselves.
+	 * @return
+	 */
+	public boolean isInherited() {
+		return this.inheritedIndex != -1;
+	}
+	
+	int getInheritedIndex() {
+		return this.inheritedIndex;
+	}
+	
+	static int getInheritedCount() {
+		return inheritedCount;
+	}
+	
 	@Override
 	public String toString() {
 		return name;
 	}
 
 	public abstract void process(Node node, StyleVarArgs value);
+	
+	/**
+	 * Converts the user-supplied CSS arguments into a typed value. This is called once when the stylesheet is
+	 * compiled, and the result is passed to {@link #process(Node, StyleVarArgs, Object)} every time the declaration
+	 * is applied. Returns null if the operation works on the raw arguments.
+	 * @param value
+	 * @return
+	 */
+	public Object compile(StyleVarArgs value) {
+		return null;
+	}
+	
+	/**
+	 * Applies a compiled declaration to a node. By default this interprets the raw arguments.
+	 * @param node
+	 * @param value
+	 * @param compiled value returned from {@link #compile(StyleVarArgs)}
+	 */
+	public void process(Node node, StyleVarArgs value, Object compiled) {
+		process(node, value);
+	}
 }
 
 /**
@@ -35,20 +90,51 @@ public abstract class StyleOperation {
 class StyleOperationValue {
 	private StyleOperation operation;
 	private StyleVarArgs value;
+	private Object compiled;
+	private boolean inherit;
 	
 	public StyleOperationValue(StyleOperation operation, StyleVarArgs value) {
 		this.value = value;
 		this.operation = operation;
+		this.inherit = value.size() == 1 && value.get(0).size() == 1 && "inherit".equals(String.valueOf(value.get(0).get(0)));
+		
+		// Malformed values are left to the operation to deal with when applied
+		try {
+			if ( value.size() > 0 && !inherit )
+				this.compiled = operation.compile(value);
+		} catch(RuntimeException e) {
+			this.compiled = null;
+		}
 	}
 	
 	public String getName() {
 		return this.operation.getName();
 	}
+	
+	public StyleOperation getOperation() {
+		return this.operation;
+	}
+	
+	public StyleVarArgs getValue() {
+		return this.value;
+	}
+	
+	/**
+	 * Returns whether the value is the <code>inherit</code> keyword, meaning the parent's value is used.
+	 * @return
+	 */
+	public boolean isInherit() {
+		return this.inherit;
+	}
 
 	public void process(Node node) {
-		if ( value.size() <= 0 )
+		if ( value.size() <= 0 || inherit )
 			return;
-		operation.process(node, value);
+		
+		if ( compiled == null )
+			operation.process(node, value);
+		else
+			operation.process(node, value, compiled);
 	}
 	
 	@Override
@@ -25,62 +25,104 @@ public class StyleOperationDefinitions {
 	private final static String INSET = "inset";
 	
 	public static StyleOperation WIDTH = new StyleOperation("width") {
+		@Override
+		public Object compile(StyleVarArgs value) {
+			return compileNumber(value, 0);
+		}
+		
+		@Override
+		public void process(Node node, StyleVarArgs value, Object compiled) {
+			node.setPrefWidth((Float)compiled);
+		}
+		
 		@Override
 		public void process(Node node, StyleVarArgs value) {
-			if ( value.size() == 0 )
-				value = new StyleVarArgs(new StyleParams(0));
-			
-			node.setPrefWidth(toNumber(value.get(0).get(0)));
+			process(node, value, compile(value));
 		}
 	};
 	
 	public static StyleOperation MIN_WIDTH = new StyleOperation("min-width") {
+		@Override
+		public Object compile(StyleVarArgs value) {
+			return compileNumber(value, 0);
+		}
+		
+		@Override
+		public void process(Node node, StyleVarArgs value, Object compiled) {
+			node.setMinWidth((Float)compiled);
+		}
+		
 		@Override
 		public void process(Node node, StyleVarArgs value) {
-			if ( value.size() == 0 )
-				value = new StyleVarArgs(new StyleParams(0));
-			
-			node.setMinWidth(toNumber(value.get(0).get(0)));
+			process(node, value, compile(value));
 		}
 	};
 	
 	public static StyleOperation MAX_WIDTH = new StyleOperation("max-width") {
+		@Override
+		public Object compile(StyleVarArgs value) {
+			return compileNumber(value, Integer.MAX_VALUE);
+		}
+		
+		@Override
+		public void process(Node node, StyleVarArgs value, Object compiled) {
+			node.setMaxWidth((Float)compiled);
+		}
+		
 		@Override
 		public void process(Node node, StyleVarArgs value) {
-			if ( value.size() == 0 )
-				value = new StyleVarArgs(new StyleParams(Integer.MAX_VALUE));
-			
-			node.setMaxWidth(toNumber(value.get(0).get(0)));
+			process(node, value, compile(value));
 		}
 	};
 	
 	public static StyleOperation HEIGHT = new StyleOperation("height") {
+		@Override
+		public Object compile(StyleVarArgs value) {
+			return compileNumber(value, 0);
+		}
+		
+		@Override
+		public void process(Node node, StyleVarArgs value, Object compiled) {
+			node.setPrefHeight((Float)compiled);
+		}
+		
 		@Override
 		public void process(Node node, StyleVarArgs value) {
-			if ( value.size() == 0 )
-				value = new StyleVarArgs(new StyleParams(0));
-			
-			node.setPrefHeight(toNumber(value.get(0).get(0)));
+			process(node, value, compile(value));
 		}
 	};
 	
 	public static StyleOperation MIN_HEIGHT = new StyleOperation("min-height") {
+		@Override
+		public Object compile(StyleVarArgs value) {
+			return compileNumber(value, 0);
+		}
+		
+		@Override
+		public void process(Node node, StyleVarArgs value, Object compiled) {
+			node.setMinHeight((Float)compiled);
+		}
+		
 		@Override
 		public void process(Node node, StyleVarArgs value) {
-			if ( value.size() == 0 )
-				value = new StyleVarArgs(new StyleParams(0));
-			
-			node.setMinHeight(toNumber(value.get(0).get(0)));
+			process(node, value, compile(value));
 		}
 	};
 	
 	public static StyleOperation MAX_HEIGHT = new StyleOperation("max-height") {
+		@Override
+		public Object compile(StyleVarArgs value) {
+			return compileNumber(value, Integer.MAX_VALUE);
+		}
+		
+		@Override
+		public void process(Node node, StyleVarArgs value, Object compiled) {
+			node.setMaxHeight((Float)compiled);
+		}
+		
 		@Override
 		public void process(Node node, StyleVarArgs value) {
-			if ( value.size() == 0 )
-				value = new StyleVarArgs(new StyleParams(Integer.MAX_VALUE));
-			
-			node.setMaxHeight(toNumber(value.get(0).get(0)));
+			process(node, value, compile(value));
 		}
 	};
 	
@@ -311,27 +353,53 @@ public class StyleOperationDefinitions {
 	
 	public static StyleOperation BORDER_COLOR = new StyleOperation("border-color") {
 		@Override
-		public void process(Node node, StyleVarArgs value) {
+		public Object compile(StyleVarArgs value) {
+			return compileColor(value);
+		}
+		
+		@Override
+		public void process(Node node, StyleVarArgs value, Object compiled) {
 			if ( !(node instanceof StyleBorder) )
 				return;
 			
 			StyleBorder t = (StyleBorder)node;
-			t.setBorderColor(getColor(value.get(0).get(0)));
+			Color destColor = (Color)compiled;
+			if ( t.getBorderColor() != destColor )
+				t.setBorderColor(destColor);
+		}
+		
+		@Override
+		public void process(Node node, StyleVarArgs value) {
+			process(node, value, compile(value));
 		}
 	};
 	
 	public static StyleOperation BACKGROUND_COLOR = new StyleOperation("background-color") {
+		@Override
+		public Object compile(StyleVarArgs value) {
+			return compileColor(value);
+		}
+		
 		@Override
 		public void process(Node node, StyleVarArgs value) {
+			process(node, value, compile(value));
+		}
+		
+		@Override
+		public void process(Node node, StyleVarArgs value, Object compiled) {
 			if ( !(node instanceof StyleBackground) )
 				return;
 			
 			StyleBackground t = (StyleBackground)node;
-			Color destColor = getColor(value.get(0).get(0));
+			Color destColor = (Color)compiled;
 			Background currentBackground = t.getBackground();
 			
 			StyleTransition transition = node.getStyleTransition(this.getName());
 			if ( transition == null || currentBackground == null || !(currentBackground instanceof BackgroundSolid) ) {
+				// Already set
+				if ( currentBackground instanceof BackgroundSolid && ((BackgroundSolid)currentBackground).getColor().getRGBA() == destColor.getRGBA() )
+					return;
+				
 				t.setBackground(new BackgroundSolid(destColor));
 			} else {
 				List<Transition> current = transition.getTransitions();
@@ -339,7 +407,7 @@ public class StyleOperationDefinitions {
 					return;
 				
 				Color sourceColor = new Color(((BackgroundSolid)currentBackground).getColor());
-				if ( sourceColor.equals(destColor) )
+				if ( sourceColor.getRGBA() == destColor.getRGBA() )
 					return;
 				
 				Color fillColor = new Color(sourceColor);
@@ -356,46 +424,70 @@ public class StyleOperationDefinitions {
 	};
 	
 	public static StyleOperation BACKGROUND_IMAGE = new StyleOperation("background-image") {
+		@Override
+		public Object compile(StyleVarArgs value) {
+			// Parse bacgkrounds
+			List<Background> newBackgrounds = new ArrayList<>();
+			for (int i = 0; i < value.size(); i++) {
+				StyleParams params = value.get(i);
+				if ( params.size() == 0 )
+					continue;
+				
+				Background back = getBackground(params.get(0));
+				if ( back == null )
+					continue;
+				
+				newBackgrounds.add(back);
+			}
+			
+			return newBackgrounds;
+		}
+		
 		@Override
 		public void process(Node node, StyleVarArgs value) {
+			process(node, value, compile(value));
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public void process(Node node, StyleVarArgs value, Object compiled) {
 			if ( !(node instanceof StyleBackground) )
 				return;
 			
 			StyleBackground t = (StyleBackground)node;
 			ObservableList<Background> backgrounds = t.getBackgrounds();
+			List<Background> newBackgrounds = (List<Background>)compiled;
 			
-			// Clear all NON solid backgrounds
-			for (int i = 0; i < backgrounds.size(); i++) {
+			// Nothing to do if the same backgrounds are already set
+			int index = 0;
+			boolean same = true;
+			for (int i = 0; i < backgrounds.size() && same; i++) {
 				Background b = backgrounds.get(i);
 				if ( b instanceof BackgroundSolid )
 					continue;
 				
-				backgrounds.remove(i--);
+				same = index < newBackgrounds.size() && newBackgrounds.get(index++) == b;
 			}
+			if ( same && index == newBackgrounds.size() )
+				return;
 			
-			// Parse bacgkrounds
-			for (int i = 0; i < value.size(); i++) {
-				StyleParams params = value.get(i);
-				if ( params.size() == 0 )
-					continue;
-				
-				Background back = getBackground(params.get(0));
-				if ( back == null )
+			// Clear all NON solid backgrounds
+			for (int i = 0; i < backgrounds.size(); i++) {
+				Background b = backgrounds.get(i);
+				if ( b instanceof BackgroundSolid )
 					continue;
 				
-				backgrounds.add(back);
+				backgrounds.remove(i--);
 			}
+			
+			for (int i = 0; i < newBackgrounds.size(); i++)
+				backgrounds.add(newBackgrounds.get(i));
 		}
 	};
 	
 	public static StyleOperation BOX_SHADOW = new StyleOperation("box-shadow") {
 		@Override
-		public void process(Node node, StyleVarArgs value) {
-			if ( !(node instanceof StyleBoxShadow) )
-				return;
-			
-			StyleBoxShadow t = (StyleBoxShadow)node;
-			
+		public Object compile(StyleVarArgs value) {
 			// Generate the box shadow
 			List<BoxShadow> newShadows = new ArrayList<BoxShadow>();
 			if ( !value.get(0).get(0).equals(NONE) ) {
@@ -458,14 +550,34 @@ public class StyleOperationDefinitions {
 					}
 				}
 			}
+			return newShadows;
+		}
+		
+		@Override
+		public void process(Node node, StyleVarArgs value) {
+			process(node, value, compile(value));
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public void process(Node node, StyleVarArgs value, Object compiled) {
+			if ( !(node instanceof StyleBoxShadow) )
+				return;
+			
+			StyleBoxShadow t = (StyleBoxShadow)node;
+			List<BoxShadow> newShadows = (List<BoxShadow>)compiled;
+			
 			// Get the style transition for this node with this transition name
 			StyleTransition transition = node.getStyleTransition(this.getName());
 			
-			// If no transition, directly copy in shadows.
+			// If no transition, directly copy in shadows. The compiled shadows are shared, so copies are added.
 			if ( transition == null ) {
+				if ( shadowsMatch(t.getBoxShadowList(), newShadows) )
+					return;
+				
 				t.getBoxShadowList().clear();
 				for (int i = 0; i < newShadows.size(); i++) {
-					t.getBoxShadowList().add(newShadows.get(i));
+					t.getBoxShadowList().add(newShadows.get(i).clone());
 				}
 			} else {
 				List<Transition> current = transition.getTransitions();
@@ -555,7 +667,6 @@ public class StyleOperationDefinitions {
 				}
 			}
 			
-			newShadows.clear();
 		}
 	};
 	
@@ -698,31 +809,44 @@ public class StyleOperationDefinitions {
 	};
 	
 	public static StyleOperation PADDING = new StyleOperation("padding") {
+		@Override
+		public Object compile(StyleVarArgs value) {
+			// Get dest padding
+			if ( value.get(0).size() == 1 ) {
+				return new Insets( toNumber(value.get(0).get(0)) );
+			} else if ( value.get(0).size() == 2 ) {
+				return new Insets( toNumber(value.get(0).get(0)), toNumber(value.get(0).get(1)) );
+			} else if ( value.get(0).size() == 4 ) {
+				return new Insets( toNumber(value.get(0).get(0)), toNumber(value.get(0).get(1)), toNumber(value.get(0).get(2)), toNumber(value.get(0).get(3)) );
+			}
+			
+			return null;
+		}
+		
 		@Override
 		public void process(Node node, StyleVarArgs value) {
+			process(node, value, compile(value));
+		}
+		
+		@Override
+		public void process(Node node, StyleVarArgs value, Object compiled) {
 			if ( !(node instanceof Region) )
 				return;
 			
 			Region region = (Region)node;
-			Insets dest = null;
+			Insets dest = (Insets)compiled;
 			Insets source = region.getPadding();
 			
-			// Get dest padding
-			if ( value.get(0).size() == 1 ) {
-				dest = new Insets( toNumber(value.get(0).get(0)) );
-			} else if ( value.get(0).size() == 2 ) {
-				dest = new Insets( toNumber(value.get(0).get(0)), toNumber(value.get(0).get(1)) );
-			} else if ( value.get(0).size() == 4 ) {
-				dest = new Insets( toNumber(value.get(0).get(0)), toNumber(value.get(0).get(1)), toNumber(value.get(0).get(2)), toNumber(value.get(0).get(3)) );
-			}
-			
 			// NPE
 			if ( dest == null )
 				return;
 			
 			// Transition
+			if ( dest.equals(source) )
+				return;
+			
 			StyleTransition transition = node.getStyleTransition(this.getName());
-			if ( dest.equals(source) || transition == null ) {
+			if ( transition == null ) {
 				region.setPadding(dest);
 			} else {
 				List<Transition> current = transition.getTransitions();
@@ -850,14 +974,24 @@ public class StyleOperationDefinitions {
 		}
 	};
 	
-	public static StyleOperation FONT_SIZE = new StyleOperation("font-size") {
+	public static StyleOperation FONT_SIZE = new StyleOperation("font-size", true) {
+		@Override
+		public Object compile(StyleVarArgs value) {
+			return compileNumber(value, 0);
+		}
+		
 		@Override
 		public void process(Node node, StyleVarArgs value) {
+			process(node, value, compile(value));
+		}
+		
+		@Override
+		public void process(Node node, StyleVarArgs value, Object compiled) {
 			if ( !(node instanceof Labeled) )
 				return;
 			
 			Labeled t = (Labeled)node;
-			float destSize = (float)toNumber(value.get(0).get(0));
+			float destSize = (Float)compiled;
 			float sourceSize = (float) t.getFontSize();
 			
 			// Font size transition
@@ -882,16 +1016,30 @@ public class StyleOperationDefinitions {
 		}
 	};
 	
-	public static StyleOperation COLOR = new StyleOperation("color") {
+	public static StyleOperation COLOR = new StyleOperation("color", true) {
+		@Override
+		public Object compile(StyleVarArgs value) {
+			return compileColor(value);
+		}
+		
 		@Override
 		public void process(Node node, StyleVarArgs value) {
+			process(node, value, compile(value));
+		}
+		
+		@Override
+		public void process(Node node, StyleVarArgs value, Object compiled) {
 			if ( !(node instanceof Labeled) )
 				return;
 			
 			Labeled t = (Labeled)node;
-			Color destColor = getColor(value.get(0).get(0));
+			Color destColor = (Color)compiled;
 			Color sourceColor = t.getTextFill();
 			
+			// Already set. Compare the values, a finished transition leaves a copy of the color behind.
+			if ( sourceColor == destColor || (sourceColor != null && destColor != null && sourceColor.getRGBA() == destColor.getRGBA()) )
+				return;
+			
 			StyleTransition transition = node.getStyleTransition(this.getName());
 			if ( transition == null || sourceColor == null ) {
 				t.setTextFill(destColor);
@@ -950,6 +1098,9 @@ public class StyleOperationDefinitions {
 		if ( value == null )
 			return false;
 		
+		if ( value instanceof Number )
+			return true;
+		
 		try {
 			Double.parseDouble(value.toString());
 			return true;
@@ -958,6 +1109,49 @@ public class StyleOperationDefinitions {
 		}
 	}
 	
+	/**
+	 * Parses the first parameter of a declaration as a number. Returns the default value if there is none.
+	 */
+	protected static Float compileNumber(StyleVarArgs value, float defaultValue) {
+		if ( value.size() == 0 || value.get(0).size() == 0 )
+			return defaultValue;
+		
+		return toNumber(value.get(0).get(0));
+	}
+	
+	/**
+	 * Parses the first parameter of a declaration as a color. The color is shared by every node the declaration
+	 * applies to, so it is made immutable.
+	 */
+	protected static Color compileColor(StyleVarArgs value) {
+		Object arg = value.size() == 0 || value.get(0).size() == 0 ? null : value.get(0).get(0);
+		return getColor(arg).immutable(true);
+	}
+	
+	/**
+	 * Returns whether the shadows of a node are equal to the supplied shadows.
+	 */
+	protected static boolean shadowsMatch(ObservableList<BoxShadow> current, List<BoxShadow> shadows) {
+		if ( current.size() != shadows.size() )
+			return false;
+		
+		for (int i = 0; i < shadows.size(); i++) {
+			BoxShadow a = current.get(i);
+			BoxShadow b = shadows.get(i);
+			if ( a.getXOffset() != b.getXOffset() || a.getYOffset() != b.getYOffset()
+					|| a.getBlurRadius() != b.getBlurRadius() || a.getSpread() != b.getSpread()
+					|| a.isInset() != b.isInset() )
+				return false;
+			
+			Color ca = a.getFromColor();
+			Color cb = b.getFromColor();
+			if ( ca != cb && (ca == null || cb == null || ca.getRGBA() != cb.getRGBA()) )
+				return false;
+		}
+		
+		return true;
+	}
+	
 	protected static Background getBackground(Object arg) {
 		
 		if ( arg instanceof StyleFunction ) {
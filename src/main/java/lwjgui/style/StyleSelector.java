@@ -0,0 +1,259 @@
+package lwjgui.style;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lwjgui.scene.Node;
+
+/**
+ * A parsed CSS selector. Supports compound selectors (<code>button.primary:hover</code>), descendant combinators
+ * (<code>.toolbar .button</code>) and child combinators (<code>.toolbar &gt; .button</code>).
+ * @author Andrew
+ *
+ */
+class StyleSelector {
+	private final String selector;
+	private final Compound[] compounds;
+	private final boolean[] childCombinator;
+	private final int specificity;
+	private final int[] ancestorKeys;
+	private final boolean valid;
+
+	public StyleSelector(String selector) {
+		this.selector = selector.trim();
+
+		// Split into compound selectors and combinators
+		List<Compound> compounds = new ArrayList<>();
+		List<Boolean> combinators = new ArrayList<>();
+		boolean valid = true;
+		boolean child = false;
+		StringBuilder current = new StringBuilder();
+		for (int i = 0; i <= this.selector.length(); i++) {
+			char c = i < this.selector.length() ? this.selector.charAt(i) : ' ';
+			if ( Character.isWhitespace(c) || c == '>' ) {
+				if ( current.length() > 0 ) {
+					if ( compounds.size() > 0 )
+						combinators.add(child);
+					Compound compound = Compound.parse(current.toString());
+					valid &= compound != null;
+					compounds.add(compound);
+					current.setLength(0);
+					child = false;
+				}
+				if ( c == '>' )
+					child = true;
+				continue;
+			}
+
+			current.append(c);
+		}
+
+		this.valid = valid && compounds.size() > 0;
+		this.compounds = compounds.toArray(new Compound[compounds.size()]);
+		this.childCombinator = new boolean[combinators.size()];
+		for (int i = 0; i < childCombinator.length; i++)
+			childCombinator[i] = combinators.get(i);
+
+		// Specificity and the keys every ancestor chain must contain
+		int ids = 0, classes = 0, tags = 0;
+		List<Integer> keys = new ArrayList<>();
+		for (int i = 0; this.valid && i < this.compounds.length; i++) {
+			Compound compound = this.compounds[i];
+			boolean ancestor = i < this.compounds.length - 1;
+			if ( compound.tag != null ) {
+				tags++;
+				if ( ancestor )
+					keys.add(AncestorFilter.key(AncestorFilter.TAG, compound.tag));
+			}
+			if ( compound.id != null ) {
+				ids++;
+				if ( ancestor )
+					keys.add(AncestorFilter.key(AncestorFilter.ID, compound.id));
+			}
+			for (int j = 0; j < compound.classes.length; j++) {
+				classes++;
+				if ( ancestor )
+					keys.add(AncestorFilter.key(AncestorFilter.CLASS, compound.classes[j]));
+			}
+			classes += compound.pseudoClasses.length;
+		}
+		this.specificity = (Math.min(ids, 255) << 16) | (Math.min(classes, 255) << 8) | Math.min(tags, 255);
+		this.ancestorKeys = new int[keys.size()];
+		for (int i = 0; i < ancestorKeys.length; i++)
+			ancestorKeys[i] = keys.get(i);
+	}
+
+	/**
+	 * Returns whether the selector could be parsed. Invalid selectors never match.
+	 * @return
+	 */
+	public boolean isValid() {
+		return this.valid;
+	}
+
+	/**
+	 * Returns the specificity of the selector, packed as (ids &lt;&lt; 16) | (classes &lt;&lt; 8) | tags.
+	 * @return
+	 */
+	public int getSpecificity() {
+		return this.specificity;
+	}
+
+	/**
+	 * Returns whether this selector depends on the ancestors of a node.
+	 * @return
+	 */
+	public boolean hasAncestors() {
+		return this.compounds.length > 1;
+	}
+
+	/**
+	 * Returns the id of the rightmost compound selector, or null.
+	 */
+	String getKeyId() {
+		if ( !valid )
+			return null;
+		return compounds[compounds.length-1].id;
+	}
+
+	/**
+	 * Returns the first class of the rightmost compound selector, or null.
+	 */
+	String getKeyClass() {
+		if ( !valid )
+			return null;
+		Compound last = compounds[compounds.length-1];
+		return last.classes.length == 0 ? null : last.classes[0];
+	}
+
+	/**
+	 * Returns the tag of the rightmost compound selector, or null if it matches any tag.
+	 */
+	String getKeyTag() {
+		if ( !valid )
+			return null;
+		return compounds[compounds.length-1].tag;
+	}
+
+	/**
+	 * Returns whether the selector matches the node.
+	 * @param node
+	 * @param elementType element tag to match the node with
+	 * @param parentFilter ancestor filter of the parent node. May be null.
+	 * @return
+	 */
+	public boolean matches(Node node, String elementType, AncestorFilter parentFilter) {
+		if ( !valid )
+			return false;
+
+		int last = compounds.length-1;
+		if ( !compounds[last].matches(node, elementType) )
+			return false;
+
+		if ( last == 0 )
+			return true;
+
+		// Quick reject before walking up the tree
+		if ( parentFilter != null && !parentFilter.mightContainAll(ancestorKeys) )
+			return false;
+
+		return matchesAncestors(node.getParent(), last-1);
+	}
+
+	private boolean matchesAncestors(Node ancestor, int index) {
+		Compound compound = compounds[index];
+		boolean child = childCombinator[index];
+		for (Node node = ancestor; node != null; node = node.getParent()) {
+			if ( compound.matches(node, node.getElementType()) && (index == 0 || matchesAncestors(node.getParent(), index-1)) )
+				return true;
+
+			if ( child )
+				return false;
+		}
+
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return selector;
+	}
+
+	/**
+	 * A sequence of simple selectors without combinators, like <code>button#ok.primary:hover</code>.
+	 */
+	static class Compound {
+		private static final String[] NO_CLASSES = new String[0];
+
+		private String tag;
+		private String id;
+		private String[] classes = NO_CLASSES;
+		private PseudoClass[] pseudoClasses = new PseudoClass[0];
+
+		/**
+		 * Parses a compound selector. Returns null if it uses an unknown pseudo class.
+		 */
+		static Compound parse(String text) {
+			Compound compound = new Compound();
+			List<String> classes = new ArrayList<>();
+			List<PseudoClass> pseudoClasses = new ArrayList<>();
+
+			int start = 0;
+			char type = 0;
+			for (int i = 0; i <= text.length(); i++) {
+				char c = i < text.length() ? text.charAt(i) : 0;
+				if ( c != 0 && c != '.' && c != '#' && c != ':' )
+					continue;
+
+				String name = text.substring(start, i);
+				if ( type == 0 ) {
+					if ( name.length() > 0 && !name.equals("*") )
+						compound.tag = name;
+				} else if ( name.length() > 0 ) {
+					if ( type == '.' ) {
+						classes.add(name);
+					} else if ( type == '#' ) {
+						compound.id = name;
+					} else {
+						PseudoClass pseudoClass = PseudoClass.match(name);
+						if ( pseudoClass == null )
+							return null;
+						if ( pseudoClass != PseudoClass.DEFAULT )
+							pseudoClasses.add(pseudoClass);
+					}
+				}
+
+				type = c;
+				start = i+1;
+			}
+
+			if ( classes.size() > 0 )
+				compound.classes = classes.toArray(new String[classes.size()]);
+			compound.pseudoClasses = pseudoClasses.toArray(new PseudoClass[pseudoClasses.size()]);
+			return compound;
+		}
+
+		boolean matches(Node node, String elementType) {
+			if ( tag != null && !tag.equals(elementType) )
+				return false;
+
+			if ( id != null && !id.equals(node.getElementId()) )
+				return false;
+
+			if ( classes.length > 0 ) {
+				ArrayList<String> classList = node.getClassList();
+				for (int i = 0; i < classes.length; i++) {
+					if ( !classList.contains(classes[i]) )
+						return false;
+				}
+			}
+
+			for (int i = 0; i < pseudoClasses.length; i++) {
+				if ( !pseudoClasses[i].isActive(node) )
+					return false;
+			}
+
+			return true;
+		}
+	}
+}
@@ -1,9 +1,19 @@
 package lwjgui.style;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -12,61 +22,135 @@ import java.util.WeakHashMap;
 import lwjgui.scene.Node;
 
 public class Stylesheet {
+	private static final int BINARY_MAGIC = 0x4C575353; // "LWSS"
+	private static final int BINARY_VERSION = 1;
+	private static final String BINARY_EXTENSION = ".lwss";
+	
+	private static final int VALUE_STRING = 0;
+	private static final int VALUE_NUMBER = 1;
+	private static final int VALUE_PERCENT = 2;
+	private static final int VALUE_FUNCTION = 3;
+	
+	// Compiled stylesheets by source hash, shared by everything that uses the same source
+	private static final int CACHE_SIZE = 256;
+	private static final Map<Long, Stylesheet> cache = new LinkedHashMap<Long, Stylesheet>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Stylesheet> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+	
 	private String source;
 	private boolean compiled;
-	private HashMap<String, StyleSelector> idToStyleSelector = new HashMap<>();
-	private HashMap<StyleSelector, StyleData> styleData = new HashMap<>();
+	private long sourceHash;
+	
+	// Rules indexed by the id, first class or tag of their rightmost compound selector
+	private HashMap<String, List<StyleRule>> idRules = new HashMap<>();
+	private HashMap<String, List<StyleRule>> classRules = new HashMap<>();
+	private HashMap<String, List<StyleRule>> tagRules = new HashMap<>();
+	private List<StyleRule> universalRules = new ArrayList<>();
+	private int ruleCount;
+	private boolean ancestorSelectors;
+	private List<StyleRule> rules = new ArrayList<>();
 
 	public Stylesheet(String css) {
 		this.source = css;
+		this.sourceHash = css == null ? 0 : hash(css);
 	}
 	
+	/**
+	 * Returns the source of the stylesheet. Returns null for stylesheets loaded with {@link #load(ByteBuffer)}.
+	 * @return
+	 */
 	public String getSource() {
 		return this.source;
 	}
 	
+	/**
+	 * Returns the hash of the source this stylesheet was compiled from, see {@link #hash(String)}.
+	 * @return
+	 */
+	public long getSourceHash() {
+		return this.sourceHash;
+	}
+	
 	/**
 	 * Apply generic styling to a node via its classes/tag
 	 * @param node
 	 */
 	public void applyStyling(Node node) {
-		// Start list of operations
 		Map<String, StyleOperationValue> declarations = new HashMap<>();
+		computeStyling(node, null, null, declarations);
+		applyStyling(node, declarations);
+		declarations.clear();
+	}
+	
+	/**
+	 * Adds the declarations matching a node to the list, in the order they would be applied.
+	 * @param node
+	 * @param forceElementType element tag to match instead of the node's tags. May be null.
+	 * @param parentFilter ancestor filter of the node's parent, used to reject descendant selectors. May be null.
+	 * @param output
+	 */
+	void computeStyling(Node node, String forceElementType, AncestorFilter parentFilter, List<StyleOperationValue> output) {
+		Map<String, StyleOperationValue> declarations = new HashMap<>();
+		computeStyling(node, forceElementType, parentFilter, declarations);
+		output.addAll(declarations.values());
+	}
+	
+	private void computeStyling(Node node, String forceElementType, AncestorFilter parentFilter, Map<String, StyleOperationValue> declarations) {
+		if ( ruleCount == 0 )
+			return;
 		
-		// JUST FOR NORMAL SELECTOR STYLING FIRST
-		{
-			// Apply styling for the DOM TAG
-			computeStyling(node, StyleSelectorType.TAG, node.getElementType(), declarations, false);
-			
-			// Apply styling for the ID
-			computeStyling(node, StyleSelectorType.ID, node.getElementId(), declarations, false);
+		// Collect candidate rules from the buckets the node can match
+		List<StyleRule> matched = new ArrayList<>();
+		String elementType = forceElementType == null ? node.getElementType() : forceElementType;
+		addMatching(tagRules.get(elementType), node, elementType, parentFilter, matched);
+		if ( forceElementType == null ) {
+			String elementId = node.getElementId();
+			if ( elementId != null )
+				addMatching(idRules.get(elementId), node, elementType, parentFilter, matched);
 			
-			// Apply styling for the class
 			ArrayList<String> classList = node.getClassList();
-			for (int i = 0; i < classList.size(); i++) {
-				String claz = classList.get(i);
-				computeStyling(node, StyleSelectorType.CLASS, claz, declarations, false);
-			}
+			for (int i = 0; i < classList.size(); i++)
+				addMatching(classRules.get(classList.get(i)), node, elementType, parentFilter, matched);
+			
+			addMatching(universalRules, node, elementType, parentFilter, matched);
 		}
 		
-		// NEXT JUST FOR PSEUDO CLASSES
-		{
-			// Apply styling for the DOM TAG
-			computeStyling(node, StyleSelectorType.TAG, node.getElementType(), declarations, true);
-			
-			// Apply styling for the ID
-			computeStyling(node, StyleSelectorType.ID, node.getElementId(), declarations, true);
+		if ( matched.size() == 0 )
+			return;
+		
+		// Apply in order of specificity, then source order. Later declarations override earlier ones.
+		if ( matched.size() > 1 )
+			matched.sort(StyleRule.ORDER);
+		
+		StyleRule last = null;
+		for (int i = 0; i < matched.size(); i++) {
+			StyleRule rule = matched.get(i);
+			if ( rule == last ) // Duplicate classes on the node
+				continue;
 			
-			// Apply styling for the class
-			ArrayList<String> classList = node.getClassList();
-			for (int i = 0; i < classList.size(); i++) {
-				String claz = classList.get(i);
-				computeStyling(node, StyleSelectorType.CLASS, claz, declarations, true);
+			List<StyleOperationValue> ruleDeclarations = rule.getDeclarations();
+			for (int j = 0; j < ruleDeclarations.size(); j++) {
+				StyleOperationValue op = ruleDeclarations.get(j);
+				declarations.put(op.getName(), op);
 			}
+			last = rule;
 		}
+	}
+	
+	private static void addMatching(List<StyleRule> rules, Node node, String elementType, AncestorFilter parentFilter, List<StyleRule> output) {
+		if ( rules == null )
+			return;
 		
-		applyStyling(node, declarations);
-		declarations.clear();
+		for (int i = 0; i < rules.size(); i++) {
+			StyleRule rule = rules.get(i);
+			if ( rule.getSelector().matches(node, elementType, parentFilter) )
+				output.add(rule);
+		}
 	}
 
 	/**
@@ -76,8 +160,7 @@ public class Stylesheet {
 	 */
 	public void applyStyling(Node node, String forceElementType) {
 		Map<String, StyleOperationValue> declarations = new HashMap<>();
-		computeStyling(node, StyleSelectorType.TAG, forceElementType, declarations, false);
-		computeStyling(node, StyleSelectorType.TAG, forceElementType, declarations, true);
+		computeStyling(node, forceElementType, null, declarations);
 		applyStyling( node, declarations );
 		declarations.clear();
 	}
@@ -93,61 +176,44 @@ public class Stylesheet {
 			val.getValue().process(node);
 		}
 	}
-
-	private boolean computeStyling(Node node, StyleSelectorType type, String id, Map<String, StyleOperationValue> combinedDeclarations, boolean justPseudoClasses) {
-		if ( id == null || id.length() == 0 )
-			return false;
-		
-		StyleSelector selector = idToStyleSelector.get(id);
-		if ( selector == null )
-			return false;
-		
-		if ( selector.getType() != type )
-			return false;
-		
-		StyleData data = styleData.get(selector);
-		if ( data == null )
-			return false;
-		
-		// Apply the styling!
-		if ( justPseudoClasses ) {
-			List<PseudoClass> pseudoClasses = data.getPseudoClassOrder();
-			for (int i = 0; i < pseudoClasses.size(); i++) {
-				PseudoClass pseudoClass = pseudoClasses.get(i);
-				if ( pseudoClass == PseudoClass.DEFAULT )
-					continue;
-				
-				// Add this pseudoClasses declarations to the combined list
-				if ( pseudoClass.isActive(node) )
-					addPseudoClassStyle(data, pseudoClass, combinedDeclarations);
-			}
-		} else {
-			if ( PseudoClass.DEFAULT.isActive(node) ) {
-				addPseudoClassStyle(data, PseudoClass.DEFAULT, combinedDeclarations);
-			}
-		}
-		
-		return true;
+	
+	/**
+	 * Returns whether any rule of this stylesheet has a descendant or child selector. Styles matched against such a
+	 * sheet depend on the ancestors of the node.
+	 * @return
+	 */
+	public boolean hasAncestorSelectors() {
+		return this.ancestorSelectors;
 	}
-
+	
 	/**
-	 * Adds a style data to the combined declarations. (Can combine multiple pseudo classes, but only keep the most recent entries).
-	 * @param data
-	 * @param methodType
-	 * @param combinedDeclarations
+	 * Adds a rule to the index.
+	 * @param rule
 	 */
-	private void addPseudoClassStyle(StyleData data, PseudoClass methodType, Map<String, StyleOperationValue> combinedDeclarations) {
-		List<StyleOperationValue> declarations = data.getDeclarationData(methodType);
-		if ( declarations == null )
-			return;
+	private void addRule(StyleRule rule) {
+		StyleSelector selector = rule.getSelector();
+		if ( selector.getKeyId() != null )
+			addRule(idRules, selector.getKeyId(), rule);
+		else if ( selector.getKeyClass() != null )
+			addRule(classRules, selector.getKeyClass(), rule);
+		else if ( selector.getKeyTag() != null )
+			addRule(tagRules, selector.getKeyTag(), rule);
+		else
+			universalRules.add(rule);
 		
-		if ( declarations.size() <= 0 )
-			return;
-		
-		for (int i = 0; i < declarations.size(); i++) {
-			StyleOperationValue op = declarations.get(i);
-			combinedDeclarations.put(op.getName(), op);
+		if ( selector.hasAncestors() )
+			ancestorSelectors = true;
+		rules.add(rule);
+		ruleCount++;
+	}
+	
+	private static void addRule(HashMap<String, List<StyleRule>> bucket, String key, StyleRule rule) {
+		List<StyleRule> rules = bucket.get(key);
+		if ( rules == null ) {
+			rules = new ArrayList<>();
+			bucket.put(key, rules);
 		}
+		rules.add(rule);
 	}
 
 	public boolean isCompiled() {
@@ -155,288 +221,578 @@ public class Stylesheet {
 	}
 
 	/**
-	 * Compule Stylesheet
+	 * Compile Stylesheet. Compiling an already compiled stylesheet does nothing.
+	 * @throws StylesheetCompileError if the source is malformed. The error contains the line and column.
 	 */
 	public boolean compile() throws StylesheetCompileError {
-		String newSource = source.replaceAll("[?<=\\/\\*](.*)[?=\\*\\/]", "");
-		try {
-			StringBuilder currentSelector = new StringBuilder();
-			for (int i = 0; i < newSource.length(); i++) {
-				char c = newSource.charAt(i);
-	
-				if (c == '{') {
-					List<StyleSelector> selectors = parseSelectors(currentSelector.toString());
-					currentSelector.setLength(0);
-					if (selectors == null)
-						continue;
-	
-					StringBuilder content = new StringBuilder();
-					for (int j = i; j < newSource.length(); j++) {
-						char cc = newSource.charAt(j);
-	
-						if (cc == '}') {
-							// Parse content
-							parseContent(selectors, content.toString());
-							i = j;
-							break;
-						} else {
-							content.append(cc);
-						}
-					}
-				} else {
-					// Read selector string
-					currentSelector.append(c);
-				}
-			}
-			this.compiled = true;
+		if ( this.compiled )
 			return true;
-		} catch(Exception e) {
-			e.printStackTrace();
-			throw new StylesheetCompileError(e.toString() + " / " + Arrays.toString(e.getStackTrace()));
+		
+		Parser parser = new Parser(source);
+		try {
+			parser.parse();
+		} catch(StylesheetCompileError e) {
+			clearRules();
+			throw e;
+		} catch(RuntimeException e) {
+			clearRules();
+			throw parser.error(e.toString(), parser.pos);
 		}
+		
+		this.compiled = true;
+		return true;
 	}
-
+	
+	private void clearRules() {
+		idRules.clear();
+		classRules.clear();
+		tagRules.clear();
+		universalRules.clear();
+		rules.clear();
+		ruleCount = 0;
+		ancestorSelectors = false;
+	}
+	
 	/**
-	 * Parse the declaration data for the selector.
-	 * @param selectors
-	 * @param content
+	 * Returns a compiled stylesheet for the supplied source. Stylesheets are cached by source, so identical sources
+	 * share one compiled instance. The returned stylesheet must not be modified.
+	 * @param css
+	 * @return
+	 * @throws StylesheetCompileError
 	 */
-	private void parseContent(List<StyleSelector> selectors, String content) {
-		System.out.println("Found selectors (" + selectors.size() + "): " + Arrays.toString(selectors.toArray()));
-
-		Map<Object, StyleVarArgs> data = new HashMap<>();
-
-		// Parse out declaration data
-		String currentKey = null;
-		StringBuilder t = new StringBuilder();
-		for (int i = 1; i < content.length(); i++) {
-			char c = content.charAt(i);
-
-			// Store key
-			if (c == ':') {
-				currentKey = t.toString().trim();
-				t.setLength(0);
-				continue;
-			}
-
-			// End key
-			if (c == ';') {
-				String currentVal = t.toString().trim();
-				StyleVarArgs val = parseArgs(currentVal);
-				if ( val != null ) {
-					if ( data.containsKey(currentKey) ) {
-						data.get(currentKey).add(val);
-					} else {
-						data.put(currentKey, val);
-					}
+	public static Stylesheet getCompiled(String css) throws StylesheetCompileError {
+		Stylesheet sheet = getCached(css);
+		if ( sheet != null )
+			return sheet;
+		
+		sheet = new Stylesheet(css);
+		sheet.compile();
+		putCached(sheet);
+		return sheet;
+	}
+	
+	/**
+	 * Returns a compiled stylesheet for the supplied source, like {@link #getCompiled(String)}. Compiled stylesheets
+	 * are also kept in the supplied directory, named by the hash of their source, so later runs load them instead of
+	 * parsing the source again. Problems with the directory are ignored.
+	 * @param css
+	 * @param cacheDirectory
+	 * @return
+	 * @throws StylesheetCompileError
+	 */
+	public static Stylesheet getCompiled(String css, File cacheDirectory) throws StylesheetCompileError {
+		Stylesheet sheet = getCached(css);
+		if ( sheet != null )
+			return sheet;
+		
+		long hash = hash(css);
+		File file = new File(cacheDirectory, Long.toHexString(hash) + BINARY_EXTENSION);
+		
+		// Load from disk
+		if ( file.isFile() ) {
+			try {
+				sheet = load(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+				if ( sheet.sourceHash == hash ) {
+					sheet.source = css;
+					putCached(sheet);
+					return sheet;
 				}
-				currentKey = null;
-				t.setLength(0);
-				continue;
+			} catch(IOException | StylesheetCompileError e) {
+				// Compile again
 			}
-
-			// Continue reading
-			t.append(c);
 		}
 		
-		// In case there was an unfinished declaration...
-		if ( t.length() > 0 && currentKey != null ) {
-			String currentVal = t.toString().trim();
-			StyleVarArgs val = parseArgs(currentVal);
-			if ( val != null ) {
-				if ( data.containsKey(currentKey) ) {
-					data.get(currentKey).add(val);
-				} else {
-					data.put(currentKey, val);
-				}
-			}
-			currentKey = null;
-			t.setLength(0);
+		sheet = new Stylesheet(css);
+		sheet.compile();
+		putCached(sheet);
+		
+		// Store on disk
+		try {
+			cacheDirectory.mkdirs();
+			ByteBuffer data = sheet.save();
+			Files.write(file.toPath(), Arrays.copyOfRange(data.array(), data.position(), data.limit()));
+		} catch(IOException e) {
+			// Not cached
 		}
 		
-		// Iterate over all selectors and attach declaration data
-		for (int i = 0; i < selectors.size(); i++) {
-			StyleSelector selector = selectors.get(i);
-			StyleSelector key = idToStyleSelector.get(selector.selector);
-			if ( key == null ) {
-				idToStyleSelector.put(selector.selector, selector);
-				key = selector;
-			}
+		return sheet;
+	}
+	
+	private static Stylesheet getCached(String css) {
+		synchronized(cache) {
+			Stylesheet sheet = cache.get(hash(css));
+			if ( sheet != null && css.equals(sheet.source) )
+				return sheet;
+			return null;
+		}
+	}
+	
+	private static void putCached(Stylesheet sheet) {
+		synchronized(cache) {
+			cache.put(sheet.sourceHash, sheet);
+		}
+	}
+	
+	/**
+	 * Returns a 64 bit hash (FNV-1a) of a stylesheet source.
+	 * @param css
+	 * @return
+	 */
+	public static long hash(String css) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < css.length(); i++) {
+			hash ^= css.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+	
+	/**
+	 * Serializes the compiled stylesheet: its rules and the parsed values of their declarations. The result can be
+	 * written to disk (for instance at build time) and read back with {@link #load(ByteBuffer)}.
+	 * @return
+	 */
+	public ByteBuffer save() {
+		if ( !compiled )
+			throw new IllegalStateException("Stylesheet is not compiled");
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(BINARY_MAGIC);
+			out.writeInt(BINARY_VERSION);
+			out.writeLong(sourceHash);
 			
-			StyleData sData = styleData.get(key);
-			if ( sData == null ) {
-				sData = new StyleData();
-				styleData.put(selector, sData);
-			}
-
-			final StyleData sDataFinal = sData;
-
-			data.entrySet().forEach(entry -> {
-				System.out.println(selector.selector + " :: '" + entry.getKey() + "' = '" + entry.getValue() + "'");
-				StyleOperation op = StyleOperationDefinitions.match(entry.getKey().toString());
+			// Rules in source order
+			out.writeInt(rules.size());
+			for (int i = 0; i < rules.size(); i++) {
+				StyleRule rule = rules.get(i);
+				out.writeUTF(rule.getSelector().toString());
 				
-				if ( op != null ) {
-					StyleOperationValue operation = new StyleOperationValue(op, entry.getValue());
-					sDataFinal.addDeclarationData(selector.getModifier(), operation); 
+				List<StyleOperationValue> declarations = rule.getDeclarations();
+				out.writeInt(declarations.size());
+				for (int j = 0; j < declarations.size(); j++) {
+					StyleOperationValue declaration = declarations.get(j);
+					out.writeUTF(declaration.getName());
+					
+					StyleVarArgs value = declaration.getValue();
+					out.writeInt(value.size());
+					for (int k = 0; k < value.size(); k++)
+						writeParams(out, value.get(k));
 				}
-			});
+			}
+			out.flush();
+		} catch(IOException e) {
+			throw new RuntimeException(e); // Not thrown by byte array streams
 		}
 		
-		data.clear();
+		return ByteBuffer.wrap(bytes.toByteArray());
 	}
 	
-	private ParsedStyleFunction parseFunction(String functionName, String text) {
-		StyleFunction sFunc = new StyleFunction(functionName);
-		
-		text = text.replace(", ", ",").replace(") ", ")").replace("( ", "(");
-		String current = "";
-		String currentWord = "";
+	/**
+	 * Loads a stylesheet serialized with {@link #save()}. The source is not parsed again.
+	 * @param buffer
+	 * @return a compiled stylesheet
+	 * @throws StylesheetCompileError if the data is not a compiled stylesheet of this version
+	 */
+	public static Stylesheet load(ByteBuffer buffer) throws StylesheetCompileError {
+		byte[] data = new byte[buffer.remaining()];
+		buffer.get(data);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
 		
-		boolean success = false;
-
-		int readLen = 0;
-		for (int i = 0; i < text.length(); i++) {
-			char c = text.charAt(i);
-			readLen += 1;
+		Stylesheet sheet = new Stylesheet(null);
+		try {
+			if ( in.readInt() != BINARY_MAGIC )
+				throw new StylesheetCompileError("Not a compiled stylesheet");
+			int version = in.readInt();
+			if ( version != BINARY_VERSION )
+				throw new StylesheetCompileError("Unsupported compiled stylesheet version " + version);
+			sheet.sourceHash = in.readLong();
 			
-			// Parse nested function
-			if ( c == '(' ) {
-				ParsedStyleFunction func = parseFunction(currentWord.trim(), text.substring(i+1));
-
-				currentWord = "";
-				current = "";
+			int rules = in.readInt();
+			for (int i = 0; i < rules; i++) {
+				StyleRule rule = new StyleRule(new StyleSelector(in.readUTF()), sheet.ruleCount);
 				
-				if ( func != null ) {
-					i += func.len;
-					readLen += func.len;
-					sFunc.add(func.function);
-				}
-				continue;
-			}
-			
-			// Add value or end function
-			if ( c == ',' || c == ')' ) {
-				if ( current.length() > 0 ) {
-					Object value = parseVal(current.trim());
-					if ( value != null )
-						sFunc.add(value);
+				int declarations = in.readInt();
+				for (int j = 0; j < declarations; j++) {
+					String name = in.readUTF();
+					
+					StyleVarArgs value = new StyleVarArgs();
+					int params = in.readInt();
+					for (int k = 0; k < params; k++)
+						value.add(sheet.readParams(in, new StyleParams()));
+					
+					StyleOperation op = StyleOperationDefinitions.match(name);
+					if ( op != null )
+						rule.addDeclaration(new StyleOperationValue(op, value));
 				}
-				current = "";
-				if ( c == ')') {
-					success = true;
-					break;
-				}
-			} else {
-				current += c;
+				
+				sheet.addRule(rule);
 			}
-			
-			currentWord += c;
-			if ( c == ' ' || c == ',' || c == '\t')
-				currentWord = "";
+		} catch(IOException e) {
+			throw new StylesheetCompileError("Malformed compiled stylesheet: " + e);
 		}
 		
-		if ( success ) {
-			ParsedStyleFunction ret = new ParsedStyleFunction();
-			ret.len = readLen;
-			ret.function = sFunc;
-			return ret;
+		sheet.compiled = true;
+		return sheet;
+	}
+	
+	private static void writeParams(DataOutputStream out, StyleParams params) throws IOException {
+		out.writeInt(params.size());
+		for (int i = 0; i < params.size(); i++) {
+			Object value = params.get(i);
+			if ( value instanceof StyleFunction ) {
+				out.writeByte(VALUE_FUNCTION);
+				out.writeUTF(((StyleFunction)value).getName());
+				writeParams(out, (StyleParams)value);
+			} else if ( value instanceof Percentage ) {
+				out.writeByte(VALUE_PERCENT);
+				out.writeDouble(((Percentage)value).getPercent());
+			} else if ( value instanceof Number ) {
+				out.writeByte(VALUE_NUMBER);
+				out.writeDouble(((Number)value).doubleValue());
+			} else {
+				out.writeByte(VALUE_STRING);
+				out.writeUTF(String.valueOf(value));
+			}
 		}
-		
-		return null;
 	}
 	
-	private class ParsedStyleFunction {
-		int len;
-		StyleFunction function;
+	private StyleParams readParams(DataInputStream in, StyleParams params) throws IOException, StylesheetCompileError {
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			int type = in.readByte();
+			switch(type) {
+			case VALUE_FUNCTION:
+				params.add(readParams(in, new StyleFunction(in.readUTF())));
+				break;
+			case VALUE_PERCENT:
+				params.add(new Percentage(in.readDouble()));
+				break;
+			case VALUE_NUMBER:
+				params.add(in.readDouble());
+				break;
+			case VALUE_STRING:
+				params.add(in.readUTF());
+				break;
+			default:
+				throw new StylesheetCompileError("Malformed compiled stylesheet: unknown value type " + type);
+			}
+		}
+		return params;
 	}
 	
 	/**
-	 * Take a css value and parse it into a list of args
-	 * @param content
-	 * @return
+	 * Single pass parser of the stylesheet source. Reads the source in place: strings are only created for
+	 * selectors, property names and values, never per character.
 	 */
-	private StyleVarArgs parseArgs(String content) {
+	private class Parser {
+		private final String source;
+		private final int length;
+		private int pos;
 		
-		StyleVarArgs arguments = new StyleVarArgs();
+		private final StringBuilder buffer = new StringBuilder();
+		private final ArrayList<Object> values = new ArrayList<>();
+		private final Map<String, StyleVarArgs> declarations = new LinkedHashMap<>();
+		private final List<StyleOperationValue> operations = new ArrayList<>();
 		
-		content = content.replace(", ", ",").replace(") ", ")").replace("( ", "(");
-		ArrayList<Object> temp = new ArrayList<Object>();
-		String current = "";
-		String currentWord = "";
+		Parser(String source) {
+			this.source = source;
+			this.length = source.length();
+		}
 		
-		for (int i = 0; i < content.length(); i++) {
-			char c = content.charAt(i);
-			boolean isLastChar = i+1 >= content.length();
-			
-			// Parse function
-			if ( c == '(' ) {
-				ParsedStyleFunction func = parseFunction(currentWord.trim(), content.substring(i+1));
-				current = "";
-				currentWord = "";
-				if ( func != null ) {
-					i += func.len-1;
-					temp.add(func.function);
+		void parse() throws StylesheetCompileError {
+			while ( true ) {
+				skipWhitespace();
+				if ( pos >= length )
+					return;
+				
+				// Selectors up to the block
+				int selectorStart = pos;
+				String selectors = readSelectors();
+				if ( pos >= length )
+					throw error("Expected '{' after selector", selectorStart);
+				
+				int blockStart = pos++;
+				readDeclarations(blockStart);
+				addRules(selectors);
+			}
+		}
+		
+		private String readSelectors() throws StylesheetCompileError {
+			buffer.setLength(0);
+			int segmentStart = pos;
+			while ( pos < length ) {
+				char c = source.charAt(pos);
+				if ( c == '{' )
+					break;
+				if ( c == '}' || c == ';' )
+					throw error("Unexpected '" + c + "'", pos);
+				
+				if ( isCommentStart() ) {
+					buffer.append(source, segmentStart, pos);
+					skipComment();
+					segmentStart = pos;
+					continue;
 				}
-				continue;
+				
+				pos++;
 			}
 			
-			// Break param to new vararg
-			if ( c == ',' ) {
+			buffer.append(source, segmentStart, pos);
+			return buffer.toString();
+		}
+		
+		private void readDeclarations(int blockStart) throws StylesheetCompileError {
+			declarations.clear();
+			while ( true ) {
+				skipWhitespace();
+				if ( pos >= length )
+					throw error("Expected '}' to close block", blockStart);
 				
-				// Get the value from the param
-				if ( current.trim().length() > 0 ) {
-					String t = current.trim();
-					current = "";
-					Object o = parseVal(t);
-					if ( o != null )
-						temp.add(o);
+				char c = source.charAt(pos);
+				if ( c == '}' ) {
+					pos++;
+					return;
+				}
+				if ( c == ';' ) {
+					pos++;
+					continue;
 				}
 				
-				StyleParams params = new StyleParams(temp.toArray(new Object[temp.size()]));
-				if ( params.size() > 0 ) {
-					arguments.add(params);
-					temp.clear();
+				// Property name
+				int keyStart = pos;
+				while ( pos < length ) {
+					c = source.charAt(pos);
+					if ( c == ':' || c == ';' || c == '}' || c == '{' )
+						break;
+					pos++;
 				}
-				current = "";
-				continue;
+				if ( pos >= length )
+					throw error("Expected '}' to close block", blockStart);
+				if ( c == '{' )
+					throw error("Unexpected '{'", pos);
+				if ( c != ':' )
+					continue; // Declaration without a value
+				
+				String key = source.substring(keyStart, pos).trim();
+				pos++;
+				
+				// Value. Declaring the same property twice adds to its values.
+				StyleVarArgs value = readValue();
+				if ( key.length() == 0 || value.size() == 0 )
+					continue;
+				
+				StyleVarArgs existing = declarations.get(key);
+				if ( existing != null )
+					existing.add(value);
+				else
+					declarations.put(key, value);
+			}
+		}
+		
+		/**
+		 * Reads a value up to the end of the declaration. Commas separate var args, whitespace separates params.
+		 */
+		private StyleVarArgs readValue() throws StylesheetCompileError {
+			StyleVarArgs arguments = new StyleVarArgs();
+			values.clear();
+			while ( true ) {
+				skipWhitespace();
+				if ( pos >= length )
+					break;
+				
+				char c = source.charAt(pos);
+				if ( c == ';' || c == '}' )
+					break;
+				if ( c == ')' || c == '{' )
+					throw error("Unexpected '" + c + "'", pos);
+				
+				if ( c == ',' ) {
+					flushParams(arguments);
+					pos++;
+					continue;
+				}
+				
+				values.add(readTerm());
 			}
 			
-			// Parse Value
-			if ( c == ' ' || isLastChar ) {
-				if ( isLastChar )
-					current += c;
+			flushParams(arguments);
+			return arguments;
+		}
+		
+		private Object readTerm() throws StylesheetCompileError {
+			int start = pos;
+			char c = source.charAt(pos);
+			if ( c == '"' || c == '\'' ) {
+				skipString();
+				return source.substring(start, pos);
+			}
+			
+			while ( pos < length ) {
+				c = source.charAt(pos);
+				if ( Character.isWhitespace(c) || c == ',' || c == ';' || c == '}' || c == '{' || c == '(' || c == ')' || isCommentStart() )
+					break;
+				pos++;
+			}
+			
+			// Function
+			if ( pos < length && source.charAt(pos) == '(' ) {
+				String name = source.substring(start, pos);
+				pos++;
+				return readFunction(name, start);
+			}
+			
+			return parseVal(source.substring(start, pos));
+		}
+		
+		/**
+		 * Reads the arguments of a function, after the opening parenthesis. Arguments are separated by commas.
+		 */
+		private StyleFunction readFunction(String name, int start) throws StylesheetCompileError {
+			StyleFunction function = new StyleFunction(name);
+			while ( true ) {
+				skipWhitespace();
+				if ( pos >= length )
+					throw error("Expected ')' to close '" + name + "('", start);
 				
-				// Get the value from the param
-				if ( current.trim().length() > 1 ) {
-					String t = current.trim();
-					Object o = parseVal(t);
-					if ( o != null )
-						temp.add(o);
-
-					current = "";
+				char c = source.charAt(pos);
+				if ( c == ';' || c == '}' || c == '{' )
+					throw error("Expected ')' to close '" + name + "('", start);
+				if ( c == ')' ) {
+					pos++;
+					return function;
+				}
+				if ( c == ',' ) {
+					pos++;
+					continue;
 				}
 				
-				// If this is the last character, Add current params as an argument, and reset.
-				if ( isLastChar ) {
-					StyleParams params = new StyleParams(temp.toArray(new Object[temp.size()]));
-					if ( params.size() > 0 ) {
-						arguments.add(params);
-						break; // We can't continue anymore
+				// Argument, may contain whitespace
+				int argStart = pos;
+				while ( pos < length ) {
+					c = source.charAt(pos);
+					if ( c == ',' || c == ')' || c == '(' || c == ';' || c == '}' || c == '{' )
+						break;
+					if ( c == '"' || c == '\'' ) {
+						skipString();
+						continue;
 					}
+					pos++;
+				}
+				
+				if ( pos < length && c == '(' ) {
+					// Nested function, named by the last word before the parenthesis
+					int nameStart = pos;
+					while ( nameStart > argStart && !Character.isWhitespace(source.charAt(nameStart-1)) )
+						nameStart--;
+					String nestedName = source.substring(nameStart, pos);
+					pos++;
+					function.add(readFunction(nestedName, nameStart));
+				} else {
+					String text = source.substring(argStart, pos).trim();
+					if ( text.length() > 0 )
+						function.add(parseVal(text));
 				}
 			}
+		}
+		
+		private void flushParams(StyleVarArgs arguments) {
+			if ( values.size() == 0 )
+				return;
 			
+			arguments.add(new StyleParams(values.toArray(new Object[values.size()])));
+			values.clear();
+		}
+		
+		/**
+		 * Adds a rule for each selector in the list, with the declarations of the block just read.
+		 */
+		private void addRules(String selectors) {
+			// Declarations are shared by all selectors of the block
+			operations.clear();
+			for (Entry<String, StyleVarArgs> entry : declarations.entrySet()) {
+				StyleOperation op = StyleOperationDefinitions.match(entry.getKey());
+				if ( op != null )
+					operations.add(new StyleOperationValue(op, entry.getValue()));
+			}
 			
-			// Add character
-			current = current + c;
-
-			// Update current word
-			currentWord = currentWord + c;
-			if ( c == ' ' || c == ',' || c == '\t' )
-				currentWord = "";
+			int start = 0;
+			while ( start <= selectors.length() ) {
+				int end = selectors.indexOf(',', start);
+				if ( end == -1 )
+					end = selectors.length();
+				
+				String text = selectors.substring(start, end).trim();
+				start = end + 1;
+				if ( text.length() == 0 )
+					continue;
+				
+				StyleSelector selector = new StyleSelector(text);
+				if ( !selector.isValid() )
+					continue;
+				
+				StyleRule rule = new StyleRule(selector, ruleCount);
+				for (int i = 0; i < operations.size(); i++)
+					rule.addDeclaration(operations.get(i));
+				addRule(rule);
+			}
+		}
+		
+		private void skipWhitespace() throws StylesheetCompileError {
+			while ( pos < length ) {
+				if ( Character.isWhitespace(source.charAt(pos)) )
+					pos++;
+				else if ( isCommentStart() )
+					skipComment();
+				else
+					return;
+			}
+		}
+		
+		private boolean isCommentStart() {
+			return source.charAt(pos) == '/' && pos+1 < length && source.charAt(pos+1) == '*';
+		}
+		
+		private void skipComment() throws StylesheetCompileError {
+			int end = source.indexOf("*/", pos+2);
+			if ( end == -1 )
+				throw error("Unterminated comment", pos);
+			pos = end + 2;
+		}
+		
+		private void skipString() throws StylesheetCompileError {
+			int start = pos;
+			char quote = source.charAt(pos++);
+			while ( pos < length ) {
+				char c = source.charAt(pos++);
+				if ( c == '\\' )
+					pos++;
+				else if ( c == quote )
+					return;
+				else if ( c == '\n' )
+					break;
+			}
+			throw error("Unterminated string", start);
+		}
+		
+		/**
+		 * Creates an error at the supplied offset of the source.
+		 */
+		StylesheetCompileError error(String message, int offset) {
+			int line = 1;
+			int column = 1;
+			for (int i = 0; i < offset && i < length; i++) {
+				if ( source.charAt(i) == '\n' ) {
+					line++;
+					column = 1;
+				} else {
+					column++;
+				}
+			}
+			
+			return new StylesheetCompileError(message, line, column);
 		}
-
-		return arguments;
 	}
 
 	/**
@@ -499,50 +855,39 @@ public class Stylesheet {
 	}
 
 	/**
-	 * Turn string of selectors into list.
-	 * @param selectorString
-	 * @return
-	 */
-	private List<StyleSelector> parseSelectors(String selectorString) {
-		List<StyleSelector> ret = new ArrayList<>();
-		selectorString = selectorString.trim();
-		String[] t = selectorString.contains(",") ? selectorString.split("\\,") : new String[] { selectorString };
-		for (int i = 0; i < t.length; i++) {
-			String t2 = t[i].trim();
-			ret.add(new StyleSelector(t2));
-		}
-
-		return ret;
-	}
-
-	/**
-	 * This class defines the order in which CSS pseudo classes are fired. It also contines the data (routine) of the pseudo class.
+	 * A selector and the declarations attached to it.
 	 * @author Andrew
 	 *
 	 */
-	class StyleData {
-
-		private Map<PseudoClass, List<StyleOperationValue>> routines = new HashMap<>();
-		private List<PseudoClass> routineOrder = new ArrayList<>();
-
-		public void addDeclarationData(PseudoClass pseudoClass, StyleOperationValue styleOperationValue) {
-			if ( pseudoClass == null )
-				return;
-			
-			if ( !this.routines.containsKey(pseudoClass) ) {
-				this.routines.put(pseudoClass, new ArrayList<>());
-				this.routineOrder.add(pseudoClass);
+	static class StyleRule {
+		static final Comparator<StyleRule> ORDER = new Comparator<StyleRule>() {
+			@Override
+			public int compare(StyleRule a, StyleRule b) {
+				if ( a.selector.getSpecificity() != b.selector.getSpecificity() )
+					return Integer.compare(a.selector.getSpecificity(), b.selector.getSpecificity());
+				return Integer.compare(a.order, b.order);
 			}
-			
-			this.routines.get(pseudoClass).add(styleOperationValue);
+		};
+		
+		private final StyleSelector selector;
+		private final int order;
+		private final List<StyleOperationValue> declarations = new ArrayList<>();
+		
+		public StyleRule(StyleSelector selector, int order) {
+			this.selector = selector;
+			this.order = order;
 		}
 		
-		public List<PseudoClass> getPseudoClassOrder() {
-			return this.routineOrder;
+		public void addDeclaration(StyleOperationValue styleOperationValue) {
+			this.declarations.add(styleOperationValue);
 		}
-
-		public List<StyleOperationValue> getDeclarationData(PseudoClass pseudoClass) {
-			return this.routines.get(pseudoClass);
+		
+		public StyleSelector getSelector() {
+			return this.selector;
+		}
+		
+		public List<StyleOperationValue> getDeclarations() {
+			return this.declarations;
 		}
 	}
 
@@ -566,77 +911,14 @@ public class Stylesheet {
 		}
 	}
 
-	class StyleSelector {
-		private String selector;
-		private StyleSelectorType type;
-		private PseudoClass modifier = PseudoClass.DEFAULT; // Useful for :hover support
-
-		public StyleSelector(String selector) {
-			// Parse out event
-			if ( selector.contains(":") ) {
-				String[] t = selector.split(":", 2);
-				selector = t[0];
-				this.modifier = PseudoClass.match(t[1]);
-			}
-			
-			// Parse out class
-			if ( selector.startsWith(".") ) {
-				selector = selector.substring(1);
-				type = StyleSelectorType.CLASS;
-			} else if ( selector.startsWith("#") ) {
-				selector = selector.substring(1);
-				type = StyleSelectorType.ID;
-			} else {
-				type = StyleSelectorType.TAG;
-			}
-				
-			// Set selector
-			this.selector = selector;
-		}
-		
-		public PseudoClass getModifier() {
-			return this.modifier;
-		}
-
-		public StyleSelectorType getType() {
-			return this.type;
-		}
-
-		public String getSelector() {
-			return this.selector;
-		}
-
-		@Override
-		public String toString() {
-			return getSelector() + "["+type+"]";
-		}
-		
-		public int hashCode() {
-			return selector.hashCode();
-		}
-		
-		@Override
-		public boolean equals(Object o) {
-			if ( !(o instanceof StyleSelector) )
-				return false;
-			
-			StyleSelector s = (StyleSelector)o;
-			if ( !s.selector.equals(selector) )
-				return false;
-			
-			return true;
-		}
-	}
-
-	enum StyleSelectorType {
-		TAG, CLASS, ID;
-	}
-
 	/**
 	 * Check all listed styles (in reverse order) and check if any parent node styles in the stylesheets contain the specified style operation.
 	 * @param currentStyling
 	 * @param fONT_SIZE
+	 * @deprecated Walks and matches every ancestor on each call. Inherited properties are now resolved top-down
+	 * through {@link ComputedStyle}, see {@link StyleOperation#isInherited()}.
 	 */
+	@Deprecated
 	public static void findAndApplyStyle(List<Stylesheet> sheets, Node applyNode, Node parentNode, StyleOperation... operations) {
 		if ( parentNode == null )
 			return;
@@ -647,24 +929,8 @@ public class Stylesheet {
 		// System.out.println("("+sheets.size()+") Searching node " + parentNode + "("+parentNode.getClassList()+") / for operation: " + Arrays.toString(operations) + " \t\t" + applyNode + "\t" + parentNode.getParent());
 		Map<String, StyleOperationValue> declarations = new WeakHashMap<>();
 		
-		for (int i = 0; i<sheets.size(); i++) {
-			Stylesheet sheet = sheets.get(i);
-			
-			// Apply styling for the DOM TAG
-			sheet.computeStyling(parentNode, StyleSelectorType.TAG, parentNode.getElementType(), declarations, false);
-			sheet.computeStyling(parentNode, StyleSelectorType.ID, parentNode.getElementId(), declarations, false);
-			
-			sheet.computeStyling(parentNode, StyleSelectorType.TAG, parentNode.getElementType(), declarations, true);
-			sheet.computeStyling(parentNode, StyleSelectorType.ID, parentNode.getElementId(), declarations, true);
-			
-			// Apply styling for the class
-			ArrayList<String> classList = parentNode.getClassList();
-			for (int j = 0; j < classList.size(); j++) {
-				String claz = classList.get(j);
-				sheet.computeStyling(parentNode, StyleSelectorType.CLASS, claz, declarations, false);
-				sheet.computeStyling(parentNode, StyleSelectorType.CLASS, claz, declarations, true);
-			}
-		}
+		for (int i = 0; i<sheets.size(); i++)
+			sheets.get(i).computeStyling(parentNode, null, null, declarations);
 
 		// Apply style, otherwise check parent (recursive?)
 		int t = operations.length;
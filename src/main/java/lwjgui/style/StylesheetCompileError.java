@@ -2,8 +2,39 @@ package lwjgui.style;
 
 public class StylesheetCompileError extends Exception {
 	private static final long serialVersionUID = 1L;
+	
+	private int line = -1;
+	private int column = -1;
 
 	public StylesheetCompileError(String string) {
 		super(string);
 	}
+	
+	/**
+	 * Creates an error at a position in the stylesheet source.
+	 * @param string
+	 * @param line line of the error, starting at 1
+	 * @param column column of the error, starting at 1
+	 */
+	public StylesheetCompileError(String string, int line, int column) {
+		super(string + " (line " + line + ", column " + column + ")");
+		this.line = line;
+		this.column = column;
+	}
+	
+	/**
+	 * Returns the line of the error, starting at 1. Returns -1 if the position is unknown.
+	 * @return
+	 */
+	public int getLine() {
+		return this.line;
+	}
+	
+	/**
+	 * Returns the column of the error, starting at 1. Returns -1 if the position is unknown.
+	 * @return
+	 */
+	public int getColumn() {
+		return this.column;
+	}
 }
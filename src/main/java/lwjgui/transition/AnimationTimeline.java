@@ -0,0 +1,113 @@
+package lwjgui.transition;
+
+import java.util.ArrayList;
+
+import lwjgui.scene.Window;
+import lwjgui.scene.WindowManager;
+
+/**
+ * The transitions playing in one window.<br>
+ * The timeline is ticked once per frame by the window's scene. Transitions played on a thread without a window go
+ * to a shared unbound timeline instead, which is ticked by the scene of every window, so once per window per frame
+ * while more than one window is open. The frame timestamp is taken from the monotonic
+ * {@link System#nanoTime()} clock once at the start of the frame, so every transition is sampled at the same time.
+ */
+public class AnimationTimeline {
+	// Transitions played on threads without a window. Ticked by every window's frame.
+	private static final AnimationTimeline unbound = new AnimationTimeline(null);
+	
+	private final Window window;
+	private final ArrayList<Transition> transitions = new ArrayList<Transition>();
+	
+	private long frameTime = System.nanoTime();
+	private boolean ticking;
+	
+	public AnimationTimeline(Window window) {
+		this.window = window;
+	}
+	
+	synchronized void add(Transition transition) {
+		boolean wasEmpty = transitions.isEmpty();
+		transitions.add(transition);
+		
+		// Wake up the window in case it renders on demand. The unbound timeline
+		// has no window of its own, so wake them all when it starts playing.
+		if ( window != null )
+			window.requestRedraw();
+		else if ( wasEmpty )
+			WindowManager.requestRedrawAll();
+	}
+	
+	synchronized boolean remove(Transition transition) {
+		return transitions.remove(transition);
+	}
+	
+	/**
+	 * Samples the frame timestamp and advances all transitions to it. Finished transitions are removed.
+	 */
+	public synchronized void tick() {
+		frameTime = System.nanoTime();
+		ticking = true;
+		try {
+			for (int i = 0; i < transitions.size(); i++) {
+				Transition t = transitions.get(i);
+				t.tick(t.getProgress());
+				
+				if (t.isFinished()) {
+					t.completedCallback();
+					transitions.remove(t);
+					i--;
+				}
+			}
+		} finally {
+			ticking = false;
+		}
+	}
+	
+	/**
+	 * Returns whether any transition is playing. The window keeps rendering frames while this is true.
+	 * @return
+	 */
+	public synchronized boolean isActive() {
+		return !transitions.isEmpty();
+	}
+	
+	/**
+	 * Returns the timestamp of the current frame in nanoseconds, see {@link System#nanoTime()}.
+	 * @return
+	 */
+	public synchronized long getFrameTime() {
+		return this.frameTime;
+	}
+	
+	/**
+	 * Returns the time transitions started now begin at. During a frame this is the frame timestamp, so transitions
+	 * started by other transitions line up with them.
+	 */
+	synchronized long now() {
+		return ticking ? frameTime : Math.max(frameTime, System.nanoTime());
+	}
+	
+	public Window getWindow() {
+		return this.window;
+	}
+	
+	/**
+	 * Returns the timeline of transitions played on a thread without a window.
+	 */
+	static AnimationTimeline getUnbound() {
+		return unbound;
+	}
+	
+	/**
+	 * Ticks the transitions that were played on a thread without a window.
+	 * @return whether any of them are still playing
+	 */
+	public static boolean tickUnbound() {
+		if ( !unbound.isActive() )
+			return false;
+		
+		unbound.tick();
+		return unbound.isActive();
+	}
+}
@@ -1,5 +1,8 @@
 package lwjgui.transition;
 
+import lwjgui.LWJGUI;
+import lwjgui.scene.Window;
+
 /**
  * Transitions are objects that allow the smooth animation of Nodes via the use of timestamps.
  * 
@@ -11,6 +14,7 @@ public abstract class Transition {
 	private long durationInMillis;
 	
 	private boolean isPlaying = false;
+	private AnimationTimeline timeline;
 	private long startStamp;
 	private long endStamp;
 	
@@ -19,52 +23,68 @@ public abstract class Transition {
 	}
 	
 	/**
-	 * Will start this transition. If it's already playing, it will be reset.
+	 * Will start this transition in the window of the calling thread. If it's already playing, it will be reset.
 	 */
 	public void play() {
+		play(LWJGUI.getThreadWindow());
+	}
+	
+	/**
+	 * Will start this transition on the animation timeline of the supplied window. If it's already playing, it will be reset.
+	 * @param window
+	 */
+	public void play(Window window) {
 		if (isPlaying) {
 			stop();
 		}
 		
-		startStamp = System.currentTimeMillis();
-		endStamp = startStamp + durationInMillis;
-		TransitionManager.add(this);
+		timeline = window == null ? AnimationTimeline.getUnbound() : window.getAnimationTimeline();
+		startStamp = timeline.now();
+		endStamp = startStamp + durationInMillis * 1000000L;
+		timeline.add(this);
 		isPlaying = true;
 	}
 	
 	public void stop() {
-		TransitionManager.remove(this);
+		if (timeline != null)
+			timeline.remove(this);
 		isPlaying = false;
 	}
 	
 	/**
-	 * Called by the TransitionManager regularly.
+	 * Called by the window's {@link AnimationTimeline} once per frame.
 	 * 
 	 * @param progress - the progress of the Transition to completion (between 0-1, where 1 is 100% complete)
 	 */
 	public abstract void tick(double progress);
 	
 	/**
-	 * Callback for when the transition is finished and is about to be removed from the TransitionManager.
+	 * Callback for when the transition is finished and is about to be removed from the timeline.
 	 */
 	public void completedCallback() {}
 	
 	/**
-	 * @return a value from 0 to 1 based on the transition time.
+	 * @return a value from 0 to 1 based on the timestamp of the current frame.
 	 */
 	public double getProgress() {
-		long currentTime = System.currentTimeMillis();
-		
-		double maxDistance = endStamp - startStamp;
-		double distance = Math.max(endStamp - currentTime, 0);
-		double progress = 1f - (distance / maxDistance);
-		
-		//System.err.println(maxDistance + " " + distance + " -> " + progress);
+		long currentTime = getCurrentTime();
+		if (endStamp <= startStamp) {
+			return 1;
+		}
 		
-		return progress;
+		double progress = (currentTime - startStamp) / (double) (endStamp - startStamp);
+		return Math.max(0, Math.min(1, progress));
 	}
 	
 	public boolean isFinished() {
-		return (isPlaying && System.currentTimeMillis() > endStamp);
+		return (isPlaying && getCurrentTime() >= endStamp);
+	}
+	
+	public boolean isPlaying() {
+		return this.isPlaying;
+	}
+	
+	private long getCurrentTime() {
+		return timeline == null ? System.nanoTime() : timeline.getFrameTime();
 	}
 }
@@ -1,28 +1,27 @@
 package lwjgui.transition;
 
-import java.util.ArrayList;
+import lwjgui.LWJGUI;
+import lwjgui.scene.Window;
 
+/**
+ * Access to the animation timeline of the calling thread's window.
+ * @deprecated Transitions are played on the {@link AnimationTimeline} of their window, see
+ * {@link Window#getAnimationTimeline()}.
+ */
+@Deprecated
 public class TransitionManager {
-	private static ArrayList<Transition> activeTransitions = new ArrayList<Transition>();
 	
-	static void add(Transition transition) {
-		activeTransitions.add(transition);
-	}
-	
-	static boolean remove(Transition transition) {
-		return activeTransitions.remove(transition);
+	public static boolean hasActiveTransitions() {
+		Window window = LWJGUI.getThreadWindow();
+		if ( window != null && window.getAnimationTimeline().isActive() )
+			return true;
+		return AnimationTimeline.getUnbound().isActive();
 	}
 	
 	public static void tick() {
-		for (int i = 0; i < activeTransitions.size(); i++) {
-			Transition t = activeTransitions.get(i);
-			t.tick(t.getProgress());
-			
-			if (t.isFinished()) {
-				t.completedCallback();
-				activeTransitions.remove(i);
-				i--;
-			}
-		}
+		Window window = LWJGUI.getThreadWindow();
+		if ( window != null )
+			window.getAnimationTimeline().tick();
+		AnimationTimeline.tickUnbound();
 	}
 }
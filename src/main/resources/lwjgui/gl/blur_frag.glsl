@@ -5,6 +5,7 @@ uniform vec4 uColor;
 uniform float uBlurSize;
 uniform vec2 uTexelSize;
 uniform vec4 uCornerRadii;
+uniform vec2 uTexScale; // used part of the texture
 
 in vec2 passTexCoord;
 in vec4 passColor;
@@ -28,7 +29,7 @@ void main(void) {
    for (int i = 0; i < uBlurSize; ++i) {
       for (int j = 0; j < uBlurSize; ++j) {
          vec2 offset = (hlim + vec2(float(i), float(j))) * uTexelSize;
-         result += vec4(texture(colorSampler, passTexCoord + offset).rgb,1.0);
+         result += vec4(texture(colorSampler, (passTexCoord + offset) * uTexScale).rgb,1.0);
       }
    }
    
@@ -38,7 +39,7 @@ void main(void) {
 	final = final + vec4(uColor.rgb,0.0);
 	
 	// Apply round corner logic
-	vec4 baseSample = texture(colorSampler, passTexCoord);
+	vec4 baseSample = texture(colorSampler, passTexCoord * uTexScale);
 	final = mix( baseSample, final, 
 		min( 
 			roundCorner( vec2(0.0), vec2( uCornerRadii.w ), uCornerRadii.w, passTexCoord ),
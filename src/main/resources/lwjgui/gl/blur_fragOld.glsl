@@ -5,6 +5,7 @@ uniform vec4 uColor;
 uniform float uBlurSize;
 uniform vec2 uTexelSize;
 uniform vec4 uCornerRadii;
+uniform vec2 uTexScale; // used part of the texture
 
 varying vec4 passColor;
 
@@ -15,7 +16,7 @@ void main(void) {
 	for (int i = 0; i < uBlurSize; ++i) {
 		for (int j = 0; j < uBlurSize; ++j) {
 			vec2 offset = (hlim + vec2(float(i), float(j))) * uTexelSize;
-			result += vec4(texture2D(colorSampler, gl_TexCoord[0].st + offset).rgb,1.0);
+			result += vec4(texture2D(colorSampler, (gl_TexCoord[0].st + offset) * uTexScale).rgb,1.0);
 		}
 	}
 	
@@ -1,11 +1,10 @@
 #version 330
 
-uniform vec4 box;
-uniform vec4 boxColor;
-uniform float sigma;
-uniform float corner;
-
 in vec2 vertex;
+flat in vec4 box;
+flat in vec4 boxColor;
+flat in float sigma;
+flat in float corner;
 out vec4 outColor;
 
 // A standard gaussian function, used for weighting samples
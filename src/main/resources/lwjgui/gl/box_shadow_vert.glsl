@@ -1,17 +1,28 @@
 #version 330
 
-uniform vec4 box;
 uniform vec2 window;
-uniform float sigma;
 
-layout(location = 0) in vec3 inPos;
-layout(location = 1) in vec2 inTexCoord;
+layout(location = 0) in vec2 inPos;
+
+// Per shadow
+layout(location = 1) in vec4 inBox;
 layout(location = 2) in vec4 inColor;
+layout(location = 3) in vec2 inShape; // sigma, corner
 
 out vec2 vertex;
+flat out vec4 box;
+flat out vec4 boxColor;
+flat out float sigma;
+flat out float corner;
 
 void main() {
+  box = inBox;
+  boxColor = inColor;
+  sigma = inShape.x;
+  corner = inShape.y;
+
+  // Only cover the box and its blurred edge
   float padding = 3.0 * sigma;
-  vertex = mix(box.xy - padding, box.zw + padding, inPos.xy);
+  vertex = mix(box.xy - padding, box.zw + padding, inPos);
   gl_Position = vec4(vertex / window * 2.0 - 1.0, 0.0, 1.0);
-}
\ No newline at end of file
+}
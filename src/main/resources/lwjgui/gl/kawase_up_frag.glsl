@@ -0,0 +1,33 @@
+#version 330
+
+uniform sampler2D colorSampler;
+uniform vec2 uTexelSize;
+uniform float uOffset;
+uniform vec2 uTexScale;
+
+in vec2 passTexCoord;
+in vec4 passColor;
+
+out vec4 outColor;
+
+// Samples the used part of the source texture, the rest may contain anything
+vec4 tap(vec2 uv) {
+	return texture(colorSampler, min(uv, uTexScale - uTexelSize * 0.5));
+}
+
+// Dual Kawase upsample: a tent of eight taps around the center
+void main(void) {
+	vec2 uv = passTexCoord * uTexScale;
+	vec2 h = uTexelSize * 0.5 * uOffset;
+	
+	vec4 sum = tap(uv + vec2(-h.x * 2.0, 0.0));
+	sum += tap(uv + vec2(-h.x, h.y)) * 2.0;
+	sum += tap(uv + vec2(0.0, h.y * 2.0));
+	sum += tap(uv + vec2(h.x, h.y)) * 2.0;
+	sum += tap(uv + vec2(h.x * 2.0, 0.0));
+	sum += tap(uv + vec2(h.x, -h.y)) * 2.0;
+	sum += tap(uv + vec2(0.0, -h.y * 2.0));
+	sum += tap(uv + vec2(-h.x, -h.y)) * 2.0;
+	
+	outColor = sum / 12.0;
+}
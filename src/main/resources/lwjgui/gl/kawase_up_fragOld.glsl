@@ -0,0 +1,30 @@
+#version 120
+
+uniform sampler2D colorSampler;
+uniform vec2 uTexelSize;
+uniform float uOffset;
+uniform vec2 uTexScale;
+
+varying vec4 passColor;
+
+// Samples the used part of the source texture, the rest may contain anything
+vec4 tap(vec2 uv) {
+	return texture2D(colorSampler, min(uv, uTexScale - uTexelSize * 0.5));
+}
+
+// Dual Kawase upsample: a tent of eight taps around the center
+void main(void) {
+	vec2 uv = gl_TexCoord[0].st * uTexScale;
+	vec2 h = uTexelSize * 0.5 * uOffset;
+	
+	vec4 sum = tap(uv + vec2(-h.x * 2.0, 0.0));
+	sum += tap(uv + vec2(-h.x, h.y)) * 2.0;
+	sum += tap(uv + vec2(0.0, h.y * 2.0));
+	sum += tap(uv + vec2(h.x, h.y)) * 2.0;
+	sum += tap(uv + vec2(h.x * 2.0, 0.0));
+	sum += tap(uv + vec2(h.x, -h.y)) * 2.0;
+	sum += tap(uv + vec2(0.0, -h.y * 2.0));
+	sum += tap(uv + vec2(-h.x, -h.y)) * 2.0;
+	
+	gl_FragColor = sum / 12.0;
+}
@@ -0,0 +1,78 @@
+package lwjgui;
+
+import lwjgui.scene.Scene;
+import lwjgui.scene.Window;
+import lwjgui.scene.control.CodeArea;
+import lwjgui.scene.layout.StackPane;
+
+/**
+ * Opens a 100k line code area scrolled to the bottom and prints the average frame time.
+ */
+public class CodeAreaBenchmark extends LWJGUIApplication {
+	public static final int WIDTH   = 800;
+	public static final int HEIGHT  = 600;
+
+	private static final int LINES = 100000;
+	private static final int SAMPLE_FRAMES = 120;
+
+	private long lastFrame;
+	private long frameTimes;
+	private long worstFrame;
+	private int frames;
+
+	public static void main(String[] args) {
+		launch(args);
+	}
+
+	@Override
+	public void start(String[] args, Window window) {
+		StackPane root = new StackPane();
+
+		// Create code area
+		CodeArea c = new CodeArea();
+		c.setFillToParentHeight(true);
+		c.setFillToParentWidth(true);
+		root.getChildren().add(c);
+
+		// Fill with lines
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < LINES; i++) {
+			text.append("int value").append(i).append(" = ").append(i).append(" * 31; // line ").append(i);
+			if ( i < LINES-1 )
+				text.append("\n");
+		}
+
+		long start = System.nanoTime();
+		c.setText(text.toString());
+		System.out.println("setText: " + (System.nanoTime()-start)/1000000 + "ms");
+
+		// Scroll to the bottom
+		c.appendText("");
+		c.setCaretPosition(c.getLength());
+
+		// Render continuously without vsync
+		window.setRenderOnDemand(false);
+		window.enableVSync(false);
+		window.setScene(new Scene(root, WIDTH, HEIGHT));
+		window.show();
+	}
+
+	@Override
+	protected void run() {
+		long now = System.nanoTime();
+		if ( lastFrame != 0 ) {
+			long time = now-lastFrame;
+			frameTimes += time;
+			worstFrame = Math.max(worstFrame, time);
+			frames++;
+		}
+		lastFrame = now;
+
+		if ( frames == SAMPLE_FRAMES ) {
+			System.out.println(String.format("Average frame: %.3fms, worst frame: %.3fms", frameTimes/(double)frames/1000000d, worstFrame/1000000d));
+			frameTimes = 0;
+			worstFrame = 0;
+			frames = 0;
+		}
+	}
+}
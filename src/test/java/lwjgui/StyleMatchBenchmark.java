@@ -0,0 +1,109 @@
+package lwjgui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lwjgui.scene.Node;
+import lwjgui.scene.layout.HBox;
+import lwjgui.scene.layout.StackPane;
+import lwjgui.scene.layout.VBox;
+import lwjgui.style.ComputedStyle;
+import lwjgui.style.Stylesheet;
+import lwjgui.style.StylesheetCompileError;
+
+/**
+ * Matches a stylesheet with 600 rules (classes, ids, descendant and child selectors) against a tree of nodes and
+ * prints the average time it takes to match one node. Then styles a list of identical rows and prints how many of
+ * them shared the style of a sibling.
+ */
+public class StyleMatchBenchmark {
+	private static final int RULES = 100;
+	private static final int DEPTH = 8;
+	private static final int CHILDREN = 3;
+	private static final int ITERATIONS = 200;
+	private static final int ROWS = 5000;
+
+	public static void main(String[] args) throws StylesheetCompileError {
+		// Build a stylesheet with many rules
+		StringBuilder css = new StringBuilder();
+		for (int i = 0; i < RULES; i++) {
+			css.append(".c").append(i).append(" { background-color: #ff0000; }\n");
+			css.append("#id").append(i).append(" { padding: 2px; }\n");
+			css.append(".toolbar .c").append(i).append(" { border-radius: 2px; }\n");
+			css.append("hbox .c").append(i).append(":hover { background-color: #00ff00; }\n");
+			css.append(".panel").append(i).append(" > .c").append(i).append(" { border-width: 1px; }\n");
+			css.append("stackpane.missing").append(i).append(" .c").append(i).append(" { padding: 4px; }\n");
+		}
+
+		Stylesheet sheet = new Stylesheet(css.toString());
+		sheet.compile();
+		List<Stylesheet> sheets = new ArrayList<>();
+		sheets.add(sheet);
+
+		// Build a tree of nodes
+		List<Node> nodes = new ArrayList<>();
+		StackPane root = new StackPane();
+		root.getClassList().add("toolbar");
+		nodes.add(root);
+		addChildren(root, 1, nodes);
+		System.out.println("Rules: " + RULES*6 + ", nodes: " + nodes.size());
+
+		// Match every node, parents first
+		long worst = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			long iterationStart = System.nanoTime();
+			for (int j = 0; j < nodes.size(); j++) {
+				Node node = nodes.get(j);
+				Node parent = node.getParent();
+				ComputedStyle style = node.getComputedStyle();
+				style.invalidate();
+				style.update(node, parent == null ? null : parent.getComputedStyle(), sheets, null);
+			}
+			worst = Math.max(worst, System.nanoTime()-iterationStart);
+		}
+		long time = System.nanoTime()-start;
+
+		System.out.println(String.format("Average match: %.3fus per node, worst pass: %.3fms", time/(double)(ITERATIONS*nodes.size())/1000d, worst/1000000d));
+
+		// A long list of rows that look the same
+		VBox list = new VBox();
+		list.getClassList().add("toolbar");
+		list.getComputedStyle().update(list, null, sheets, null);
+		List<Node> rows = new ArrayList<>();
+		for (int i = 0; i < ROWS; i++) {
+			HBox row = new HBox();
+			row.getClassList().add("c" + (i % 2));
+			row.setLocalPosition(list, 0, 0);
+			rows.add(row);
+		}
+
+		ComputedStyle.resetSharingCounters();
+		start = System.nanoTime();
+		for (int i = 0; i < rows.size(); i++) {
+			Node row = rows.get(i);
+			row.getComputedStyle().update(row, list.getComputedStyle(), sheets, null);
+		}
+		time = System.nanoTime()-start;
+
+		System.out.println(String.format("Styled %d rows in %.3fms, sharing hits: %d, misses: %d", ROWS, time/1000000d, ComputedStyle.getSharingHits(), ComputedStyle.getSharingMisses()));
+	}
+
+	private static void addChildren(Node parent, int depth, List<Node> nodes) {
+		if ( depth >= DEPTH )
+			return;
+
+		for (int i = 0; i < CHILDREN; i++) {
+			Node child = (depth+i) % 2 == 0 ? new HBox() : new StackPane();
+			child.getClassList().add("c" + ((depth*CHILDREN+i) % RULES));
+			if ( i == 0 )
+				child.getClassList().add("panel" + (depth % RULES));
+			if ( depth == DEPTH-1 )
+				child.setElementId("id" + (nodes.size() % RULES));
+
+			child.setLocalPosition(parent, 0, 0);
+			nodes.add(child);
+			addChildren(child, depth+1, nodes);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package lwjgui;
+
+import lwjgui.style.Stylesheet;
+import lwjgui.style.StylesheetCompileError;
+
+/**
+ * Compiles a generated theme of about 3000 lines over and over and prints the compile throughput in KB/s.
+ */
+public class StylesheetCompileBenchmark {
+	private static final int RULES = 300;
+	private static final int WARMUP = 20;
+	private static final int ITERATIONS = 100;
+
+	public static void main(String[] args) throws StylesheetCompileError {
+		String css = createTheme();
+		double kilobytes = css.length() / 1024d;
+		System.out.println(String.format("Theme: %d lines, %.1fKB", css.split("\n").length, kilobytes));
+
+		for (int i = 0; i < WARMUP; i++)
+			new Stylesheet(css).compile();
+
+		long worst = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			long compileStart = System.nanoTime();
+			new Stylesheet(css).compile();
+			worst = Math.max(worst, System.nanoTime()-compileStart);
+		}
+		long time = System.nanoTime()-start;
+
+		double average = time/(double)ITERATIONS/1000000d;
+		System.out.println(String.format("Average compile: %.3fms, worst: %.3fms, throughput: %.0fKB/s", average, worst/1000000d, kilobytes/(average/1000d)));
+	}
+
+	private static String createTheme() {
+		StringBuilder css = new StringBuilder();
+		for (int i = 0; i < RULES; i++) {
+			css.append("/* Rule ").append(i).append(" */\n");
+			css.append(".toolbar .button").append(i).append(", #item").append(i).append(":hover {\n");
+			css.append("\tbackground-color: rgba(").append(i % 255).append(", 128, 64, 0.5);\n");
+			css.append("\tborder-radius: 4px;\n");
+			css.append("\tpadding: 2px 4px;\n");
+			css.append("\tbox-shadow: 0px 2px 4px 0px rgba(0, 0, 0, 0.25), 1px 1px 2px 0px #333333 inset;\n");
+			css.append("\ttransition: background-color 0.2s, box-shadow 0.1s;\n");
+			css.append("\tfont-size: 14pt;\n");
+			css.append("\tcolor: #202020;\n");
+			css.append("}\n");
+		}
+		return css.toString();
+	}
+}